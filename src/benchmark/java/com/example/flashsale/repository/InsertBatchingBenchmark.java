@@ -0,0 +1,184 @@
+package com.example.flashsale.repository;
+
+import com.example.flashsale.config.IdGeneratorConfig;
+import com.example.flashsale.entity.BatchableId;
+import com.example.flashsale.service.impl.TimeOrderedIdGenerator;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.Table;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * Insert throughput of IDENTITY ids against ids assigned by {@link BatchableId}. Lives outside src/test so its
+ * entities never reach the test contexts, start it with {@code mvn test -Pbenchmark}. It uses in-memory H2 by default, pass
+ * {@code -Dbenchmark.datasource.url=...} (plus username, password, driver and dialect) to run against an
+ * empty MySQL schema, where batching also saves the network round trip per row.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=${benchmark.datasource.url:jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1}",
+        "spring.datasource.username=${benchmark.datasource.username:sa}",
+        "spring.datasource.password=${benchmark.datasource.password:}",
+        "spring.datasource.driver-class-name=${benchmark.datasource.driver:org.h2.Driver}",
+        "spring.jpa.properties.hibernate.dialect=${benchmark.dialect:org.hibernate.dialect.H2Dialect}",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=20"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TimeOrderedIdGenerator.class, IdGeneratorConfig.class})
+@Slf4j
+class InsertBatchingBenchmark {
+    private static final int ROWS = 20_000;
+    private static final int ROWS_PER_FLUSH = 1_000;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void compareIdentityWithBatchableIds() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Result identity = measure(statistics, IdentityOrder::new);
+        Result batched = measure(statistics, BatchedOrder::new);
+
+        log.info("Insert batching: ids=IDENTITY, rowsPerSecond={}, statements={}",
+                Math.round(identity.rowsPerSecond()), identity.statements());
+        log.info("Insert batching: ids=batchable, rowsPerSecond={}, statements={}",
+                Math.round(batched.rowsPerSecond()), batched.statements());
+        log.info("Insert batching: speedup={}", String.format("%.2fx", batched.rowsPerSecond() / identity.rowsPerSecond()));
+    }
+
+    private Result measure(Statistics statistics, LongFunction<Object> factory) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            insert(factory);
+        }
+        double[] rowsPerSecond = new double[MEASURED_ROUNDS];
+        long statements = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            statistics.clear();
+            long started = System.nanoTime();
+            insert(factory);
+            rowsPerSecond[round] = ROWS * 1e9 / (System.nanoTime() - started);
+            statements = statistics.getPrepareStatementCount();
+        }
+        Arrays.sort(rowsPerSecond);
+        return new Result(rowsPerSecond[MEASURED_ROUNDS / 2], statements);
+    }
+
+    private void insert(LongFunction<Object> factory) {
+        for (int i = 0; i < ROWS; i++) {
+            entityManager.persist(factory.apply(i));
+            if ((i + 1) % ROWS_PER_FLUSH == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+    }
+
+    private record Result(double rowsPerSecond, long statements) {
+    }
+
+    @Entity
+    @Table(name = "benchmark_identity_orders")
+    static class IdentityOrder extends BenchmarkOrder {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+
+        protected IdentityOrder() {
+        }
+
+        IdentityOrder(long userId) {
+            super(userId);
+        }
+    }
+
+    @Entity
+    @Table(name = "benchmark_batched_orders")
+    static class BatchedOrder extends BenchmarkOrder {
+        @Id
+        @BatchableId
+        private Long id;
+
+        protected BatchedOrder() {
+        }
+
+        BatchedOrder(long userId) {
+            super(userId);
+        }
+    }
+
+    /**
+     * Same columns as flash_sale_orders.
+     */
+    @MappedSuperclass
+    abstract static class BenchmarkOrder {
+        @Column(name = "user_id", nullable = false)
+        private Long userId;
+
+        @Column(name = "product_id", nullable = false)
+        private Long productId;
+
+        @Column(name = "flash_sale_config_id", nullable = false)
+        private Long flashSaleConfigId;
+
+        @Column(nullable = false, precision = 15, scale = 2)
+        private BigDecimal amount;
+
+        @Column(length = 20)
+        private String status;
+
+        @Column(name = "ordered_at", nullable = false)
+        private LocalDateTime orderedAt;
+
+        @Column(name = "stock_after", nullable = false)
+        private Integer stockAfter;
+
+        @Column(name = "created_at")
+        private LocalDateTime createdAt;
+
+        @Column(name = "updated_at")
+        private LocalDateTime updatedAt;
+
+        protected BenchmarkOrder() {
+        }
+
+        BenchmarkOrder(long userId) {
+            LocalDateTime now = LocalDateTime.now();
+            this.userId = userId;
+            this.productId = 1L;
+            this.flashSaleConfigId = 1L;
+            this.amount = new BigDecimal("25000000");
+            this.status = "COMPLETED";
+            this.orderedAt = now;
+            this.stockAfter = 0;
+            this.createdAt = now;
+            this.updatedAt = now;
+        }
+    }
+}
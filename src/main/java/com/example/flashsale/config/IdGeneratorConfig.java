@@ -0,0 +1,17 @@
+package com.example.flashsale.config;
+
+import com.example.flashsale.entity.BatchableIdGenerator;
+import com.example.flashsale.service.IdGenerator;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer idGeneratorHibernateProperties(IdGenerator idGenerator) {
+        // Entities with @BatchableId draw their ids from the same generator as the JDBC inserts
+        return properties -> properties.put(BatchableIdGenerator.ID_GENERATOR_SETTING, idGenerator);
+    }
+}
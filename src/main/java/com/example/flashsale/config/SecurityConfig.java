@@ -1,7 +1,13 @@
 package com.example.flashsale.config;
 
+import com.example.flashsale.security.BoundedPasswordEncoder;
 import com.example.flashsale.security.JwtAuthenticationFilter;
+import com.example.flashsale.security.PurchaseRateLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -23,12 +29,15 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @RequiredArgsConstructor
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final PurchaseRateLimitFilter purchaseRateLimitFilter;
     private final UserDetailsService userDetailsService;
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthenticationProvider authenticationProvider) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable)
             .authorizeHttpRequests(auth -> auth
+                    // Async dispatches finish responses already authorized, e.g. when a live stream completes
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                     .requestMatchers("/api/auth/**").permitAll()
                     .requestMatchers("/api/flash-sale/**").authenticated()
                     .anyRequest().authenticated()
@@ -36,16 +45,25 @@ public class SecurityConfig {
             .sessionManagement(session -> session
                     .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             )
-            .authenticationProvider(authenticationProvider())
-            .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+            .authenticationProvider(authenticationProvider)
+            .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterAfter(purchaseRateLimitFilter, JwtAuthenticationFilter.class);
         return http.build();
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public FilterRegistrationBean<PurchaseRateLimitFilter> purchaseRateLimitFilterRegistration() {
+        // Only run inside the security chain, where the authenticated user is known
+        FilterRegistrationBean<PurchaseRateLimitFilter> registration = new FilterRegistrationBean<>(purchaseRateLimitFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    @Bean
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
@@ -55,7 +73,11 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${auth.password-hashing.threads:2}") int threads,
+                                           @Value("${auth.password-hashing.queue-capacity:200}") int queueCapacity,
+                                           @Value("${auth.password-hashing.wait-timeout-millis:2000}") long waitTimeoutMillis) {
+        // BCrypt runs on its own pool so login storms cannot take request threads and CPU from purchases
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), threads, queueCapacity, waitTimeoutMillis, meterRegistry);
     }
 }
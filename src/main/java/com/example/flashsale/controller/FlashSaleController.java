@@ -1,19 +1,39 @@
 package com.example.flashsale.controller;
 
 import com.example.flashsale.dto.ApiResponse;
+import com.example.flashsale.dto.EncodedListingResponse;
 import com.example.flashsale.dto.FlashSaleProductResponse;
 import com.example.flashsale.dto.PurchaseRequest;
 import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.dto.PurchaseTicketResponse;
+import com.example.flashsale.dto.QueueRequest;
+import com.example.flashsale.dto.QueueTokenResponse;
+import com.example.flashsale.security.AuthenticatedUser;
+import com.example.flashsale.service.FlashSaleListingService;
 import com.example.flashsale.service.FlashSaleService;
+import com.example.flashsale.service.FlashSaleStreamService;
+import com.example.flashsale.service.PurchaseTicketService;
+import com.example.flashsale.service.WaitingRoomService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -21,16 +41,76 @@ import java.util.List;
 @RequiredArgsConstructor
 public class FlashSaleController {
     private final FlashSaleService flashSaleService;
+    private final FlashSaleListingService flashSaleListingService;
+    private final FlashSaleStreamService flashSaleStreamService;
+    private final PurchaseTicketService purchaseTicketService;
+    private final WaitingRoomService waitingRoomService;
+
+    @Value("${flash-sale.purchase.async.enabled:false}")
+    private boolean asyncPurchaseEnabled;
 
     @GetMapping("/products/current")
     public ResponseEntity<ApiResponse<List<FlashSaleProductResponse>>> getCurrentFlashSaleProducts() {
-        List<FlashSaleProductResponse> products = flashSaleService.getCurrentFlashSaleProducts();
+        List<FlashSaleProductResponse> products = flashSaleListingService.getCurrentProducts(LocalDateTime.now());
         return ResponseEntity.ok(ApiResponse.success("Current flash sale products retrieved successfully", products));
     }
 
+    @GetMapping("/v2/products/current")
+    public ResponseEntity<byte[]> getCurrentFlashSaleProductsV2(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        EncodedListingResponse listing = flashSaleListingService.getCurrentListing(LocalDateTime.now());
+        // The gzip and identity bodies are different representations, each has its own tag
+        boolean gzip = listing.getGzippedJson() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = gzip ? listing.getGzipEtag() : listing.getEtag();
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || "*".equals(ifNoneMatch.trim()))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(listing.getGzippedJson());
+        }
+        return response.body(listing.getJson());
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFlashSaleChanges() {
+        return flashSaleStreamService.subscribe();
+    }
+
+    @PostMapping("/queue")
+    public ResponseEntity<ApiResponse<QueueTokenResponse>> joinQueue(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                                     @Valid @RequestBody QueueRequest request) {
+        QueueTokenResponse response = waitingRoomService.join(principal.getId(), request.getProductId());
+        return ResponseEntity.ok(ApiResponse.success("Joined the waiting room", response));
+    }
+
+    @GetMapping("/queue")
+    public ResponseEntity<ApiResponse<QueueTokenResponse>> getQueueStatus(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                                          @RequestParam String token) {
+        QueueTokenResponse response = waitingRoomService.getStatus(principal.getId(), token);
+        return ResponseEntity.ok(ApiResponse.success("Queue status retrieved successfully", response));
+    }
+
     @PostMapping("/purchase")
-    public ResponseEntity<ApiResponse<PurchaseResponse>> purchaseProduct(@Valid @RequestBody PurchaseRequest request) {
+    public ResponseEntity<ApiResponse<?>> purchaseProduct(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                         @Valid @RequestBody PurchaseRequest request) {
+        request.setIdempotencyKey(idempotencyKey);
+        if (asyncPurchaseEnabled) {
+            PurchaseTicketResponse ticket = purchaseTicketService.submitPurchase(request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("Purchase accepted", ticket));
+        }
         PurchaseResponse response = flashSaleService.purchaseFlashSaleProduct(request);
         return ResponseEntity.ok(ApiResponse.success("Product purchased successfully", response));
     }
+
+    @GetMapping("/purchase/{ticketId}")
+    public ResponseEntity<ApiResponse<PurchaseTicketResponse>> getPurchaseTicket(@PathVariable String ticketId) {
+        PurchaseTicketResponse ticket = purchaseTicketService.getTicket(ticketId);
+        return ResponseEntity.ok(ApiResponse.success("Purchase ticket retrieved successfully", ticket));
+    }
 }
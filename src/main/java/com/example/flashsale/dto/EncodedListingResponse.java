@@ -0,0 +1,17 @@
+package com.example.flashsale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EncodedListingResponse {
+    private String etag;
+    private byte[] json;
+    private String gzipEtag;
+    private byte[] gzippedJson;
+}
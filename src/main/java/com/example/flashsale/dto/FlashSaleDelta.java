@@ -0,0 +1,20 @@
+package com.example.flashsale.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FlashSaleDelta {
+    private Long flashSaleId;
+    private Long productId;
+    private Integer available;
+    private Boolean soldOut;
+    private String state;
+}
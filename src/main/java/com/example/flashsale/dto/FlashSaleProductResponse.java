@@ -1,5 +1,6 @@
 package com.example.flashsale.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,7 +10,7 @@ import java.math.BigDecimal;
 import java.time.LocalTime;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class FlashSaleProductResponse {
@@ -24,5 +25,7 @@ public class FlashSaleProductResponse {
     private Integer totalQuantity;
     private LocalTime startTime;
     private LocalTime endTime;
+    // Left out of the v2 listing body, which would otherwise change every second
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Long remainingSeconds;
 }
@@ -0,0 +1,28 @@
+package com.example.flashsale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleScheduleRow {
+    private Long flashSaleId;
+    private Long productId;
+    private String productName;
+    private String description;
+    private BigDecimal regularPrice;
+    private BigDecimal flashPrice;
+    private Integer flashQuantity;
+    private Integer soldQuantity;
+    private LocalDate saleDate;
+    private LocalTime startTime;
+    private LocalTime endTime;
+}
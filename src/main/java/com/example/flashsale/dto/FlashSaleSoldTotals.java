@@ -0,0 +1,17 @@
+package com.example.flashsale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleSoldTotals {
+    private Long flashSaleId;
+    private Long productId;
+    private Integer soldQuantity;
+    private Long completedOrders;
+}
@@ -0,0 +1,19 @@
+package com.example.flashsale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryDrift {
+    private Long productId;
+    private Long flashSaleId;
+    private String type;
+    private Long expected;
+    private Long actual;
+    private Boolean repaired;
+}
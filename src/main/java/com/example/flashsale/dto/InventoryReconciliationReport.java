@@ -0,0 +1,21 @@
+package com.example.flashsale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryReconciliationReport {
+    private String scope;
+    private LocalDateTime startedAt;
+    private Long durationMillis;
+    private Integer productsChecked;
+    private List<InventoryDrift> drifts;
+}
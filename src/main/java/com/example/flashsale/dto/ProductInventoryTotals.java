@@ -0,0 +1,18 @@
+package com.example.flashsale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductInventoryTotals {
+    private Long productId;
+    private Integer stockQuantity;
+    private Long completedOrders;
+    private Long unsyncedOrders;
+    private Long settledUnsyncedOrders;
+}
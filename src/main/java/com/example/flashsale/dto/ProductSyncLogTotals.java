@@ -0,0 +1,16 @@
+package com.example.flashsale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSyncLogTotals {
+    private Long productId;
+    private Long syncLogs;
+    private Integer lowestStockAfter;
+}
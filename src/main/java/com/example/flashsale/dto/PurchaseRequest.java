@@ -1,5 +1,6 @@
 package com.example.flashsale.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -13,4 +14,9 @@ import lombok.NoArgsConstructor;
 public class PurchaseRequest {
     @NotNull(message = "Product ID is required")
     private Long productId;
+
+    private String queueToken;
+
+    @JsonIgnore
+    private String idempotencyKey;
 }
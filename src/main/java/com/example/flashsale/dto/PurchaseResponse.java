@@ -13,6 +13,9 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class PurchaseResponse {
+    // The order is still being committed, check the orders later
+    public static final String STATUS_PENDING = "PENDING";
+
     private Long orderId;
     private Long productId;
     private String productName;
@@ -0,0 +1,23 @@
+package com.example.flashsale.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PurchaseTicketResponse {
+    private String ticketId;
+    private Long productId;
+    private String status;
+    private PurchaseResponse purchase;
+    private String error;
+    private LocalDateTime createdAt;
+}
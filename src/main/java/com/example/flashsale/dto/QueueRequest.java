@@ -0,0 +1,16 @@
+package com.example.flashsale.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueueRequest {
+    @NotNull(message = "Product ID is required")
+    private Long productId;
+}
@@ -0,0 +1,23 @@
+package com.example.flashsale.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QueueTokenResponse {
+    private String queueToken;
+    private Long productId;
+    private Long position;
+    private Long positionsAhead;
+    private String status;
+    private LocalDateTime admissionExpiresAt;
+}
@@ -0,0 +1,18 @@
+package com.example.flashsale.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Assigns the id from the configured {@link com.example.flashsale.service.IdGenerator} on persist.
+ * Unlike IDENTITY the id is known before the insert, so Hibernate can batch the inserts.
+ */
+@IdGeneratorType(BatchableIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface BatchableId {
+}
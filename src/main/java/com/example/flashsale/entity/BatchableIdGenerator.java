@@ -0,0 +1,43 @@
+package com.example.flashsale.entity;
+
+import com.example.flashsale.service.IdGenerator;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+
+/**
+ * Hibernate side of {@link BatchableId}, delegating to the {@link IdGenerator} bean that
+ * IdGeneratorConfig puts into the Hibernate settings.
+ */
+public class BatchableIdGenerator implements BeforeExecutionGenerator {
+    public static final String ID_GENERATOR_SETTING = "flashsale.id_generator";
+
+    private final IdGenerator idGenerator;
+    private final String table;
+
+    public BatchableIdGenerator(BatchableId config, Member member, CustomIdGeneratorCreationContext context) {
+        Object configured = context.getServiceRegistry().requireService(ConfigurationService.class)
+                .getSettings().get(ID_GENERATOR_SETTING);
+        if (!(configured instanceof IdGenerator generator)) {
+            throw new IllegalStateException("No IdGenerator in the Hibernate setting " + ID_GENERATOR_SETTING);
+        }
+        this.idGenerator = generator;
+        this.table = context.getPersistentClass().getTable().getName();
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return idGenerator.nextId(table);
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -2,6 +2,8 @@ package com.example.flashsale.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -63,6 +65,23 @@ public class FlashSaleConfig {
     @Builder.Default
     private Boolean isActive = true;
 
+    @Column(name = "purchase_mode", length = 20)
+    @Enumerated(EnumType.STRING)
+    private PurchaseMode purchaseMode;
+
+    @Column(name = "max_purchase_retries")
+    private Integer maxPurchaseRetries;
+
+    @Column(name = "purchase_rate_limit")
+    private Integer purchaseRateLimit;
+
+    @Column(name = "waiting_room_enabled")
+    @Builder.Default
+    private Boolean waitingRoomEnabled = false;
+
+    @Column(name = "waiting_room_admit_rate")
+    private Integer waitingRoomAdmitRate;
+
     @Version
     @Column(name = "version")
     private Long version;
@@ -91,4 +110,8 @@ public class FlashSaleConfig {
     public void incrementSoldQuantity() {
         this.soldQuantity++;
     }
+
+    public enum PurchaseMode {
+        PESSIMISTIC, OPTIMISTIC, ATOMIC_UPDATE, SEQUENCED
+    }
 }
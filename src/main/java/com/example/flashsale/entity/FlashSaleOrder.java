@@ -4,8 +4,6 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
@@ -28,7 +26,7 @@ import java.time.LocalDateTime;
 public class FlashSaleOrder {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BatchableId
     private Long id;
 
     @Column(name = "user_id", nullable = false)
@@ -51,6 +49,10 @@ public class FlashSaleOrder {
     @Column(name = "ordered_at", nullable = false)
     private LocalDateTime orderedAt;
 
+    // Ids are not ordered across instances, the stock level is recorded instead of derived from id order
+    @Column(name = "stock_after", nullable = false)
+    private Integer stockAfter;
+
     @Column(name = "order_date", insertable = false, updatable = false)
     private LocalDate orderDate;
 
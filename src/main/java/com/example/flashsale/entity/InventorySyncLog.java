@@ -2,8 +2,6 @@ package com.example.flashsale.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
@@ -22,7 +20,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class InventorySyncLog {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BatchableId
     private Long id;
 
     @Column(name = "product_id", nullable = false)
@@ -4,8 +4,6 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
@@ -24,7 +22,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class OtpVerification {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BatchableId
     private Long id;
 
     @Column(name = "user_id", nullable = false)
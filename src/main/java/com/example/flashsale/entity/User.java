@@ -23,6 +23,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
+    // Kept dense on purpose, the purchaser index holds one bit per user id
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
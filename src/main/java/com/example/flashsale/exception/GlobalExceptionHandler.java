@@ -1,6 +1,8 @@
 package com.example.flashsale.exception;
 
 import com.example.flashsale.dto.ApiResponse;
+import com.example.flashsale.dto.PurchaseResponse;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -21,6 +23,31 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(ApiResponse.error(ex.getMessage()));
     }
 
+    @ExceptionHandler(IdempotencyKeyMismatchException.class)
+    public ResponseEntity<ApiResponse<Void>> handleIdempotencyKeyMismatchException(IdempotencyKeyMismatchException ex) {
+        return ResponseEntity.unprocessableEntity().body(ApiResponse.error(ex.getMessage()));
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ApiResponse<Void>> handleServiceUnavailableException(ServiceUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.error(ex.getMessage()));
+    }
+
+    @ExceptionHandler(PurchasePendingException.class)
+    public ResponseEntity<ApiResponse<PurchaseResponse>> handlePurchasePendingException(PurchasePendingException ex) {
+        PurchaseResponse response = PurchaseResponse.builder()
+                .productId(ex.getProductId())
+                .status(PurchaseResponse.STATUS_PENDING)
+                .message(ex.getMessage())
+                .build();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("Purchase is being processed", response));
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ApiResponse<Void>> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error("Request conflicts with an existing record"));
+    }
+
     @ExceptionHandler(UsernameNotFoundException.class)
     public ResponseEntity<ApiResponse<Void>> handleUsernameNotFoundException(UsernameNotFoundException ex) {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(ex.getMessage()));
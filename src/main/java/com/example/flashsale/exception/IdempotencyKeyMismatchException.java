@@ -0,0 +1,7 @@
+package com.example.flashsale.exception;
+
+public class IdempotencyKeyMismatchException extends BusinessException {
+    public IdempotencyKeyMismatchException() {
+        super("Idempotency-Key was already used for a different product");
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.flashsale.exception;
+
+import com.example.flashsale.dto.PurchaseResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Thrown when a purchase is already being committed but did not finish in time. The reserved unit
+ * must stay reserved until the result completes.
+ */
+public class PurchasePendingException extends RuntimeException {
+    private final Long productId;
+    private final transient CompletableFuture<PurchaseResponse> result;
+
+    public PurchasePendingException(Long productId, CompletableFuture<PurchaseResponse> result) {
+        super("Purchase is still being processed, please check your orders later");
+        this.productId = productId;
+        this.result = result;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public CompletableFuture<PurchaseResponse> getResult() {
+        return result;
+    }
+}
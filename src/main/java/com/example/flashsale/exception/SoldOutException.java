@@ -0,0 +1,7 @@
+package com.example.flashsale.exception;
+
+public class SoldOutException extends BusinessException {
+    public SoldOutException() {
+        super("Flash sale sold out");
+    }
+}
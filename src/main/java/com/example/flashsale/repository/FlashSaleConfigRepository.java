@@ -1,44 +1,67 @@
 package com.example.flashsale.repository;
 
+import com.example.flashsale.dto.FlashSaleScheduleRow;
+import com.example.flashsale.dto.FlashSaleSoldTotals;
 import com.example.flashsale.entity.FlashSaleConfig;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface FlashSaleConfigRepository extends JpaRepository<FlashSaleConfig, Long> {
     @Query("SELECT f FROM FlashSaleConfig f " +
+            "JOIN FETCH f.product " +
             "WHERE f.saleDate = :saleDate " +
-            "AND f.startTime <= :currentTime " +
-            "AND f.endTime >= :currentTime " +
-            "AND f.isActive = true " +
-            "AND f.soldQuantity < f.flashQuantity")
-    List<FlashSaleConfig> findActiveFlashSales(
-            @Param("saleDate") LocalDate saleDate,
-            @Param("currentTime") LocalTime currentTime
-    );
+            "AND f.isActive = true")
+    List<FlashSaleConfig> findActiveConfigsForDate(@Param("saleDate") LocalDate saleDate);
+
+    @Query("SELECT new com.example.flashsale.dto.FlashSaleScheduleRow(" +
+            "f.id, p.id, p.name, p.description, p.regularPrice, " +
+            "f.flashPrice, f.flashQuantity, f.soldQuantity, f.saleDate, f.startTime, f.endTime) " +
+            "FROM FlashSaleConfig f JOIN f.product p " +
+            "WHERE f.saleDate = :saleDate " +
+            "AND f.isActive = true")
+    List<FlashSaleScheduleRow> findScheduleForDate(@Param("saleDate") LocalDate saleDate);
 
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT f FROM FlashSaleConfig f WHERE f.id = :id")
     Optional<FlashSaleConfig> findByIdWithLock(@Param("id") Long id);
 
-    @Query("SELECT f FROM FlashSaleConfig f " +
-            "WHERE f.productId = :productId " +
-            "AND f.saleDate = :saleDate " +
-            "AND f.startTime <= :currentTime " +
-            "AND f.endTime >= :currentTime " +
-            "AND f.isActive = true")
-    Optional<FlashSaleConfig> findActiveFlashSaleForProduct(
-            @Param("productId") Long productId,
-            @Param("saleDate") LocalDate saleDate,
-            @Param("currentTime") LocalTime currentTime
+    @Query("SELECT f.soldQuantity FROM FlashSaleConfig f WHERE f.id = :id")
+    Optional<Integer> findSoldQuantityById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE FlashSaleConfig f " +
+            "SET f.soldQuantity = f.soldQuantity + 1, f.version = f.version + 1 " +
+            "WHERE f.id = :id " +
+            "AND f.soldQuantity < f.flashQuantity")
+    int incrementSoldQuantity(@Param("id") Long id);
+
+    @Query("SELECT new com.example.flashsale.dto.FlashSaleSoldTotals(f.id, f.productId, f.soldQuantity, COUNT(o.id)) " +
+            "FROM FlashSaleConfig f " +
+            "LEFT JOIN FlashSaleOrder o ON o.flashSaleConfigId = f.id AND o.status = 'COMPLETED' " +
+            "WHERE f.productId IN :productIds " +
+            "GROUP BY f.id, f.productId, f.soldQuantity")
+    List<FlashSaleSoldTotals> findSoldTotals(@Param("productIds") Collection<Long> productIds);
+
+    @Modifying
+    @Query("UPDATE FlashSaleConfig f " +
+            "SET f.soldQuantity = :soldQuantity, f.version = f.version + 1 " +
+            "WHERE f.id = :id " +
+            "AND f.soldQuantity = :observedSoldQuantity")
+    int repairSoldQuantity(
+            @Param("id") Long id,
+            @Param("observedSoldQuantity") Integer observedSoldQuantity,
+            @Param("soldQuantity") Integer soldQuantity
     );
 }
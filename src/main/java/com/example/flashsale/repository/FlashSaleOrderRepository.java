@@ -1,5 +1,6 @@
 package com.example.flashsale.repository;
 
+import com.example.flashsale.dto.ProductInventoryTotals;
 import com.example.flashsale.entity.FlashSaleOrder;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -7,15 +8,67 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface FlashSaleOrderRepository extends JpaRepository<FlashSaleOrder, Long> {
-    @Query("SELECT COUNT(f) > 0 FROM FlashSaleOrder f " +
-            "WHERE f.userId = :userId " +
+    @Query("SELECT f.userId FROM FlashSaleOrder f " +
+            "WHERE f.orderDate = :orderDate " +
+            "AND f.status = 'COMPLETED'")
+    List<Long> findUserIdsByOrderDate(@Param("orderDate") LocalDate orderDate);
+
+    @Query("SELECT f.userId FROM FlashSaleOrder f " +
+            "WHERE f.userId IN :userIds " +
             "AND f.orderDate = :orderDate " +
             "AND f.status = 'COMPLETED'")
-    boolean existsByUserIdAndOrderDate(
-            @Param("userId") Long userId,
+    List<Long> findUserIdsWithOrderOn(
+            @Param("userIds") Collection<Long> userIds,
             @Param("orderDate") LocalDate orderDate
     );
+
+    @Query("SELECT f FROM FlashSaleOrder f " +
+            "WHERE f.id IN :ids " +
+            "AND f.status = 'COMPLETED'")
+    List<FlashSaleOrder> findCompletedByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT o.* FROM flash_sale_orders o " +
+            "LEFT JOIN inventory_sync_logs l " +
+            "ON l.sync_type = 'FLASH_SALE_ORDER' AND l.reference_id = CONCAT('ORDER_', o.id) " +
+            "WHERE o.status = 'COMPLETED' AND o.id > :afterId AND l.id IS NULL " +
+            "ORDER BY o.id LIMIT :limit", nativeQuery = true)
+    List<FlashSaleOrder> findUnsyncedAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    @Query("SELECT DISTINCT f.productId FROM FlashSaleOrder f " +
+            "WHERE f.orderedAt >= :since")
+    List<Long> findProductIdsWithOrdersSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT new com.example.flashsale.dto.ProductInventoryTotals(" +
+            "p.id, p.stockQuantity, COUNT(f.id), " +
+            "COALESCE(SUM(CASE WHEN f.id IS NOT NULL AND l.id IS NULL THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN f.id IS NOT NULL AND l.id IS NULL AND f.orderedAt < :settledBefore THEN 1L ELSE 0L END), 0L)) " +
+            "FROM Product p " +
+            "LEFT JOIN FlashSaleOrder f ON f.productId = p.id AND f.status = 'COMPLETED' " +
+            "LEFT JOIN InventorySyncLog l ON l.syncType = 'FLASH_SALE_ORDER' " +
+            "AND l.referenceId = CONCAT('ORDER_', CAST(f.id AS String)) " +
+            "WHERE p.id IN :productIds " +
+            "GROUP BY p.id, p.stockQuantity")
+    List<ProductInventoryTotals> findInventoryTotals(
+            @Param("productIds") Collection<Long> productIds,
+            @Param("settledBefore") LocalDateTime settledBefore
+    );
+
+    @Query("SELECT f.id FROM FlashSaleOrder f " +
+            "LEFT JOIN InventorySyncLog l ON l.syncType = 'FLASH_SALE_ORDER' " +
+            "AND l.referenceId = CONCAT('ORDER_', CAST(f.id AS String)) " +
+            "WHERE f.productId = :productId " +
+            "AND f.status = 'COMPLETED' " +
+            "AND f.orderedAt < :settledBefore " +
+            "AND l.id IS NULL " +
+            "ORDER BY f.id")
+    List<Long> findUnsyncedIdsByProductId(
+            @Param("productId") Long productId,
+            @Param("settledBefore") LocalDateTime settledBefore
+    );
 }
@@ -1,10 +1,28 @@
 package com.example.flashsale.repository;
 
+import com.example.flashsale.dto.ProductSyncLogTotals;
 import com.example.flashsale.entity.InventorySyncLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
-public interface InventorySyncLogRepository extends JpaRepository<InventorySyncLog, Long> {
+public interface InventorySyncLogRepository extends JpaRepository<InventorySyncLog, Long>, InventorySyncLogRepositoryCustom {
     boolean existsBySyncTypeAndReferenceId(String syncType, String referenceId);
+
+    @Query("SELECT DISTINCT l.productId FROM InventorySyncLog l " +
+            "WHERE l.syncedAt >= :since")
+    List<Long> findProductIdsWithLogsSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT new com.example.flashsale.dto.ProductSyncLogTotals(l.productId, COUNT(l), MIN(l.stockAfter)) " +
+            "FROM InventorySyncLog l " +
+            "WHERE l.syncType = 'FLASH_SALE_ORDER' " +
+            "AND l.productId IN :productIds " +
+            "GROUP BY l.productId")
+    List<ProductSyncLogTotals> findSyncLogTotals(@Param("productIds") Collection<Long> productIds);
 }
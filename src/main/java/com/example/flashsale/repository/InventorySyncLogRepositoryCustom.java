@@ -0,0 +1,15 @@
+package com.example.flashsale.repository;
+
+import com.example.flashsale.entity.InventorySyncLog;
+
+import java.util.List;
+
+public interface InventorySyncLogRepositoryCustom {
+    /**
+     * Inserts sync logs with multi-row statements, skipping logs whose sync type and reference
+     * are already recorded (uk_sync_reference). Unlike INSERT IGNORE, other errors such as an unknown
+     * product still fail the statement.
+     * @param syncLogs the logs to insert
+     */
+    void insertIgnoringDuplicates(List<InventorySyncLog> syncLogs);
+}
@@ -0,0 +1,52 @@
+package com.example.flashsale.repository;
+
+import com.example.flashsale.entity.InventorySyncLog;
+import com.example.flashsale.service.IdGenerator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class InventorySyncLogRepositoryImpl implements InventorySyncLogRepositoryCustom {
+    // Keeps each statement well under max_allowed_packet and the placeholder limit
+    private static final int ROWS_PER_STATEMENT = 500;
+    private static final String TABLE = "inventory_sync_logs";
+    private static final String INSERT_PREFIX = "INSERT INTO " + TABLE + " " +
+            "(id, product_id, quantity_change, stock_before, stock_after, sync_type, reference_id, synced_at) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?)";
+    // Only uk_sync_reference can collide, a duplicate leaves the existing row untouched
+    private static final String ON_DUPLICATE = " ON DUPLICATE KEY UPDATE id = id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdGenerator idGenerator;
+
+    @Override
+    public void insertIgnoringDuplicates(List<InventorySyncLog> syncLogs) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int from = 0; from < syncLogs.size(); from += ROWS_PER_STATEMENT) {
+            List<InventorySyncLog> chunk = syncLogs.subList(from, Math.min(from + ROWS_PER_STATEMENT, syncLogs.size()));
+            StringBuilder sql = new StringBuilder(chunk.size() * (ROW.length() + 2));
+            List<Object> args = new ArrayList<>(chunk.size() * 8);
+            for (InventorySyncLog syncLog : chunk) {
+                if (!args.isEmpty()) {
+                    sql.append(", ");
+                }
+                sql.append(ROW);
+                // Ids come from the same generator as persisted entities, AUTO_INCREMENT would collide with them
+                args.add(idGenerator.nextId(TABLE));
+                args.add(syncLog.getProductId());
+                args.add(syncLog.getQuantityChange());
+                args.add(syncLog.getStockBefore());
+                args.add(syncLog.getStockAfter());
+                args.add(syncLog.getSyncType());
+                args.add(syncLog.getReferenceId());
+                args.add(syncLog.getSyncedAt() != null ? Timestamp.valueOf(syncLog.getSyncedAt()) : now);
+            }
+            jdbcTemplate.update(INSERT_PREFIX + sql + ON_DUPLICATE, args.toArray());
+        }
+    }
+}
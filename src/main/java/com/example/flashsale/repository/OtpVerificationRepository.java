@@ -2,7 +2,11 @@ package com.example.flashsale.repository;
 
 import com.example.flashsale.entity.OtpVerification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -14,4 +18,9 @@ public interface OtpVerificationRepository extends JpaRepository<OtpVerification
             String otpCode,
             LocalDateTime now
     );
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM otp_verifications WHERE expires_at < :cutoff LIMIT :batchSize", nativeQuery = true)
+    int deleteExpiredBatch(@Param("cutoff") LocalDateTime cutoff, @Param("batchSize") int batchSize);
 }
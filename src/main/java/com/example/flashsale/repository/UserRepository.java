@@ -2,8 +2,13 @@ package com.example.flashsale.repository;
 
 import com.example.flashsale.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,7 +17,20 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByPhone(String phone);
 
+    @Query("SELECT u FROM User u WHERE u.email = :username OR u.phone = :username")
+    List<User> findByEmailOrPhone(@Param("username") String username);
+
     boolean existsByEmail(String email);
 
     boolean existsByPhone(String phone);
+
+    @Modifying
+    @Query("UPDATE User u " +
+            "SET u.balance = u.balance - :amount " +
+            "WHERE u.id = :id " +
+            "AND u.balance >= :amount")
+    int deductBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Query("SELECT u.balance FROM User u WHERE u.id = :id")
+    BigDecimal findBalanceById(@Param("id") Long id);
 }
@@ -1,5 +1,7 @@
 package com.example.flashsale.security;
 
+import com.example.flashsale.service.TokenDenylistService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -14,12 +16,14 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final TokenDenylistService tokenDenylistService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -35,11 +39,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
         
         try {
-            username = jwtUtil.extractUsername(jwt);
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            // Verified once per request, and served from the claims cache for tokens seen before
+            Claims claims = jwtUtil.parseToken(jwt);
+            username = claims.getSubject();
+            // Logged out tokens are left unauthenticated
+            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null
+                    && !tokenDenylistService.isRevoked(claims.getId())) {
+                UserDetails userDetails = principalFor(claims, username);
 
-                if (jwtUtil.validateToken(jwt, userDetails)) {
+                if (username.equals(userDetails.getUsername())) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -53,4 +61,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    private UserDetails principalFor(Claims claims, String username) {
+        // Tokens carrying the user ID are trusted as is, older tokens still go through the user lookup
+        Long userId = jwtUtil.extractUserId(claims);
+        if (userId != null) {
+            return new AuthenticatedUser(userId, username, "", List.of());
+        }
+        return this.userDetailsService.loadUserByUsername(username);
+    }
 }
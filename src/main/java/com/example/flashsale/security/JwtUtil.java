@@ -1,30 +1,49 @@
 package com.example.flashsale.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
-    @Value("${jwt.secret}")
-    private String secret;
+    public static final String USER_ID_CLAIM = "userId";
 
-    @Value("${jwt.expiration}")
-    private Long expiration;
+    private final Key signingKey;
+    private final JwtParser parser;
+    private final Long expiration;
+    private final int claimsCacheSize;
 
-    private Key getSigningKey() {
-        byte[] keyBytes = secret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Verified claims keyed by the SHA-256 of the token, so raw bearer tokens are not kept on the heap
+    private final ConcurrentMap<String, CachedClaims> verifiedClaims = new ConcurrentHashMap<>();
+
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.expiration}") Long expiration,
+                   @Value("${jwt.claims-cache.max-size:100000}") int claimsCacheSize) {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.expiration = expiration;
+        this.claimsCacheSize = claimsCacheSize;
     }
 
     public String extractUsername(String token) {
@@ -36,43 +55,100 @@ public class JwtUtil {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verifies the token once and returns its claims. Verified claims are cached until the token expires,
+     * so repeated requests with the same token cost a hash lookup instead of a signature check.
+     * @param token the compact JWT from the Authorization header
+     * @return the verified claims, which must not be modified
+     * @throws io.jsonwebtoken.JwtException if the signature is invalid, the token is malformed or expired
+     */
+    public Claims parseToken(String token) {
+        String tokenHash = hash(token);
+        long now = System.currentTimeMillis();
+        CachedClaims cached = verifiedClaims.get(tokenHash);
+        if (cached != null) {
+            if (cached.expiresAtMillis > now) {
+                return cached.claims;
+            }
+            verifiedClaims.remove(tokenHash, cached);
+        }
+
+        // The parser rejects expired tokens, so everything cached below was valid when it was verified
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null && verifiedClaims.size() < claimsCacheSize) {
+            verifiedClaims.put(tokenHash, new CachedClaims(claims, claims.getExpiration().getTime()));
+        }
+        return claims;
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    @Scheduled(fixedDelayString = "${jwt.claims-cache.cleanup-interval-millis:60000}")
+    public void evictExpiredClaims() {
+        long now = System.currentTimeMillis();
+        verifiedClaims.values().removeIf(cached -> cached.expiresAtMillis <= now);
     }
 
-    public String generateToken(String username) {
+    /**
+     * Issues a token for the user, carrying the user ID so requests can be authenticated without a lookup.
+     * @param username the email or phone number the user logged in with
+     * @param userId the ID of the user
+     * @return the signed compact JWT
+     */
+    public String generateToken(String username, Long userId) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, userId);
         return createToken(claims, username);
     }
 
+    /**
+     * Reads the user ID claim of verified claims.
+     * @param claims claims returned by {@link #parseToken}
+     * @return the user ID, or null for tokens issued before the claim was added
+     */
+    public Long extractUserId(Claims claims) {
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        return userId != null ? userId.longValue() : null;
+    }
+
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
         final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return username.equals(userDetails.getUsername());
     }
 
     public Long getExpirationTime() {
         return expiration;
     }
+
+    private String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class CachedClaims {
+        private final Claims claims;
+        private final long expiresAtMillis;
+
+        private CachedClaims(Claims claims, long expiresAtMillis) {
+            this.claims = claims;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
 }
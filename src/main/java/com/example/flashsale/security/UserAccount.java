@@ -0,0 +1,33 @@
+package com.example.flashsale.security;
+
+import com.example.flashsale.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Immutable copy of the identity and credential fields of a user. Balance is deliberately absent,
+ * it is only ever read from the database inside the purchase transaction.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class UserAccount {
+    private final Long id;
+    private final String email;
+    private final String phone;
+    private final String passwordHash;
+    private final boolean emailVerified;
+    private final boolean phoneVerified;
+
+    public static UserAccount from(User user) {
+        return UserAccount.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                .phone(user.getPhone())
+                .passwordHash(user.getPasswordHash())
+                .emailVerified(Boolean.TRUE.equals(user.getEmailVerified()))
+                .phoneVerified(Boolean.TRUE.equals(user.getPhoneVerified()))
+                .build();
+    }
+}
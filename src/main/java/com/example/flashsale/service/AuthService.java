@@ -9,4 +9,5 @@ public interface AuthService {
     ApiResponse<String> register(AuthRequest request);
     ApiResponse<String> verifyOtp(OtpVerificationRequest request);
     AuthResponse login(AuthRequest request);
+    void logout(String token);
 }
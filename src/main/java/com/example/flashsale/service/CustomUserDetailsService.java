@@ -1,7 +1,11 @@
 package com.example.flashsale.service;
 
 import com.example.flashsale.entity.User;
+import com.example.flashsale.security.UserAccount;
 
 public interface CustomUserDetailsService {
     User getUserByUsername(String username);
+    UserAccount getAccountByUsername(String username);
+    Long getUserIdByUsername(String username);
+    void evictUser(User user);
 }
@@ -0,0 +1,12 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.dto.EncodedListingResponse;
+import com.example.flashsale.dto.FlashSaleProductResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface FlashSaleListingService {
+    List<FlashSaleProductResponse> getCurrentProducts(LocalDateTime now);
+    EncodedListingResponse getCurrentListing(LocalDateTime now);
+}
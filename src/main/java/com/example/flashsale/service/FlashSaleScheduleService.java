@@ -0,0 +1,14 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.entity.FlashSaleConfig;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface FlashSaleScheduleService {
+    Optional<FlashSaleConfig> findActiveFlashSale(Long productId, LocalDate saleDate, LocalTime currentTime);
+    List<FlashSaleConfig> findActiveFlashSales(LocalDate saleDate, LocalTime currentTime);
+    void reload();
+}
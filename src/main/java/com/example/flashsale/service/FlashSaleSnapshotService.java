@@ -0,0 +1,13 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.dto.FlashSaleProductResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface FlashSaleSnapshotService {
+    List<FlashSaleProductResponse> getActiveFlashSaleProducts(LocalDateTime now);
+    void recordSale(FlashSaleConfig flashSale);
+    long getVersion(LocalDateTime now);
+}
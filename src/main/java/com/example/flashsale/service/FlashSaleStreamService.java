@@ -0,0 +1,7 @@
+package com.example.flashsale.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface FlashSaleStreamService {
+    SseEmitter subscribe();
+}
@@ -0,0 +1,14 @@
+package com.example.flashsale.service;
+
+/**
+ * Hands out primary keys before insert, so Hibernate can batch inserts instead of reading back
+ * an AUTO_INCREMENT value per row.
+ */
+public interface IdGenerator {
+    /**
+     * Returns the next id for a table.
+     * @param table the table the id is for, strategies that hand out globally unique ids ignore it
+     * @return a positive id never returned before for this table
+     */
+    long nextId(String table);
+}
@@ -0,0 +1,9 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.dto.InventoryReconciliationReport;
+
+public interface InventoryReconciliationService {
+    InventoryReconciliationReport reconcileChanges();
+    InventoryReconciliationReport reconcileAll();
+    InventoryReconciliationReport getLastReport();
+}
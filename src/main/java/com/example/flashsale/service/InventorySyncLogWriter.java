@@ -0,0 +1,9 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.entity.InventorySyncLog;
+
+import java.util.List;
+
+public interface InventorySyncLogWriter {
+    void write(List<InventorySyncLog> syncLogs);
+}
@@ -1,5 +1,8 @@
 package com.example.flashsale.service;
 
+import java.util.List;
+
 public interface InventorySyncService {
     void syncInventoryForOrder(Long orderId, Long productId);
+    void syncInventoryForBatch(Long productId, List<Long> orderIds);
 }
@@ -0,0 +1,11 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.entity.OtpVerification;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface OtpStore {
+    void save(OtpVerification otpVerification);
+    Optional<OtpVerification> consume(String contactInfo, String otpCode, LocalDateTime now);
+}
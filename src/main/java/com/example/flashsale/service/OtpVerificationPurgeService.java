@@ -0,0 +1,5 @@
+package com.example.flashsale.service;
+
+public interface OtpVerificationPurgeService {
+    int purgeExpired();
+}
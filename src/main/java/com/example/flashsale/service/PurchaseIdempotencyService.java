@@ -0,0 +1,10 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.dto.PurchaseResponse;
+
+import java.util.function.Supplier;
+
+public interface PurchaseIdempotencyService {
+    PurchaseResponse execute(Long userId, String idempotencyKey, Long productId, Supplier<PurchaseResponse> purchase);
+    void record(Long userId, String idempotencyKey, PurchaseResponse response);
+}
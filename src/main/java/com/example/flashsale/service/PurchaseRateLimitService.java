@@ -0,0 +1,5 @@
+package com.example.flashsale.service;
+
+public interface PurchaseRateLimitService {
+    void acquire(Long userId, Long productId);
+}
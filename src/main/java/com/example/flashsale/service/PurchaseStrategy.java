@@ -0,0 +1,9 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+
+public interface PurchaseStrategy {
+    FlashSaleConfig.PurchaseMode getMode();
+    PurchaseResponse purchase(Long userId, FlashSaleConfig flashSale, String idempotencyKey);
+}
@@ -0,0 +1,9 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.dto.PurchaseRequest;
+import com.example.flashsale.dto.PurchaseTicketResponse;
+
+public interface PurchaseTicketService {
+    PurchaseTicketResponse submitPurchase(PurchaseRequest request);
+    PurchaseTicketResponse getTicket(String ticketId);
+}
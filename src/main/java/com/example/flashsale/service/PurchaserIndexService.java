@@ -0,0 +1,8 @@
+package com.example.flashsale.service;
+
+import java.time.LocalDate;
+
+public interface PurchaserIndexService {
+    boolean hasPurchased(Long userId, LocalDate orderDate);
+    void markPurchased(Long userId, LocalDate orderDate);
+}
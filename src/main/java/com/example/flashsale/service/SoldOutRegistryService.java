@@ -0,0 +1,14 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.entity.FlashSaleConfig;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public interface SoldOutRegistryService {
+    boolean isSoldOut(Long productId, LocalDate saleDate, LocalTime currentTime);
+    boolean isSoldOut(Long productId, Long flashSaleId);
+    void markSoldOut(FlashSaleConfig flashSale);
+    void clearSoldOut(FlashSaleConfig flashSale);
+    long getVersion();
+}
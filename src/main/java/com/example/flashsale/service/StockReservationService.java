@@ -0,0 +1,15 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.entity.FlashSaleConfig;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public interface StockReservationService {
+    FlashSaleConfig getActiveFlashSale(Long productId, LocalDate saleDate, LocalTime currentTime);
+    FlashSaleConfig reserve(Long productId, LocalDate saleDate, LocalTime currentTime);
+    void ensureAvailable(Long productId, LocalDate saleDate, LocalTime currentTime);
+    int getRemaining(FlashSaleConfig flashSale);
+    void release(FlashSaleConfig flashSale);
+    void markSoldOut(FlashSaleConfig flashSale);
+}
@@ -0,0 +1,9 @@
+package com.example.flashsale.service;
+
+import java.time.LocalDateTime;
+
+public interface TokenDenylistService {
+    void revoke(String jti, Long userId, LocalDateTime expiresAt);
+    boolean isRevoked(String jti);
+    void reload();
+}
@@ -0,0 +1,13 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.dto.QueueTokenResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+
+public interface WaitingRoomService {
+    QueueTokenResponse join(Long userId, Long productId);
+    QueueTokenResponse getStatus(Long userId, String queueToken);
+    void checkAdmitted(Long userId, FlashSaleConfig flashSale, String queueToken);
+    void recordReservation(Long userId, FlashSaleConfig flashSale);
+    void releaseReservation(Long userId, FlashSaleConfig flashSale);
+    void complete(Long userId, FlashSaleConfig flashSale);
+}
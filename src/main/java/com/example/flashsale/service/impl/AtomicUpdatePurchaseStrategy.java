@@ -0,0 +1,111 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.entity.FlashSaleOrder;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.repository.FlashSaleOrderRepository;
+import com.example.flashsale.repository.ProductRepository;
+import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.service.InventorySyncService;
+import com.example.flashsale.service.PurchaseIdempotencyService;
+import com.example.flashsale.service.PurchaseStrategy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AtomicUpdatePurchaseStrategy implements PurchaseStrategy {
+    private final FlashSaleConfigRepository flashSaleConfigRepository;
+    private final FlashSaleOrderRepository flashSaleOrderRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final InventorySyncService inventorySyncService;
+    private final PurchaseIdempotencyService purchaseIdempotencyService;
+
+    @Override
+    public FlashSaleConfig.PurchaseMode getMode() {
+        return FlashSaleConfig.PurchaseMode.ATOMIC_UPDATE;
+    }
+
+    /**
+     * Creates a flash sale order with guarded single-statement updates under READ COMMITTED.
+     * Each update only succeeds while its guard holds, so the affected row count decides the outcome
+     * and row locks are held only from the update until commit.
+     * @param userId the ID of the purchasing user
+     * @param flashSale the flash sale configuration a unit was reserved from
+     * @param idempotencyKey the Idempotency-Key to record with the order, or null
+     * @return PurchaseResponse containing order details and updated balance
+     * @throws BusinessException if user already purchased a flash sale product today
+     * @throws SoldOutException if flash sale is sold out
+     * @throws BusinessException if product is out of stock
+     * @throws BusinessException if user has insufficient balance
+     */
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public PurchaseResponse purchase(Long userId, FlashSaleConfig flashSale, String idempotencyKey) {
+        // Increment sold quantity while stock remains
+        if (flashSaleConfigRepository.incrementSoldQuantity(flashSale.getId()) == 0) {
+            throw new SoldOutException();
+        }
+
+        // Decrease product stock while stock remains, the row stays locked so the stock read next is this order's
+        if (productRepository.decrementStock(flashSale.getProductId()) == 0) {
+            throw new BusinessException("Product out of stock");
+        }
+        Integer stockAfter = productRepository.findStockQuantityById(flashSale.getProductId());
+
+        // Deduct user balance while it covers the price
+        if (userRepository.deductBalance(userId, flashSale.getFlashPrice()) == 0) {
+            throw new BusinessException("Insufficient balance");
+        }
+
+        // Create order, uk_user_order_date rejects a second purchase on the same day. The id is
+        // assigned before insert, so the insert is flushed here to surface the violation instead of at commit
+        FlashSaleOrder order = FlashSaleOrder.builder()
+                .userId(userId)
+                .productId(flashSale.getProductId())
+                .flashSaleConfigId(flashSale.getId())
+                .amount(flashSale.getFlashPrice())
+                .stockAfter(stockAfter)
+                .status(FlashSaleOrder.OrderStatus.COMPLETED)
+                .orderedAt(LocalDateTime.now())
+                .build();
+        try {
+            order = flashSaleOrderRepository.saveAndFlush(order);
+        } catch (DataIntegrityViolationException e) {
+            throw new BusinessException("You can only purchase one flash sale product per day");
+        }
+
+        // Record the inventory change, the sync log is written after commit
+        inventorySyncService.syncInventoryForOrder(order.getId(), flashSale.getProductId());
+        log.info("Flash sale order created: orderId={}, userId={}, productId={}, amount={}",
+                order.getId(), userId, flashSale.getProductId(), order.getAmount());
+
+        PurchaseResponse response = PurchaseResponse.builder()
+                .orderId(order.getId())
+                .productId(flashSale.getProductId())
+                .productName(flashSale.getProduct().getName())
+                .amount(order.getAmount())
+                .remainingBalance(userRepository.findBalanceById(userId))
+                .status(order.getStatus().toString())
+                .orderedAt(order.getOrderedAt())
+                .message("Purchase successful!")
+                .build();
+
+        // Save the idempotency key with the order, both commit or neither does
+        if (idempotencyKey != null) {
+            purchaseIdempotencyService.record(userId, idempotencyKey, response);
+        }
+        return response;
+    }
+}
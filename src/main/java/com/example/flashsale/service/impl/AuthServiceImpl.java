@@ -8,32 +8,42 @@ import com.example.flashsale.dto.UserInfo;
 import com.example.flashsale.entity.OtpVerification;
 import com.example.flashsale.entity.User;
 import com.example.flashsale.exception.BusinessException;
-import com.example.flashsale.repository.OtpVerificationRepository;
 import com.example.flashsale.repository.UserRepository;
 import com.example.flashsale.security.JwtUtil;
+import com.example.flashsale.security.UserAccount;
 import com.example.flashsale.service.AuthService;
-import lombok.RequiredArgsConstructor;
+import com.example.flashsale.service.CustomUserDetailsService;
+import com.example.flashsale.service.OtpStore;
+import com.example.flashsale.service.TokenDenylistService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Random;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AuthServiceImpl implements AuthService {
     private final UserRepository userRepository;
-    private final OtpVerificationRepository otpRepository;
+    private final OtpStore otpStore;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
+    private final CustomUserDetailsService userDetailsService;
+    private final TokenDenylistService tokenDenylistService;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${otp.expiration-minutes}")
     private int otpExpirationMinutes;
@@ -41,6 +51,24 @@ public class AuthServiceImpl implements AuthService {
     @Value("${otp.length}")
     private int otpLength;
 
+    public AuthServiceImpl(UserRepository userRepository,
+                           OtpStore otpStore,
+                           PasswordEncoder passwordEncoder,
+                           JwtUtil jwtUtil,
+                           AuthenticationManager authenticationManager,
+                           CustomUserDetailsService userDetailsService,
+                           TokenDenylistService tokenDenylistService,
+                           PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.otpStore = otpStore;
+        this.passwordEncoder = passwordEncoder;
+        this.jwtUtil = jwtUtil;
+        this.authenticationManager = authenticationManager;
+        this.userDetailsService = userDetailsService;
+        this.tokenDenylistService = tokenDenylistService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     /**
      * Registers a new user with email or phone number.
      * @param request the registration request containing email/phone and password
@@ -50,7 +78,6 @@ public class AuthServiceImpl implements AuthService {
      * @throws BusinessException if phone number already exists in the system
      */
     @Override
-    @Transactional
     public ApiResponse<String> register(AuthRequest request) {
         // Validate input
         if (request.getEmail() == null && request.getPhone() == null) {
@@ -65,16 +92,8 @@ public class AuthServiceImpl implements AuthService {
             throw new BusinessException("Phone number already exists");
         }
 
-        // Create user
-        User user = User.builder()
-                .email(request.getEmail())
-                .phone(request.getPhone())
-                .passwordHash(passwordEncoder.encode(request.getPassword()))
-                .balance(new BigDecimal("100000000")) // starting balance for demo
-                .emailVerified(false)
-                .phoneVerified(false)
-                .build();
-        user = userRepository.save(user);
+        // Hash before opening the transaction, a caller queued for the BCrypt pool must not hold a connection
+        String passwordHash = passwordEncoder.encode(request.getPassword());
 
         // Generate and send OTP
         String otp = generateOtp();
@@ -82,15 +101,28 @@ public class AuthServiceImpl implements AuthService {
         OtpVerification.VerificationType type = request.getEmail() != null 
                 ? OtpVerification.VerificationType.EMAIL 
                 : OtpVerification.VerificationType.PHONE;
-        OtpVerification otpVerification = OtpVerification.builder()
-                .userId(user.getId())
-                .otpCode(otp)
-                .verificationType(type)
-                .contactInfo(contactInfo)
-                .expiresAt(LocalDateTime.now().plusMinutes(otpExpirationMinutes))
-                .isUsed(false)
-                .build();
-        otpRepository.save(otpVerification);
+        OtpVerification otpVerification = transactionTemplate.execute(status -> {
+            // Create user
+            User user = userRepository.save(User.builder()
+                    .email(request.getEmail())
+                    .phone(request.getPhone())
+                    .passwordHash(passwordHash)
+                    .balance(new BigDecimal("100000000")) // starting balance for demo
+                    .emailVerified(false)
+                    .phoneVerified(false)
+                    .build());
+
+            OtpVerification verification = OtpVerification.builder()
+                    .userId(user.getId())
+                    .otpCode(otp)
+                    .verificationType(type)
+                    .contactInfo(contactInfo)
+                    .expiresAt(LocalDateTime.now().plusMinutes(otpExpirationMinutes))
+                    .isUsed(false)
+                    .build();
+            otpStore.save(verification);
+            return verification;
+        });
 
         // Mock send OTP
         log.info("=== OTP VERIFICATION ===");
@@ -120,18 +152,10 @@ public class AuthServiceImpl implements AuthService {
     public ApiResponse<String> verifyOtp(OtpVerificationRequest request) {
         String contactInfo = request.getEmail() != null ? request.getEmail() : request.getPhone();
 
-        OtpVerification otpVerification = otpRepository
-                .findByContactInfoAndOtpCodeAndIsUsedFalseAndExpiresAtAfter(
-                        contactInfo,
-                        request.getOtpCode(),
-                        LocalDateTime.now()
-                )
+        // Consume the OTP, a code can only be used once; the store gives it back if this transaction rolls back
+        OtpVerification otpVerification = otpStore.consume(contactInfo, request.getOtpCode(), LocalDateTime.now())
                 .orElseThrow(() -> new BusinessException("Invalid or expired OTP"));
 
-        // Mark OTP as used
-        otpVerification.setIsUsed(true);
-        otpRepository.save(otpVerification);
-
         // Update user verification status
         User user = userRepository.findById(otpVerification.getUserId())
                 .orElseThrow(() -> new BusinessException("User not found"));
@@ -143,6 +167,7 @@ public class AuthServiceImpl implements AuthService {
         }
 
         userRepository.save(user);
+        userDetailsService.evictUser(user);
 
         return new ApiResponse<>(
                 true,
@@ -171,21 +196,24 @@ public class AuthServiceImpl implements AuthService {
         // Authenticate
         authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, request.getPassword()));
 
-        // Get user
-        User user = userRepository.findByEmail(username)
-                .or(() -> userRepository.findByPhone(username))
-                .orElseThrow(() -> new BusinessException("User not found"));
+        // Get user, the account was cached by the authentication above
+        UserAccount user;
+        try {
+            user = userDetailsService.getAccountByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            throw new BusinessException("User not found");
+        }
 
         // Generate JWT token
-        String token = jwtUtil.generateToken(username);
+        String token = jwtUtil.generateToken(username, user.getId());
 
         // Build response
         UserInfo userInfo = UserInfo.builder()
                 .id(user.getId())
                 .email(user.getEmail())
                 .phone(user.getPhone())
-                .emailVerified(user.getEmailVerified())
-                .phoneVerified(user.getPhoneVerified())
+                .emailVerified(user.isEmailVerified())
+                .phoneVerified(user.isPhoneVerified())
                 .build();
 
         return AuthResponse.builder()
@@ -196,6 +224,34 @@ public class AuthServiceImpl implements AuthService {
                 .build();
     }
 
+    /**
+     * Revokes an access token so it is rejected until it expires.
+     * @param token the bearer token to revoke
+     * @throws BusinessException if no token is given or it is invalid or expired
+     * @throws BusinessException if the token was issued without a jti and cannot be revoked
+     */
+    @Override
+    public void logout(String token) {
+        if (token == null) {
+            throw new BusinessException("Bearer token is required");
+        }
+
+        Claims claims;
+        try {
+            claims = jwtUtil.parseToken(token);
+        } catch (JwtException e) {
+            throw new BusinessException("Invalid or expired token");
+        }
+
+        // Tokens issued before jti was added cannot be denylisted, so do not report a successful logout
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault());
+        if (claims.getId() == null) {
+            throw new BusinessException("This token cannot be revoked and stays valid until " + expiresAt
+                    + ", please log in again to get a revocable token");
+        }
+        tokenDenylistService.revoke(claims.getId(), jwtUtil.extractUserId(claims), expiresAt);
+    }
+
     private String generateOtp() {
         Random random = new Random();
         StringBuilder otp = new StringBuilder();
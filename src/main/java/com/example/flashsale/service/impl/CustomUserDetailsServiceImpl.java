@@ -2,19 +2,39 @@ package com.example.flashsale.service.impl;
 
 import com.example.flashsale.entity.User;
 import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.security.AuthenticatedUser;
+import com.example.flashsale.security.UserAccount;
 import com.example.flashsale.service.CustomUserDetailsService;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 @Service
-@RequiredArgsConstructor
 public class CustomUserDetailsServiceImpl implements CustomUserDetailsService, UserDetailsService {
     private final UserRepository userRepository;
+    private final int cacheSize;
+    private final long ttlNanos;
+
+    private final ConcurrentMap<String, CachedAccount> accountsByUsername = new ConcurrentHashMap<>();
+
+    public CustomUserDetailsServiceImpl(UserRepository userRepository,
+                                        @Value("${auth.user-cache.max-size:100000}") int cacheSize,
+                                        @Value("${auth.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.cacheSize = cacheSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
 
     /**
      * Loads user details by username (email or phone number).
@@ -24,23 +44,112 @@ public class CustomUserDetailsServiceImpl implements CustomUserDetailsService, U
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(username)
-                .or(() -> userRepository.findByPhone(username))
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
-
-        return new org.springframework.security.core.userdetails.User(username, user.getPasswordHash(), new ArrayList<>());
+        UserAccount account = getAccountByUsername(username);
+        return new AuthenticatedUser(account.getId(), username, account.getPasswordHash(), new ArrayList<>());
     }
 
     /**
-     * Retrieves the actual User entity by username (email or phone).
+     * Retrieves the actual User entity by username (email or phone), always from the database.
      * @param username the username (email or phone number) to look up
      * @return the complete User entity from database
      * @throws UsernameNotFoundException if user cannot be found by email or phone
      */
     @Override
     public User getUserByUsername(String username) {
-        return userRepository.findByEmail(username)
-                .or(() -> userRepository.findByPhone(username))
+        User user = findUser(username);
+        cache(username, UserAccount.from(user));
+        return user;
+    }
+
+    /**
+     * Returns the identity and credential fields of a user, served from a bounded cache for
+     * {@code auth.user-cache.ttl-seconds}. Balance is never cached.
+     * @param username the username (email or phone number) to look up
+     * @return the cached or freshly loaded account
+     * @throws UsernameNotFoundException if user cannot be found by email or phone
+     */
+    @Override
+    public UserAccount getAccountByUsername(String username) {
+        CachedAccount cached = accountsByUsername.get(username);
+        if (cached != null) {
+            if (cached.expiresAtNanos - System.nanoTime() > 0) {
+                return cached.account;
+            }
+            accountsByUsername.remove(username, cached);
+        }
+        UserAccount account = UserAccount.from(findUser(username));
+        cache(username, account);
+        return account;
+    }
+
+    /**
+     * Resolves the ID of a user by username (email or phone).
+     * @param username the username (email or phone number) to look up
+     * @return the user ID
+     * @throws UsernameNotFoundException if user cannot be found by email or phone
+     */
+    @Override
+    public Long getUserIdByUsername(String username) {
+        return getAccountByUsername(username).getId();
+    }
+
+    /**
+     * Drops the cached account of a user whose credentials or verification status changed.
+     * When called inside a transaction the entries are dropped again after commit, so a lookup
+     * racing the update cannot leave the old values cached.
+     * @param user the user that was updated
+     */
+    @Override
+    public void evictUser(User user) {
+        evict(user);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(user);
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.user-cache.cleanup-interval-millis:60000}")
+    public void evictExpiredAccounts() {
+        long now = System.nanoTime();
+        accountsByUsername.values().removeIf(cached -> cached.expiresAtNanos - now <= 0);
+    }
+
+    private User findUser(String username) {
+        // Email and phone are resolved in one query, an email match wins as with the former two-step lookup
+        List<User> users = userRepository.findByEmailOrPhone(username);
+        return users.stream()
+                .filter(user -> username.equals(user.getEmail()))
+                .findFirst()
+                .or(() -> users.stream().findFirst())
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
+
+    private void cache(String username, UserAccount account) {
+        if (accountsByUsername.size() < cacheSize) {
+            accountsByUsername.put(username, new CachedAccount(account, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    private void evict(User user) {
+        if (user.getEmail() != null) {
+            accountsByUsername.remove(user.getEmail());
+        }
+        if (user.getPhone() != null) {
+            accountsByUsername.remove(user.getPhone());
+        }
+    }
+
+    private static final class CachedAccount {
+        private final UserAccount account;
+        private final long expiresAtNanos;
+
+        private CachedAccount(UserAccount account, long expiresAtNanos) {
+            this.account = account;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
 }
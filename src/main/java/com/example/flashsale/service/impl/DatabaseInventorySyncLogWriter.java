@@ -0,0 +1,26 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.InventorySyncLog;
+import com.example.flashsale.repository.InventorySyncLogRepository;
+import com.example.flashsale.service.InventorySyncLogWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "flash-sale.inventory-sync.writer", havingValue = "database", matchIfMissing = true)
+@RequiredArgsConstructor
+public class DatabaseInventorySyncLogWriter implements InventorySyncLogWriter {
+    private final InventorySyncLogRepository syncLogRepository;
+
+    /**
+     * Inserts the sync logs straight into inventory_sync_logs, skipping ones already recorded.
+     * @param syncLogs the logs to write
+     */
+    @Override
+    public void write(List<InventorySyncLog> syncLogs) {
+        syncLogRepository.insertIgnoringDuplicates(syncLogs);
+    }
+}
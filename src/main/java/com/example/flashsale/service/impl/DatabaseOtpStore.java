@@ -0,0 +1,46 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.OtpVerification;
+import com.example.flashsale.repository.OtpVerificationRepository;
+import com.example.flashsale.service.OtpStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Service
+@ConditionalOnProperty(name = "otp.store.type", havingValue = "database", matchIfMissing = true)
+@RequiredArgsConstructor
+public class DatabaseOtpStore implements OtpStore {
+    private final OtpVerificationRepository otpRepository;
+
+    /**
+     * Persists a newly issued OTP.
+     * @param otpVerification the OTP to store
+     */
+    @Override
+    public void save(OtpVerification otpVerification) {
+        otpRepository.save(otpVerification);
+    }
+
+    /**
+     * Looks up an unused, unexpired OTP in the otp_verifications table and marks it as used.
+     * The update joins the caller's transaction, so a rollback leaves the code usable.
+     * @param contactInfo the email or phone number the OTP was sent to
+     * @param otpCode the code entered by the user
+     * @param now the current date and time
+     * @return the consumed OTP, or empty if no matching valid OTP exists
+     */
+    @Override
+    public Optional<OtpVerification> consume(String contactInfo, String otpCode, LocalDateTime now) {
+        Optional<OtpVerification> otpVerification =
+                otpRepository.findByContactInfoAndOtpCodeAndIsUsedFalseAndExpiresAtAfter(contactInfo, otpCode, now);
+        otpVerification.ifPresent(otp -> {
+            otp.setIsUsed(true);
+            otpRepository.save(otp);
+        });
+        return otpVerification;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.ApiResponse;
+import com.example.flashsale.dto.EncodedListingResponse;
+import com.example.flashsale.dto.FlashSaleProductResponse;
+import com.example.flashsale.service.FlashSaleListingService;
+import com.example.flashsale.service.FlashSaleSnapshotService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@Slf4j
+public class FlashSaleListingServiceImpl implements FlashSaleListingService {
+    private final FlashSaleSnapshotService flashSaleSnapshotService;
+    private final ObjectMapper objectMapper;
+    private final boolean gzipEnabled;
+
+    private volatile CachedListing cached;
+
+    public FlashSaleListingServiceImpl(FlashSaleSnapshotService flashSaleSnapshotService,
+                                       ObjectMapper objectMapper,
+                                       @Value("${flash-sale.listing.gzip:true}") boolean gzipEnabled) {
+        this.flashSaleSnapshotService = flashSaleSnapshotService;
+        this.objectMapper = objectMapper;
+        this.gzipEnabled = gzipEnabled;
+    }
+
+    /**
+     * Retrieves all flash sale products currently active, with the remaining seconds computed for the given time.
+     * Served from an in-memory snapshot, sold out sales are dropped.
+     * @param now the current date and time
+     * @return list of active flash sale products, or empty list if none are active
+     */
+    @Override
+    public List<FlashSaleProductResponse> getCurrentProducts(LocalDateTime now) {
+        return flashSaleSnapshotService.getActiveFlashSaleProducts(now);
+    }
+
+    /**
+     * Returns the v2 current-products response body already encoded as JSON, and gzipped when enabled.
+     * The v2 body leaves out the remaining seconds (clients count down from the end time) and the timestamp,
+     * so it is only encoded again when the snapshot version changes.
+     * @param now the current date and time
+     * @return EncodedListingResponse with strong ETags derived from the encoded bytes, one per encoding
+     */
+    @Override
+    public EncodedListingResponse getCurrentListing(LocalDateTime now) {
+        long version = flashSaleSnapshotService.getVersion(now);
+
+        CachedListing current = cached;
+        if (current != null && current.version == version) {
+            return current.response;
+        }
+        synchronized (this) {
+            // Only one poller re-encodes, the others wait for its result
+            current = cached;
+            if (current == null || current.version != version) {
+                current = new CachedListing(version, encode(now));
+                cached = current;
+            }
+            return current.response;
+        }
+    }
+
+    private EncodedListingResponse encode(LocalDateTime now) {
+        List<FlashSaleProductResponse> products = flashSaleSnapshotService.getActiveFlashSaleProducts(now).stream()
+                .map(product -> product.toBuilder().remainingSeconds(null).build())
+                .toList();
+        // No timestamp in the envelope either, the Date header carries it
+        ApiResponse<List<FlashSaleProductResponse>> body = ApiResponse.<List<FlashSaleProductResponse>>builder()
+                .success(true)
+                .message("Current flash sale products retrieved successfully")
+                .data(products)
+                .build();
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode flash sale listing", e);
+        }
+
+        // The tag only depends on the bytes, so it survives restarts and matches across instances
+        String hash = hash(json);
+        return EncodedListingResponse.builder()
+                .etag("\"" + hash + "\"")
+                .json(json)
+                .gzipEtag("\"" + hash + "-gzip\"")
+                .gzippedJson(gzipEnabled ? gzip(json) : null)
+                .build();
+    }
+
+    private String hash(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private byte[] gzip(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static final class CachedListing {
+        private final long version;
+        private final EncodedListingResponse response;
+
+        private CachedListing(long version, EncodedListingResponse response) {
+            this.version = version;
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.service.FlashSaleScheduleService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FlashSaleScheduleServiceImpl implements FlashSaleScheduleService {
+    private final FlashSaleConfigRepository flashSaleConfigRepository;
+
+    private volatile ScheduleIndex index;
+
+    /**
+     * Finds the flash sale running for a product at the given time from the in-memory schedule index.
+     * @param productId the ID of the product
+     * @param saleDate the current date
+     * @param currentTime the current time of day
+     * @return the active flash sale configuration, or empty if the product has none at that time
+     */
+    @Override
+    public Optional<FlashSaleConfig> findActiveFlashSale(Long productId, LocalDate saleDate, LocalTime currentTime) {
+        return indexFor(saleDate).findActive(productId, currentTime);
+    }
+
+    /**
+     * Finds every flash sale running at the given time from the in-memory schedule index.
+     * @param saleDate the current date
+     * @param currentTime the current time of day
+     * @return list of active flash sale configurations, or empty list if none are active
+     */
+    @Override
+    public List<FlashSaleConfig> findActiveFlashSales(LocalDate saleDate, LocalTime currentTime) {
+        return indexFor(saleDate).findActive(currentTime);
+    }
+
+    /**
+     * Reloads today's schedule so added, moved or deactivated sales are picked up.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${flash-sale.schedule.reload-interval-millis:60000}")
+    public void reload() {
+        ScheduleIndex reloaded = load(LocalDate.now());
+        synchronized (this) {
+            index = reloaded;
+        }
+    }
+
+    private ScheduleIndex indexFor(LocalDate saleDate) {
+        ScheduleIndex current = index;
+        if (current != null && current.day.equals(saleDate)) {
+            return current;
+        }
+        synchronized (this) {
+            // Load a new day once, concurrent callers reuse it
+            if (index == null || !index.day.equals(saleDate)) {
+                index = load(saleDate);
+            }
+            return index;
+        }
+    }
+
+    private ScheduleIndex load(LocalDate saleDate) {
+        List<FlashSaleConfig> configs = flashSaleConfigRepository.findActiveConfigsForDate(saleDate);
+        ScheduleIndex loaded = new ScheduleIndex(saleDate, configs);
+        log.info("Flash sale schedule loaded: saleDate={}, sales={}, segments={}",
+                saleDate, configs.size(), loaded.segmentStarts.length);
+        return loaded;
+    }
+
+    /**
+     * Static interval index over one day of sale windows. The day is cut at every start and end into
+     * segments with a fixed set of active sales, so a lookup is a binary search over segment starts.
+     */
+    private static final class ScheduleIndex {
+        private final LocalDate day;
+        private final LocalTime[] segmentStarts;
+        private final List<List<FlashSaleConfig>> segments;
+        private final Map<Long, List<FlashSaleConfig>> configsByProduct;
+
+        private ScheduleIndex(LocalDate day, List<FlashSaleConfig> configs) {
+            this.day = day;
+
+            // Step 1: every start and every instant just after an end opens a new segment
+            TreeSet<LocalTime> boundaries = new TreeSet<>();
+            for (FlashSaleConfig config : configs) {
+                boundaries.add(config.getStartTime());
+                if (!config.getEndTime().equals(LocalTime.MAX)) {
+                    boundaries.add(config.getEndTime().plusNanos(1));
+                }
+            }
+            this.segmentStarts = boundaries.toArray(new LocalTime[0]);
+
+            // Step 2: sweep the boundaries in order, adding sales that start and dropping those that ended
+            List<FlashSaleConfig> byStart = configs.stream()
+                    .sorted(Comparator.comparing(FlashSaleConfig::getStartTime))
+                    .collect(Collectors.toList());
+            List<FlashSaleConfig> byEnd = configs.stream()
+                    .sorted(Comparator.comparing(FlashSaleConfig::getEndTime))
+                    .collect(Collectors.toList());
+            Set<FlashSaleConfig> active = new LinkedHashSet<>();
+            this.segments = new ArrayList<>(segmentStarts.length);
+            int nextStart = 0;
+            int nextEnd = 0;
+            for (LocalTime boundary : segmentStarts) {
+                while (nextEnd < byEnd.size() && byEnd.get(nextEnd).getEndTime().isBefore(boundary)) {
+                    active.remove(byEnd.get(nextEnd++));
+                }
+                while (nextStart < byStart.size() && !byStart.get(nextStart).getStartTime().isAfter(boundary)) {
+                    FlashSaleConfig config = byStart.get(nextStart++);
+                    if (!config.getEndTime().isBefore(boundary)) {
+                        active.add(config);
+                    }
+                }
+                segments.add(List.copyOf(active));
+            }
+
+            // Step 3: per product windows ordered by start for the purchase path
+            this.configsByProduct = byStart.stream().collect(Collectors.groupingBy(FlashSaleConfig::getProductId));
+        }
+
+        private List<FlashSaleConfig> findActive(LocalTime time) {
+            int segment = floor(segmentStarts, time);
+            return segment < 0 ? List.of() : segments.get(segment);
+        }
+
+        private Optional<FlashSaleConfig> findActive(Long productId, LocalTime time) {
+            List<FlashSaleConfig> windows = configsByProduct.get(productId);
+            if (windows == null) {
+                return Optional.empty();
+            }
+            // Windows of a product rarely overlap, so walking back from the latest start is short
+            for (int i = windows.size() - 1; i >= 0; i--) {
+                FlashSaleConfig config = windows.get(i);
+                if (!config.getStartTime().isAfter(time) && !config.getEndTime().isBefore(time)) {
+                    return Optional.of(config);
+                }
+            }
+            return Optional.empty();
+        }
+
+        private static int floor(LocalTime[] starts, LocalTime time) {
+            int position = Arrays.binarySearch(starts, time);
+            return position >= 0 ? position : -position - 2;
+        }
+    }
+}
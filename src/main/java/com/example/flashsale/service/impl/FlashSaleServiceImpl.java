@@ -1,176 +1,157 @@
 package com.example.flashsale.service.impl;
 
-import com.example.flashsale.dto.FlashSaleProductResponse;
 import com.example.flashsale.dto.PurchaseRequest;
 import com.example.flashsale.dto.PurchaseResponse;
 import com.example.flashsale.entity.FlashSaleConfig;
-import com.example.flashsale.entity.FlashSaleOrder;
-import com.example.flashsale.entity.Product;
-import com.example.flashsale.entity.User;
 import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.IdempotencyKeyMismatchException;
+import com.example.flashsale.exception.PurchasePendingException;
+import com.example.flashsale.exception.SoldOutException;
 import com.example.flashsale.repository.FlashSaleConfigRepository;
-import com.example.flashsale.repository.FlashSaleOrderRepository;
-import com.example.flashsale.repository.ProductRepository;
-import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.security.AuthenticatedUser;
 import com.example.flashsale.service.CustomUserDetailsService;
 import com.example.flashsale.service.FlashSaleService;
-import com.example.flashsale.service.InventorySyncService;
+import com.example.flashsale.service.FlashSaleSnapshotService;
+import com.example.flashsale.service.PurchaseIdempotencyService;
+import com.example.flashsale.service.PurchaseStrategy;
+import com.example.flashsale.service.PurchaserIndexService;
+import com.example.flashsale.service.SoldOutRegistryService;
+import com.example.flashsale.service.StockReservationService;
+import com.example.flashsale.service.WaitingRoomService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FlashSaleServiceImpl implements FlashSaleService {
     private final FlashSaleConfigRepository flashSaleConfigRepository;
-    private final FlashSaleOrderRepository flashSaleOrderRepository;
-    private final ProductRepository productRepository;
-    private final UserRepository userRepository;
     private final CustomUserDetailsService userDetailsService;
-    private final InventorySyncService inventorySyncService;
+    private final StockReservationService stockReservationService;
+    private final PurchaserIndexService purchaserIndexService;
+    private final SoldOutRegistryService soldOutRegistryService;
+    private final WaitingRoomService waitingRoomService;
+    private final PurchaseIdempotencyService purchaseIdempotencyService;
+    private final FlashSaleSnapshotService flashSaleSnapshotService;
+    private final List<PurchaseStrategy> purchaseStrategies;
 
-    /**
-     * Retrieves all flash sale products currently active at the present time.
-     * @return list of active flash sale products with complete information
-     * or empty list if no flash sales are currently active
-     */
-    @Override
-    public List<FlashSaleProductResponse> getCurrentFlashSaleProducts() {
-        LocalDate today = LocalDate.now();
-        LocalTime currentTime = LocalTime.now();
-
-        List<FlashSaleConfig> activeFlashSales = flashSaleConfigRepository.findActiveFlashSales(today, currentTime);
-
-        return activeFlashSales.stream().map(this::mapToResponse).collect(Collectors.toList());
-    }
+    @Value("${flash-sale.purchase.mode:PESSIMISTIC}")
+    private FlashSaleConfig.PurchaseMode purchaseMode;
 
     /**
      * Processes a flash sale product purchase with strict concurrency control.
+     * Repeat buyers and requests for sold out sales are rejected from memory, and a unit is
+     * reserved before any transaction is opened. Requests carrying an idempotency key run at most once.
      * @param request the purchase request containing product ID
      * @return PurchaseResponse containing order details and updated balance
      * @throws BusinessException if no active flash sale exists for the product
-     * @throws BusinessException if flash sale is sold out
+     * @throws SoldOutException if flash sale is sold out
+     * @throws BusinessException if the sale has a waiting room and the queue token is not admitted
      * @throws BusinessException if user already purchased a flash sale product today
      * @throws BusinessException if product is out of stock
      * @throws BusinessException if user has insufficient balance
+     * @throws IdempotencyKeyMismatchException if the idempotency key was already used for another product
+     * @throws PurchasePendingException if the order is still being committed, its result completes with the outcome
      */
     @Override
-    @Transactional(isolation = Isolation.SERIALIZABLE)
     public PurchaseResponse purchaseFlashSaleProduct(PurchaseRequest request) {
-        // Get current user
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userDetailsService.getUserByUsername(username);
+        Long userId = currentUserId();
+
+        // Replays are answered before the repeat buyer check, which would reject them
+        if (request.getIdempotencyKey() != null) {
+            return purchaseIdempotencyService.execute(userId, request.getIdempotencyKey(), request.getProductId(),
+                    () -> purchase(userId, request));
+        }
+        return purchase(userId, request);
+    }
 
+    private PurchaseResponse purchase(Long userId, PurchaseRequest request) {
         // Check if user already purchased today
         LocalDate today = LocalDate.now();
-        boolean alreadyPurchasedToday = flashSaleOrderRepository.existsByUserIdAndOrderDate(user.getId(), today);
-        if (alreadyPurchasedToday) {
+        if (purchaserIndexService.hasPurchased(userId, today)) {
             throw new BusinessException("You can only purchase one flash sale product per day");
         }
 
-        // Find active flash sale for this product
+        // Reject sold out sales and reserve a unit before borrowing a connection
         LocalTime currentTime = LocalTime.now();
-        FlashSaleConfig flashSale = flashSaleConfigRepository.findActiveFlashSaleForProduct(request.getProductId(), today, currentTime)
-                .orElseThrow(() -> new BusinessException("No active flash sale for this product"));
-
-        // Lock flash sale config with pessimistic write lock
-        FlashSaleConfig lockedFlashSale = flashSaleConfigRepository.findByIdWithLock(flashSale.getId())
-                .orElseThrow(() -> new BusinessException("Flash sale not found"));
-
-        // Check if still has stock
-        if (!lockedFlashSale.hasStock()) {
-            throw new BusinessException("Flash sale sold out");
+        if (soldOutRegistryService.isSoldOut(request.getProductId(), today, currentTime)) {
+            throw new SoldOutException();
+        }
+        waitingRoomService.checkAdmitted(userId,
+                stockReservationService.getActiveFlashSale(request.getProductId(), today, currentTime), request.getQueueToken());
+        FlashSaleConfig flashSale = stockReservationService.reserve(request.getProductId(), today, currentTime);
+        waitingRoomService.recordReservation(userId, flashSale);
+
+        PurchaseResponse response;
+        try {
+            response = resolvePurchaseStrategy(flashSale).purchase(userId, flashSale, request.getIdempotencyKey());
+        } catch (PurchasePendingException e) {
+            // The order may still commit, so the unit stays reserved until the outcome is known
+            e.getResult().whenComplete((completed, error) -> {
+                if (error == null) {
+                    recordPurchase(userId, flashSale, completed);
+                } else {
+                    handleFailure(userId, flashSale, error);
+                }
+            });
+            throw e;
+        } catch (RuntimeException e) {
+            handleFailure(userId, flashSale, e);
+            throw e;
         }
 
-        // Lock product for inventory update
-        Product product = productRepository.findByIdWithLock(request.getProductId())
-                .orElseThrow(() -> new BusinessException("Product not found"));
+        recordPurchase(userId, flashSale, response);
+        return response;
+    }
 
-        // Check product stock
-        if (product.getStockQuantity() <= 0) {
-            throw new BusinessException("Product out of stock");
+    private void handleFailure(Long userId, FlashSaleConfig flashSale, Throwable error) {
+        waitingRoomService.releaseReservation(userId, flashSale);
+        if (error instanceof SoldOutException) {
+            // The database has no stock left even though this instance still had units
+            stockReservationService.markSoldOut(flashSale);
+            soldOutRegistryService.markSoldOut(flashSale);
+        } else {
+            stockReservationService.release(flashSale);
         }
+    }
 
-        // Check user balance
-        if (user.getBalance().compareTo(lockedFlashSale.getFlashPrice()) < 0) {
-            throw new BusinessException("Insufficient balance");
+    private void recordPurchase(Long userId, FlashSaleConfig flashSale, PurchaseResponse response) {
+        purchaserIndexService.markPurchased(userId, response.getOrderedAt().toLocalDate());
+        waitingRoomService.complete(userId, flashSale);
+        flashSaleSnapshotService.recordSale(flashSale);
+        if (stockReservationService.getRemaining(flashSale) == 0) {
+            flagIfSoldOut(flashSale);
         }
+    }
 
-        // Deduct user balance
-        user.setBalance(user.getBalance().subtract(lockedFlashSale.getFlashPrice()));
-        userRepository.save(user);
-
-        // Increment sold quantity
-        lockedFlashSale.incrementSoldQuantity();
-        flashSaleConfigRepository.save(lockedFlashSale);
-
-        // Decrease product stock
-        product.setStockQuantity(product.getStockQuantity() - 1);
-        productRepository.save(product);
-
-        // Create order
-        FlashSaleOrder order = FlashSaleOrder.builder()
-                .userId(user.getId())
-                .productId(product.getId())
-                .flashSaleConfigId(lockedFlashSale.getId())
-                .amount(lockedFlashSale.getFlashPrice())
-                .status(FlashSaleOrder.OrderStatus.COMPLETED)
-                .orderedAt(LocalDateTime.now())
-                .build();
-        order = flashSaleOrderRepository.save(order);
-
-        // Sync inventory (idempotent)
-        inventorySyncService.syncInventoryForOrder(order.getId(), product.getId());
-        log.info("Flash sale order created: orderId={}, userId={}, productId={}, amount={}",
-                order.getId(), user.getId(), product.getId(), order.getAmount());
-
-        return PurchaseResponse.builder()
-                .orderId(order.getId())
-                .productId(product.getId())
-                .productName(product.getName())
-                .amount(order.getAmount())
-                .remainingBalance(user.getBalance())
-                .status(order.getStatus().toString())
-                .orderedAt(order.getOrderedAt())
-                .message("Purchase successful!")
-                .build();
+    private void flagIfSoldOut(FlashSaleConfig flashSale) {
+        // Every unit is reserved, but only the database knows whether the last one has committed
+        flashSaleConfigRepository.findById(flashSale.getId())
+                .filter(current -> !current.hasStock())
+                .ifPresent(current -> soldOutRegistryService.markSoldOut(flashSale));
     }
 
-    private FlashSaleProductResponse mapToResponse(FlashSaleConfig config) {
-        Product product = config.getProduct();
-        BigDecimal discount = product.getRegularPrice()
-                .subtract(config.getFlashPrice())
-                .divide(product.getRegularPrice(), 4, RoundingMode.HALF_UP)
-                .multiply(new BigDecimal("100"));
-        LocalDateTime endDateTime = LocalDateTime.of(config.getSaleDate(), config.getEndTime());
-        long remainingSeconds = Duration.between(LocalDateTime.now(), endDateTime).getSeconds();
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
+        return userDetailsService.getUserIdByUsername(authentication.getName());
+    }
 
-        return FlashSaleProductResponse.builder()
-                .flashSaleId(config.getId())
-                .productId(product.getId())
-                .productName(product.getName())
-                .description(product.getDescription())
-                .regularPrice(product.getRegularPrice())
-                .flashPrice(config.getFlashPrice())
-                .discountPercentage(discount.setScale(2, RoundingMode.HALF_UP))
-                .availableQuantity(config.getFlashQuantity() - config.getSoldQuantity())
-                .totalQuantity(config.getFlashQuantity())
-                .startTime(config.getStartTime())
-                .endTime(config.getEndTime())
-                .remainingSeconds(Math.max(0, remainingSeconds))
-                .build();
+    private PurchaseStrategy resolvePurchaseStrategy(FlashSaleConfig flashSale) {
+        FlashSaleConfig.PurchaseMode mode = flashSale.getPurchaseMode() != null ? flashSale.getPurchaseMode() : purchaseMode;
+        return purchaseStrategies.stream()
+                .filter(strategy -> strategy.getMode() == mode)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No purchase strategy for mode: " + mode));
     }
 }
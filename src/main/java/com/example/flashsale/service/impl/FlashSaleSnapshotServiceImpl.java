@@ -0,0 +1,196 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.FlashSaleProductResponse;
+import com.example.flashsale.dto.FlashSaleScheduleRow;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.service.FlashSaleSnapshotService;
+import com.example.flashsale.service.SoldOutRegistryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class FlashSaleSnapshotServiceImpl implements FlashSaleSnapshotService {
+    private final FlashSaleConfigRepository flashSaleConfigRepository;
+    private final SoldOutRegistryService soldOutRegistryService;
+    private final Duration maxAge;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private final AtomicLong version = new AtomicLong();
+
+    public FlashSaleSnapshotServiceImpl(FlashSaleConfigRepository flashSaleConfigRepository,
+                                        SoldOutRegistryService soldOutRegistryService,
+                                        @Value("${flash-sale.listing.max-age-seconds:30}") long maxAgeSeconds) {
+        this.flashSaleConfigRepository = flashSaleConfigRepository;
+        this.soldOutRegistryService = soldOutRegistryService;
+        this.maxAge = Duration.ofSeconds(maxAgeSeconds);
+    }
+
+    /**
+     * Returns the flash sales active at the given time from the in-memory snapshot.
+     * Only the remaining quantity and remaining seconds are computed per call, and sold out sales are dropped.
+     * @param now the current date and time
+     * @return list of active flash sale products, or empty list if none are active
+     */
+    @Override
+    public List<FlashSaleProductResponse> getActiveFlashSaleProducts(LocalDateTime now) {
+        Snapshot current = snapshotAt(now);
+        List<FlashSaleProductResponse> products = new ArrayList<>(current.entries.size());
+        for (SnapshotEntry entry : current.entries) {
+            int available = entry.row.getFlashQuantity() - entry.soldQuantity.get();
+            if (available <= 0 || soldOutRegistryService.isSoldOut(entry.row.getProductId(), entry.row.getFlashSaleId())) {
+                continue;
+            }
+            long remainingSeconds = Duration.between(now, LocalDateTime.of(entry.row.getSaleDate(), entry.row.getEndTime())).getSeconds();
+            products.add(entry.template.toBuilder()
+                    .availableQuantity(available)
+                    .remainingSeconds(Math.max(0, remainingSeconds))
+                    .build());
+        }
+        return products;
+    }
+
+    /**
+     * Patches the sold quantity of a sale in the current snapshot after a purchase commits.
+     * @param flashSale the flash sale configuration the purchase was made from
+     */
+    @Override
+    public void recordSale(FlashSaleConfig flashSale) {
+        SnapshotEntry entry = snapshot.entriesById.get(flashSale.getId());
+        if (entry != null) {
+            entry.soldQuantity.incrementAndGet();
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns a number that changes whenever the snapshot valid at the given time is rebuilt or patched,
+     * or a sale in it is flagged sold out or returns to stock.
+     * @param now the current date and time
+     * @return the snapshot version
+     */
+    @Override
+    public long getVersion(LocalDateTime now) {
+        snapshotAt(now);
+        // Both counters only grow, so their sum changes whenever either of them does
+        return version.get() + soldOutRegistryService.getVersion();
+    }
+
+    /**
+     * Rebuilds the snapshot ahead of readers once a sale starts or ends, or the snapshot reaches its maximum age.
+     */
+    @Scheduled(fixedDelayString = "${flash-sale.listing.refresh-check-millis:1000}")
+    public void refreshIfDue() {
+        snapshotAt(LocalDateTime.now());
+    }
+
+    private Snapshot snapshotAt(LocalDateTime now) {
+        Snapshot current = snapshot;
+        if (current.covers(now)) {
+            return current;
+        }
+        synchronized (this) {
+            // Another reader may have rebuilt it while this one waited
+            if (!snapshot.covers(now)) {
+                snapshot = build(now);
+                version.incrementAndGet();
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot build(LocalDateTime now) {
+        LocalDate today = now.toLocalDate();
+        LocalTime currentTime = now.toLocalTime();
+        List<FlashSaleScheduleRow> schedule = flashSaleConfigRepository.findScheduleForDate(today);
+
+        // Step 1: keep the sales running now, with everything but quantity and countdown precomputed
+        List<SnapshotEntry> entries = schedule.stream()
+                .filter(row -> !currentTime.isBefore(row.getStartTime()) && !currentTime.isAfter(row.getEndTime()))
+                .map(row -> new SnapshotEntry(row, toTemplate(row)))
+                .collect(Collectors.toList());
+
+        // Step 2: the snapshot stays valid until the next start or end in today's schedule, or midnight
+        LocalDateTime validUntil = LocalDateTime.of(today.plusDays(1), LocalTime.MIDNIGHT);
+        for (FlashSaleScheduleRow row : schedule) {
+            // A sale is still active at its end time, so it drops out just after it
+            for (LocalDateTime boundary : List.of(LocalDateTime.of(today, row.getStartTime()),
+                    LocalDateTime.of(today, row.getEndTime()).plusNanos(1))) {
+                if (boundary.isAfter(now) && boundary.isBefore(validUntil)) {
+                    validUntil = boundary;
+                }
+            }
+        }
+        LocalDateTime expiresAt = now.plus(maxAge);
+        Snapshot rebuilt = new Snapshot(validUntil.isBefore(expiresAt) ? validUntil : expiresAt, entries);
+        log.debug("Flash sale snapshot rebuilt: active={}, validUntil={}", entries.size(), rebuilt.validUntil);
+        return rebuilt;
+    }
+
+    private FlashSaleProductResponse toTemplate(FlashSaleScheduleRow row) {
+        BigDecimal discount = row.getRegularPrice()
+                .subtract(row.getFlashPrice())
+                .divide(row.getRegularPrice(), 4, RoundingMode.HALF_UP)
+                .multiply(new BigDecimal("100"));
+
+        return FlashSaleProductResponse.builder()
+                .flashSaleId(row.getFlashSaleId())
+                .productId(row.getProductId())
+                .productName(row.getProductName())
+                .description(row.getDescription())
+                .regularPrice(row.getRegularPrice())
+                .flashPrice(row.getFlashPrice())
+                .discountPercentage(discount.setScale(2, RoundingMode.HALF_UP))
+                .totalQuantity(row.getFlashQuantity())
+                .startTime(row.getStartTime())
+                .endTime(row.getEndTime())
+                .build();
+    }
+
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(LocalDateTime.MIN, List.of());
+
+        private final LocalDateTime validUntil;
+        private final List<SnapshotEntry> entries;
+        private final Map<Long, SnapshotEntry> entriesById;
+
+        private Snapshot(LocalDateTime validUntil, List<SnapshotEntry> entries) {
+            this.validUntil = validUntil;
+            this.entries = entries;
+            this.entriesById = entries.stream().collect(Collectors.toMap(entry -> entry.row.getFlashSaleId(), Function.identity()));
+        }
+
+        private boolean covers(LocalDateTime now) {
+            return now.isBefore(validUntil);
+        }
+    }
+
+    private static final class SnapshotEntry {
+        private final FlashSaleScheduleRow row;
+        private final FlashSaleProductResponse template;
+        private final AtomicInteger soldQuantity;
+
+        private SnapshotEntry(FlashSaleScheduleRow row, FlashSaleProductResponse template) {
+            this.row = row;
+            this.template = template;
+            this.soldQuantity = new AtomicInteger(row.getSoldQuantity());
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.FlashSaleDelta;
+import com.example.flashsale.dto.FlashSaleProductResponse;
+import com.example.flashsale.exception.ServiceUnavailableException;
+import com.example.flashsale.service.FlashSaleSnapshotService;
+import com.example.flashsale.service.FlashSaleStreamService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@Slf4j
+public class FlashSaleStreamServiceImpl implements FlashSaleStreamService {
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+    private final FlashSaleSnapshotService flashSaleSnapshotService;
+    private final ObjectMapper objectMapper;
+    private final long emitterTimeoutMillis;
+    private final int maxSubscribers;
+    private final long writeTimeoutNanos;
+    private final long heartbeatNanos;
+    private final int fanOutThreads;
+    private final ThreadPoolExecutor fanOutExecutor;
+    // Threads added to stand in for ones still stuck in a write of an evicted subscriber
+    private int spareThreads;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // Only touched by the scheduled tick, which never runs concurrently with itself
+    private Map<Long, SaleState> states = new HashMap<>();
+    private long lastVersion = -1;
+    private long eventId;
+    private Set<ResponseBodyEmitter.DataWithMediaType> fullStateEvent;
+    private long lastSentNanos = System.nanoTime();
+
+    public FlashSaleStreamServiceImpl(FlashSaleSnapshotService flashSaleSnapshotService,
+                                      ObjectMapper objectMapper,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${flash-sale.stream.timeout-millis:1800000}") long emitterTimeoutMillis,
+                                      @Value("${flash-sale.stream.max-subscribers:10000}") int maxSubscribers,
+                                      @Value("${flash-sale.stream.write-timeout-millis:5000}") long writeTimeoutMillis,
+                                      @Value("${flash-sale.stream.heartbeat-seconds:15}") long heartbeatSeconds,
+                                      @Value("${flash-sale.stream.fan-out-threads:4}") int fanOutThreads) {
+        this.flashSaleSnapshotService = flashSaleSnapshotService;
+        this.objectMapper = objectMapper;
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+        this.maxSubscribers = maxSubscribers;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+        this.heartbeatNanos = TimeUnit.SECONDS.toNanos(heartbeatSeconds);
+        this.fanOutThreads = fanOutThreads;
+        AtomicInteger threadCounter = new AtomicInteger();
+        // A subscriber never has more than one send queued, so the queue cannot outgrow the subscriber limit
+        this.fanOutExecutor = new ThreadPoolExecutor(fanOutThreads, fanOutThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxSubscribers)), runnable -> {
+                    Thread thread = new Thread(runnable, "flash-sale-stream-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Gauge.builder("flashsale.stream.subscribers", subscribers, Set::size)
+                .description("Clients connected to the live flash sale stream")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a Server-Sent Events stream of flash sale state. The first event is a {@code snapshot} of every
+     * running sale, followed by {@code delta} events carrying only the sales that changed since the last tick.
+     * @return SseEmitter the controller returns to keep the response open
+     * @throws ServiceUnavailableException if the subscriber limit is reached
+     */
+    @Override
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ServiceUnavailableException("Too many live stream subscribers, please poll the current products instead");
+        }
+        return subscribe(new SseEmitter(emitterTimeoutMillis));
+    }
+
+    /**
+     * Registers an emitter as a stream subscriber.
+     * @param emitter emitter the events are written to
+     * @return the same emitter
+     */
+    SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Publishes the changes of the last tick. Purchases, sale starts and sale ends that happen within one tick
+     * are coalesced into a single delta, encoded once and shared by every subscriber.
+     */
+    @Scheduled(fixedDelayString = "${flash-sale.stream.tick-millis:250}")
+    public void publishTick() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        // Step 1: diff the snapshot against the last published state only when it changed
+        LocalDateTime now = LocalDateTime.now();
+        long version = flashSaleSnapshotService.getVersion(now);
+        Set<ResponseBodyEmitter.DataWithMediaType> deltaEvent = null;
+        if (version != lastVersion) {
+            lastVersion = version;
+            List<FlashSaleDelta> deltas = diff(now);
+            if (!deltas.isEmpty()) {
+                fullStateEvent = null;
+                deltaEvent = encode("delta", deltas);
+            }
+        }
+
+        // Step 2: keep idle connections alive so proxies and clients notice dead ones
+        long nowNanos = System.nanoTime();
+        boolean heartbeatDue = deltaEvent == null && nowNanos - lastSentNanos >= heartbeatNanos;
+        if (deltaEvent != null || heartbeatDue) {
+            lastSentNanos = nowNanos;
+        }
+
+        // Step 3: hand the shared event to every subscriber that is not still busy with an earlier one
+        for (Subscriber subscriber : subscribers) {
+            dispatch(subscriber, deltaEvent != null ? deltaEvent : heartbeatDue ? HEARTBEAT : null, nowNanos);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * Computes what changed since the previous call and records the new state.
+     * @param now the current date and time
+     * @return the deltas to publish, or empty list if nothing changed
+     */
+    List<FlashSaleDelta> diff(LocalDateTime now) {
+        Map<Long, SaleState> next = new HashMap<>();
+        List<FlashSaleDelta> deltas = new ArrayList<>();
+
+        for (FlashSaleProductResponse product : flashSaleSnapshotService.getActiveFlashSaleProducts(now)) {
+            SaleState previous = states.get(product.getFlashSaleId());
+            SaleState current = new SaleState(product, now.toLocalDate(), product.getAvailableQuantity(), false);
+            next.put(product.getFlashSaleId(), current);
+            if (previous == null) {
+                deltas.add(current.toDelta("STARTED"));
+            } else if (previous.soldOut || previous.available != current.available) {
+                deltas.add(current.toDelta("UPDATED"));
+            }
+        }
+
+        // The snapshot drops sales that sold out as well as those that ended, the end time tells them apart
+        for (SaleState previous : states.values()) {
+            if (next.containsKey(previous.product.getFlashSaleId())) {
+                continue;
+            }
+            if (previous.hasEnded(now)) {
+                deltas.add(previous.toDelta("ENDED"));
+            } else {
+                SaleState soldOut = new SaleState(previous.product, previous.saleDate, 0, true);
+                next.put(previous.product.getFlashSaleId(), soldOut);
+                if (!previous.soldOut) {
+                    deltas.add(soldOut.toDelta("UPDATED"));
+                }
+            }
+        }
+
+        states = next;
+        return deltas;
+    }
+
+    private void dispatch(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> event, long nowNanos) {
+        if (!subscriber.sending.compareAndSet(false, true)) {
+            // The previous send is still queued or blocked on a slow client, it gets a full snapshot once it catches up
+            subscriber.stale = true;
+            long startedNanos = subscriber.writeStartedNanos;
+            if (startedNanos != 0 && nowNanos - startedNanos > writeTimeoutNanos) {
+                evict(subscriber);
+            }
+            return;
+        }
+
+        Set<ResponseBodyEmitter.DataWithMediaType> payload = subscriber.stale ? fullState() : event;
+        if (payload == null) {
+            subscriber.sending.set(false);
+            return;
+        }
+        subscriber.stale = false;
+        try {
+            subscriber.inFlight = fanOutExecutor.submit(() -> send(subscriber, payload));
+        } catch (RejectedExecutionException e) {
+            subscriber.stale = true;
+            subscriber.sending.set(false);
+        }
+    }
+
+    private void send(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> payload) {
+        subscriber.writeStartedNanos = System.nanoTime();
+        try {
+            subscriber.emitter.send(payload);
+        } catch (IOException | IllegalStateException e) {
+            // Client went away, the container reports the error through the emitter callbacks as well
+            subscribers.remove(subscriber);
+        } finally {
+            subscriber.writeStartedNanos = 0;
+            subscriber.sending.set(false);
+            if (subscriber.evicted) {
+                releaseSpareThread();
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Disconnects a subscriber whose write has been blocked longer than the write timeout. The emitter holds its
+     * write lock for the whole blocked write, so it is only completed by the fan-out thread once the write returns.
+     * @param subscriber the subscriber stuck in a write
+     */
+    private void evict(Subscriber subscriber) {
+        if (subscriber.evicted) {
+            return;
+        }
+        log.info("Dropping slow stream subscriber blocked in a write for over {} ms",
+                TimeUnit.NANOSECONDS.toMillis(writeTimeoutNanos));
+        subscriber.evicted = true;
+        subscribers.remove(subscriber);
+        addSpareThread();
+        // Interrupting the fan-out thread aborts the write on containers that honour it
+        subscriber.inFlight.cancel(true);
+    }
+
+    private synchronized void addSpareThread() {
+        if (spareThreads >= fanOutThreads) {
+            return;
+        }
+        spareThreads++;
+        fanOutExecutor.setMaximumPoolSize(fanOutThreads + spareThreads);
+        fanOutExecutor.setCorePoolSize(fanOutThreads + spareThreads);
+    }
+
+    private synchronized void releaseSpareThread() {
+        if (spareThreads == 0) {
+            return;
+        }
+        spareThreads--;
+        fanOutExecutor.setCorePoolSize(fanOutThreads + spareThreads);
+        fanOutExecutor.setMaximumPoolSize(fanOutThreads + spareThreads);
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> fullState() {
+        if (fullStateEvent == null) {
+            List<FlashSaleDelta> sales = states.values().stream()
+                    .map(state -> state.toDelta("ACTIVE"))
+                    .toList();
+            fullStateEvent = encode("snapshot", sales);
+        }
+        return fullStateEvent;
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> encode(String name, List<FlashSaleDelta> payload) {
+        try {
+            return SseEmitter.event()
+                    .id(Long.toString(++eventId))
+                    .name(name)
+                    .data(objectMapper.writeValueAsString(payload))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode flash sale stream event", e);
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean stale = true;
+        private volatile long writeStartedNanos;
+        private volatile Future<?> inFlight;
+        private volatile boolean evicted;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    private static final class SaleState {
+        private final FlashSaleProductResponse product;
+        private final LocalDate saleDate;
+        private final int available;
+        private final boolean soldOut;
+
+        private SaleState(FlashSaleProductResponse product, LocalDate saleDate, int available, boolean soldOut) {
+            this.product = product;
+            this.saleDate = saleDate;
+            this.available = available;
+            this.soldOut = soldOut;
+        }
+
+        private boolean hasEnded(LocalDateTime now) {
+            return !now.toLocalDate().equals(saleDate) || now.toLocalTime().isAfter(product.getEndTime());
+        }
+
+        private FlashSaleDelta toDelta(String state) {
+            return FlashSaleDelta.builder()
+                    .flashSaleId(product.getFlashSaleId())
+                    .productId(product.getProductId())
+                    .available(available)
+                    .soldOut(soldOut)
+                    .state(state)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.OtpVerification;
+import com.example.flashsale.repository.OtpVerificationRepository;
+import com.example.flashsale.service.OtpStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps issued OTPs in memory, one per contact, and reclaims expired ones with a hashed timing wheel.
+ * Codes only live on the instance that issued them, so verification must reach the same instance.
+ * Opt in with {@code otp.store.type=memory}, the default is {@link DatabaseOtpStore}.
+ */
+@Service
+@ConditionalOnProperty(name = "otp.store.type", havingValue = "memory")
+@Slf4j
+public class InMemoryOtpStore implements OtpStore {
+    private final OtpVerificationRepository otpRepository;
+    private final boolean auditWriteThrough;
+    private final int maxAttempts;
+    private final long tickMillis;
+
+    private final ConcurrentMap<String, OtpEntry> entriesByContact = new ConcurrentHashMap<>();
+    private final Queue<OtpEntry>[] wheel;
+    private long lastTick;
+
+    @SuppressWarnings("unchecked")
+    public InMemoryOtpStore(OtpVerificationRepository otpRepository,
+                            @Value("${otp.store.audit-write-through:false}") boolean auditWriteThrough,
+                            @Value("${otp.store.max-attempts:5}") int maxAttempts,
+                            @Value("${otp.store.wheel-slots:512}") int wheelSlots,
+                            @Value("${otp.store.tick-millis:1000}") long tickMillis) {
+        this.otpRepository = otpRepository;
+        this.auditWriteThrough = auditWriteThrough;
+        this.maxAttempts = maxAttempts;
+        this.tickMillis = tickMillis;
+        this.wheel = new Queue[wheelSlots];
+        for (int i = 0; i < wheelSlots; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastTick = System.currentTimeMillis() / tickMillis - 1;
+    }
+
+    /**
+     * Stores a newly issued OTP, replacing any earlier code sent to the same contact.
+     * Inside a transaction the code is only published once it commits, so a rolled back
+     * registration never leaves a usable OTP behind.
+     * @param otpVerification the OTP to store
+     */
+    @Override
+    public void save(OtpVerification otpVerification) {
+        if (auditWriteThrough) {
+            otpRepository.save(otpVerification);
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(otpVerification);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(otpVerification);
+            }
+        });
+    }
+
+    /**
+     * Checks the code against the OTP issued to the contact and removes it on success, so a code
+     * can only be used once. Too many wrong codes invalidate the OTP. Inside a transaction the code
+     * is put back if the transaction rolls back, unless a newer code was issued in the meantime.
+     * @param contactInfo the email or phone number the OTP was sent to
+     * @param otpCode the code entered by the user
+     * @param now the current date and time
+     * @return the consumed OTP, or empty if no matching valid OTP exists
+     */
+    @Override
+    public Optional<OtpVerification> consume(String contactInfo, String otpCode, LocalDateTime now) {
+        OtpEntry entry = entriesByContact.get(contactInfo);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (!entry.otp.getExpiresAt().isAfter(now)) {
+            entriesByContact.remove(contactInfo, entry);
+            return Optional.empty();
+        }
+
+        if (!MessageDigest.isEqual(entry.otp.getOtpCode().getBytes(StandardCharsets.UTF_8),
+                otpCode.getBytes(StandardCharsets.UTF_8))) {
+            if (entry.failedAttempts.incrementAndGet() >= maxAttempts && entriesByContact.remove(contactInfo, entry)) {
+                log.info("OTP invalidated after {} failed attempts: contact={}", maxAttempts, contactInfo);
+            }
+            return Optional.empty();
+        }
+
+        // Compare-and-remove, of two concurrent verifications with the right code only one wins
+        if (!entriesByContact.remove(contactInfo, entry)) {
+            return Optional.empty();
+        }
+        entry.otp.setIsUsed(true);
+        if (auditWriteThrough) {
+            otpRepository.save(entry.otp);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        restore(entry);
+                    }
+                }
+            });
+        }
+        return Optional.of(entry.otp);
+    }
+
+    @Scheduled(fixedRateString = "${otp.store.tick-millis:1000}")
+    public void expireDue() {
+        expireDue(System.currentTimeMillis());
+    }
+
+    /**
+     * Sweeps the wheel slots of every tick since the last sweep and drops the OTPs that expired.
+     * @param nowMillis the current time in epoch milliseconds
+     * @return number of OTPs removed
+     */
+    synchronized int expireDue(long nowMillis) {
+        long currentTick = nowMillis / tickMillis;
+        // After a long pause one revolution visits every slot, sweeping further adds nothing
+        long fromTick = Math.max(lastTick + 1, currentTick - wheel.length + 1);
+        int expired = 0;
+        for (long tick = fromTick; tick <= currentTick; tick++) {
+            Queue<OtpEntry> bucket = wheel[slot(tick)];
+            for (int remaining = bucket.size(); remaining > 0; remaining--) {
+                OtpEntry entry = bucket.poll();
+                if (entry == null) {
+                    break;
+                }
+                if (entriesByContact.get(entry.otp.getContactInfo()) != entry) {
+                    // Already consumed, invalidated or replaced by a newer code
+                    continue;
+                }
+                if (entry.deadlineMillis <= nowMillis) {
+                    if (entriesByContact.remove(entry.otp.getContactInfo(), entry)) {
+                        expired++;
+                    }
+                } else {
+                    // Due in a later revolution of the wheel
+                    bucket.add(entry);
+                }
+            }
+        }
+        lastTick = currentTick;
+        return expired;
+    }
+
+    private void publish(OtpVerification otpVerification) {
+        OtpEntry entry = new OtpEntry(otpVerification, toEpochMillis(otpVerification.getExpiresAt()));
+        entriesByContact.put(otpVerification.getContactInfo(), entry);
+        // The slot after the deadline's tick, so the entry has expired by the time its slot is swept
+        wheel[slot(entry.deadlineMillis / tickMillis + 1)].add(entry);
+    }
+
+    private void restore(OtpEntry entry) {
+        entry.otp.setIsUsed(false);
+        if (entriesByContact.putIfAbsent(entry.otp.getContactInfo(), entry) == null) {
+            // Its wheel slot may have been swept while it was removed
+            wheel[slot(entry.deadlineMillis / tickMillis + 1)].add(entry);
+        }
+    }
+
+    private int slot(long tick) {
+        return (int) Math.floorMod(tick, (long) wheel.length);
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static final class OtpEntry {
+        private final OtpVerification otp;
+        private final long deadlineMillis;
+        private final AtomicInteger failedAttempts = new AtomicInteger();
+
+        private OtpEntry(OtpVerification otp, long deadlineMillis) {
+            this.otp = otp;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.InventorySyncLog;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of inventory changes, stored as fixed-size binary records in memory-mapped segment files.
+ * Records carry a sequence number and a checksum, so after a crash each segment is read up to its first torn
+ * or missing record. A checkpoint file holds the last sequence replayed into the database.
+ */
+@Slf4j
+public class InventoryJournal {
+    static final int RECORD_SIZE = 96;
+    static final int MAX_SYNC_TYPE_LENGTH = 20;
+    static final int MAX_REFERENCE_LENGTH = 32;
+
+    // Record layout, all values big-endian
+    private static final int SEQUENCE = 0;
+    private static final int PRODUCT_ID = 8;
+    private static final int SYNCED_AT = 16;
+    private static final int QUANTITY_CHANGE = 24;
+    private static final int STOCK_BEFORE = 28;
+    private static final int STOCK_AFTER = 32;
+    private static final int SYNC_TYPE = 36;
+    private static final int REFERENCE = SYNC_TYPE + 1 + MAX_SYNC_TYPE_LENGTH;
+    private static final int CHECKSUM = RECORD_SIZE - 4;
+
+    private static final String SEGMENT_PREFIX = "inventory-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final ConcurrentNavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_SIZE);
+
+    private Segment active;
+    private long nextSequence;
+    private volatile long checkpoint;
+
+    public InventoryJournal(Path directory, int recordsPerSegment) throws IOException {
+        if (recordsPerSegment <= 0 || (long) recordsPerSegment * RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment records must map to at most 2 GB: " + recordsPerSegment);
+        }
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        Files.createDirectories(directory);
+        this.checkpoint = readCheckpoint();
+
+        long lastSequence = checkpoint;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    long firstSequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                    Segment segment = Segment.recover(path, firstSequence);
+                    if (segment.count == 0) {
+                        // Opened but never written, or torn at its first record
+                        Files.delete(path);
+                        continue;
+                    }
+                    segments.put(firstSequence, segment);
+                    lastSequence = Math.max(lastSequence, segment.lastSequence());
+                }
+            }
+        }
+        this.nextSequence = lastSequence + 1;
+        // Always append to a fresh segment, slots after a torn record in an older one are never reused
+        this.active = createSegment(nextSequence);
+        log.info("Inventory journal opened: directory={}, segments={}, checkpoint={}, nextSequence={}",
+                directory, segments.size(), checkpoint, nextSequence);
+    }
+
+    /**
+     * Appends sync logs to the journal. Records reach the page cache immediately and disk on the next {@link #force()}.
+     * @param syncLogs the logs to append
+     * @return the sequence of the last appended record
+     * @throws IllegalArgumentException if a sync type or reference does not fit a record
+     */
+    public synchronized long append(List<InventorySyncLog> syncLogs) {
+        for (InventorySyncLog syncLog : syncLogs) {
+            if (active.count == recordsPerSegment) {
+                active.buffer.force();
+                active = createSegment(nextSequence);
+            }
+            encode(nextSequence, syncLog);
+            active.buffer.put(active.count * RECORD_SIZE, scratch.array());
+            // Published after the bytes, a reader that sees the count sees the record
+            active.count++;
+            nextSequence++;
+        }
+        return nextSequence - 1;
+    }
+
+    /**
+     * Reads records after a sequence, in sequence order.
+     * @param afterSequence the last sequence already seen
+     * @param maxRecords the maximum number of records to return
+     * @return the records, empty if none were appended after the sequence
+     */
+    public List<Entry> read(long afterSequence, int maxRecords) {
+        List<Entry> entries = new ArrayList<>();
+        byte[] record = new byte[RECORD_SIZE];
+        Long firstSequence = segments.floorKey(afterSequence + 1);
+        Map<Long, Segment> tail = firstSequence != null ? segments.tailMap(firstSequence) : segments;
+        for (Segment segment : tail.values()) {
+            int count = segment.count;
+            for (long slot = Math.max(0, afterSequence + 1 - segment.firstSequence); slot < count; slot++) {
+                segment.buffer.get((int) slot * RECORD_SIZE, record);
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                entries.add(new Entry(buffer.getLong(SEQUENCE), decode(buffer)));
+                if (entries.size() == maxRecords) {
+                    return entries;
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Flushes appended records of the active segment to disk.
+     */
+    public void force() {
+        Segment segment;
+        synchronized (this) {
+            segment = active;
+        }
+        segment.buffer.force();
+    }
+
+    /**
+     * Records that every record up to the sequence has been replayed and deletes segments that are fully replayed.
+     * @param sequence the last replayed sequence
+     */
+    public void checkpoint(long sequence) {
+        try {
+            Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            ByteBuffer buffer = ByteBuffer.allocate(12).putLong(sequence).putInt(checksum(sequence));
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(buffer.flip());
+                channel.force(true);
+            }
+            Files.move(temporary, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE);
+            checkpoint = sequence;
+
+            for (Segment segment : segments.values()) {
+                synchronized (this) {
+                    if (segment == active || segment.lastSequence() > sequence) {
+                        break;
+                    }
+                    segments.remove(segment.firstSequence);
+                }
+                Files.deleteIfExists(segment.path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write inventory journal checkpoint", e);
+        }
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    private Segment createSegment(long firstSequence) {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Segment segment = new Segment(path, firstSequence,
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE), 0);
+            segments.put(firstSequence, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create inventory journal segment " + path, e);
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() != 12) {
+            throw new IOException("Corrupt inventory journal checkpoint " + path);
+        }
+        long sequence = buffer.getLong();
+        if (buffer.getInt() != checksum(sequence)) {
+            throw new IOException("Corrupt inventory journal checkpoint " + path);
+        }
+        return sequence;
+    }
+
+    private void encode(long sequence, InventorySyncLog syncLog) {
+        byte[] syncType = ascii(syncLog.getSyncType(), MAX_SYNC_TYPE_LENGTH);
+        byte[] reference = ascii(syncLog.getReferenceId(), MAX_REFERENCE_LENGTH);
+        LocalDateTime syncedAt = syncLog.getSyncedAt() != null ? syncLog.getSyncedAt() : LocalDateTime.now();
+
+        ByteBuffer buffer = scratch;
+        Arrays.fill(buffer.array(), (byte) 0);
+        buffer.putLong(SEQUENCE, sequence)
+                .putLong(PRODUCT_ID, syncLog.getProductId())
+                .putLong(SYNCED_AT, Timestamp.valueOf(syncedAt).getTime())
+                .putInt(QUANTITY_CHANGE, syncLog.getQuantityChange())
+                .putInt(STOCK_BEFORE, syncLog.getStockBefore())
+                .putInt(STOCK_AFTER, syncLog.getStockAfter())
+                .put(SYNC_TYPE, (byte) syncType.length)
+                .put(SYNC_TYPE + 1, syncType)
+                .put(REFERENCE, (byte) reference.length)
+                .put(REFERENCE + 1, reference);
+        buffer.putInt(CHECKSUM, checksum(buffer.array()));
+    }
+
+    private static InventorySyncLog decode(ByteBuffer record) {
+        return InventorySyncLog.builder()
+                .productId(record.getLong(PRODUCT_ID))
+                .syncedAt(new Timestamp(record.getLong(SYNCED_AT)).toLocalDateTime())
+                .quantityChange(record.getInt(QUANTITY_CHANGE))
+                .stockBefore(record.getInt(STOCK_BEFORE))
+                .stockAfter(record.getInt(STOCK_AFTER))
+                .syncType(string(record, SYNC_TYPE))
+                .referenceId(record.get(REFERENCE) > 0 ? string(record, REFERENCE) : null)
+                .build();
+    }
+
+    private static byte[] ascii(String value, int maxLength) {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > maxLength) {
+            throw new IllegalArgumentException("Value too long for inventory journal record: " + value);
+        }
+        return bytes;
+    }
+
+    private static String string(ByteBuffer record, int offset) {
+        return new String(record.array(), offset + 1, record.get(offset), StandardCharsets.US_ASCII);
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record, 0, CHECKSUM);
+        return (int) crc.getValue();
+    }
+
+    private static int checksum(long sequence) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(8).putLong(sequence).flip());
+        return (int) crc.getValue();
+    }
+
+    public record Entry(long sequence, InventorySyncLog syncLog) {
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long firstSequence;
+        private final MappedByteBuffer buffer;
+        private volatile int count;
+
+        private Segment(Path path, long firstSequence, MappedByteBuffer buffer, int count) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.buffer = buffer;
+            this.count = count;
+        }
+
+        private long lastSequence() {
+            return firstSequence + count - 1;
+        }
+
+        /**
+         * Maps an existing segment and counts its records up to the first slot that is empty, torn or out of sequence.
+         */
+        private static Segment recover(Path path, long firstSequence) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int slots = (int) (channel.size() / RECORD_SIZE);
+                byte[] record = new byte[RECORD_SIZE];
+                int count = 0;
+                while (count < slots) {
+                    buffer.get(count * RECORD_SIZE, record);
+                    ByteBuffer wrapped = ByteBuffer.wrap(record);
+                    if (wrapped.getLong(SEQUENCE) != firstSequence + count || wrapped.getInt(CHECKSUM) != checksum(record)) {
+                        break;
+                    }
+                    count++;
+                }
+                if (count < slots) {
+                    log.info("Inventory journal segment ends before its capacity: path={}, records={}", path, count);
+                }
+                return new Segment(path, firstSequence, buffer, count);
+            }
+        }
+    }
+}
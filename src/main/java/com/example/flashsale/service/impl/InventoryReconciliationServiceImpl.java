@@ -0,0 +1,359 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.FlashSaleSoldTotals;
+import com.example.flashsale.dto.InventoryDrift;
+import com.example.flashsale.dto.InventoryReconciliationReport;
+import com.example.flashsale.dto.ProductInventoryTotals;
+import com.example.flashsale.dto.ProductSyncLogTotals;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.repository.FlashSaleOrderRepository;
+import com.example.flashsale.repository.InventorySyncLogRepository;
+import com.example.flashsale.repository.ProductRepository;
+import com.example.flashsale.service.InventoryReconciliationService;
+import com.example.flashsale.service.InventorySyncService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Checks that product stock, sold quantities, completed orders and inventory sync logs agree. Products are
+ * checked in partitions, each partition aggregated by the database from one read-only snapshot, and partitions
+ * run in parallel on a small pool. Incremental runs only check products with orders or sync logs written since
+ * the previous run, plus products that drifted or still had logs pending. "Since" is a time window reaching
+ * settle-seconds before the previous run started, not an id: ids are not ordered across instances, so an order
+ * with a lower id than one already seen can still commit later.
+ */
+@Service
+@Slf4j
+public class InventoryReconciliationServiceImpl implements InventoryReconciliationService {
+    static final String DRIFT_SOLD_QUANTITY = "SOLD_QUANTITY";
+    static final String DRIFT_MISSING_SYNC_LOG = "MISSING_SYNC_LOG";
+    static final String DRIFT_ORPHAN_SYNC_LOG = "ORPHAN_SYNC_LOG";
+    static final String DRIFT_STOCK = "STOCK";
+
+    private final ProductRepository productRepository;
+    private final FlashSaleConfigRepository flashSaleConfigRepository;
+    private final FlashSaleOrderRepository flashSaleOrderRepository;
+    private final InventorySyncLogRepository syncLogRepository;
+    private final InventorySyncService inventorySyncService;
+    private final TransactionTemplate snapshotTemplate;
+    private final TransactionTemplate repairTemplate;
+    private final ExecutorService executor;
+    private final int partitionSize;
+    private final int threads;
+    private final long settleSeconds;
+    private final boolean autoRepair;
+    private final Counter repairedCounter;
+
+    // Start of the last run, null until this instance has done a full scan
+    private LocalDateTime lastStartedAt;
+    private Set<Long> recheckProductIds = Set.of();
+    private volatile InventoryReconciliationReport lastReport;
+
+    public InventoryReconciliationServiceImpl(ProductRepository productRepository,
+                                              FlashSaleConfigRepository flashSaleConfigRepository,
+                                              FlashSaleOrderRepository flashSaleOrderRepository,
+                                              InventorySyncLogRepository syncLogRepository,
+                                              InventorySyncService inventorySyncService,
+                                              PlatformTransactionManager transactionManager,
+                                              MeterRegistry meterRegistry,
+                                              @Value("${flash-sale.reconciliation.partition-size:500}") int partitionSize,
+                                              @Value("${flash-sale.reconciliation.threads:2}") int threads,
+                                              @Value("${flash-sale.reconciliation.settle-seconds:60}") long settleSeconds,
+                                              @Value("${flash-sale.reconciliation.auto-repair:false}") boolean autoRepair) {
+        this.productRepository = productRepository;
+        this.flashSaleConfigRepository = flashSaleConfigRepository;
+        this.flashSaleOrderRepository = flashSaleOrderRepository;
+        this.syncLogRepository = syncLogRepository;
+        this.inventorySyncService = inventorySyncService;
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        // All totals of a partition come from one consistent read, without locking any row
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+        this.repairTemplate = new TransactionTemplate(transactionManager);
+        this.partitionSize = partitionSize;
+        this.threads = threads;
+        this.settleSeconds = settleSeconds;
+        this.autoRepair = autoRepair;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "inventory-reconciliation-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.repairedCounter = Counter.builder("flashsale.reconciliation.repaired")
+                .description("Inventory drifts repaired by the reconciliation job")
+                .register(meterRegistry);
+        Gauge.builder("flashsale.reconciliation.drift", this,
+                        service -> service.lastReport != null ? service.lastReport.getDrifts().size() : 0)
+                .description("Inventory drifts found by the last reconciliation run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${flash-sale.reconciliation.interval-millis:300000}",
+            initialDelayString = "${flash-sale.reconciliation.interval-millis:300000}")
+    public void runIncremental() {
+        reconcileChanges();
+    }
+
+    @Scheduled(cron = "${flash-sale.reconciliation.full-scan-cron:0 0 3 * * *}")
+    public void runFullScan() {
+        reconcileAll();
+    }
+
+    /**
+     * Checks the products with orders or sync logs written since the previous run. The first run on an
+     * instance has no previous run and checks every product.
+     * @return the report of this run
+     */
+    @Override
+    public synchronized InventoryReconciliationReport reconcileChanges() {
+        if (lastStartedAt == null) {
+            return reconcileAll();
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        // Step 1: Collect products touched since the last run. Orders are stamped before they commit and on
+        // another instance's clock, the settle window covers both
+        LocalDateTime since = lastStartedAt.minusSeconds(settleSeconds);
+        Set<Long> productIds = new TreeSet<>(recheckProductIds);
+        productIds.addAll(flashSaleOrderRepository.findProductIdsWithOrdersSince(since));
+        productIds.addAll(syncLogRepository.findProductIdsWithLogsSince(since));
+
+        // Step 2: Check them in partitions
+        List<Long> ordered = new ArrayList<>(productIds);
+        List<List<Long>> partitions = new ArrayList<>();
+        for (int from = 0; from < ordered.size(); from += partitionSize) {
+            partitions.add(ordered.subList(from, Math.min(from + partitionSize, ordered.size())));
+        }
+        InventoryReconciliationReport report = run("INCREMENTAL", startedAt, partitions);
+        lastStartedAt = startedAt;
+        return report;
+    }
+
+    /**
+     * Checks every product, reading product IDs in keyset pages so no table is loaded as a whole.
+     * @return the report of this run
+     */
+    @Override
+    public synchronized InventoryReconciliationReport reconcileAll() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        InventoryReconciliationReport report = run("FULL", startedAt, KeysetPages::new);
+        lastStartedAt = startedAt;
+        return report;
+    }
+
+    @Override
+    public InventoryReconciliationReport getLastReport() {
+        return lastReport;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private InventoryReconciliationReport run(String scope, LocalDateTime startedAt, Iterable<List<Long>> partitions) {
+        long startNanos = System.nanoTime();
+        LocalDateTime settledBefore = startedAt.minusSeconds(settleSeconds);
+        // At most two partitions per thread are in flight, pages are read only as fast as they are checked
+        Semaphore inFlight = new Semaphore(threads * 2);
+        List<Future<PartitionResult>> futures = new ArrayList<>();
+        try {
+            for (List<Long> partition : partitions) {
+                inFlight.acquire();
+                futures.add(executor.submit(() -> {
+                    try {
+                        return checkPartition(partition, settledBefore);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+
+            List<InventoryDrift> drifts = new ArrayList<>();
+            Set<Long> recheck = new HashSet<>();
+            int productsChecked = 0;
+            for (Future<PartitionResult> future : futures) {
+                PartitionResult result = future.get();
+                drifts.addAll(result.drifts());
+                recheck.addAll(result.recheckProductIds());
+                productsChecked += result.productsChecked();
+            }
+            recheckProductIds = recheck;
+
+            InventoryReconciliationReport report = InventoryReconciliationReport.builder()
+                    .scope(scope)
+                    .startedAt(startedAt)
+                    .durationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+                    .productsChecked(productsChecked)
+                    .drifts(drifts)
+                    .build();
+            lastReport = report;
+            log.info("Inventory reconciliation finished: scope={}, products={}, drifts={}, durationMillis={}",
+                    scope, productsChecked, drifts.size(), report.getDurationMillis());
+            return report;
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Inventory reconciliation interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Inventory reconciliation failed", e.getCause());
+        }
+    }
+
+    /**
+     * Compares the totals of one partition of products and repairs what can be repaired safely.
+     */
+    PartitionResult checkPartition(List<Long> productIds, LocalDateTime settledBefore) {
+        // Step 1: Read all totals from one snapshot
+        PartitionTotals totals = snapshotTemplate.execute(status -> new PartitionTotals(
+                flashSaleOrderRepository.findInventoryTotals(productIds, settledBefore),
+                syncLogRepository.findSyncLogTotals(productIds),
+                flashSaleConfigRepository.findSoldTotals(productIds)));
+
+        // Step 2: Compare them
+        List<InventoryDrift> drifts = new ArrayList<>();
+        Set<Long> recheck = new HashSet<>();
+        Map<Long, ProductSyncLogTotals> syncLogsByProduct = totals.syncLogs().stream()
+                .collect(Collectors.toMap(ProductSyncLogTotals::getProductId, Function.identity()));
+        for (ProductInventoryTotals product : totals.products()) {
+            ProductSyncLogTotals syncLogs = syncLogsByProduct.get(product.getProductId());
+            long syncedOrders = product.getCompletedOrders() - product.getUnsyncedOrders();
+            if (product.getSettledUnsyncedOrders() > 0) {
+                drifts.add(drift(product.getProductId(), null, DRIFT_MISSING_SYNC_LOG,
+                        syncedOrders + product.getSettledUnsyncedOrders(), syncedOrders));
+            } else if (syncLogs != null) {
+                // Each order not logged yet has taken one more unit than the lowest logged stock
+                long expectedStock = syncLogs.getLowestStockAfter() - product.getUnsyncedOrders();
+                if (product.getStockQuantity() != expectedStock) {
+                    drifts.add(drift(product.getProductId(), null, DRIFT_STOCK, expectedStock, (long) product.getStockQuantity()));
+                }
+            }
+            if (syncLogs != null && syncLogs.getSyncLogs() > syncedOrders) {
+                drifts.add(drift(product.getProductId(), null, DRIFT_ORPHAN_SYNC_LOG, syncedOrders, syncLogs.getSyncLogs()));
+            }
+            if (product.getUnsyncedOrders() > 0) {
+                recheck.add(product.getProductId());
+            }
+        }
+        for (FlashSaleSoldTotals flashSale : totals.flashSales()) {
+            long soldQuantity = flashSale.getSoldQuantity() != null ? flashSale.getSoldQuantity() : 0;
+            if (soldQuantity != flashSale.getCompletedOrders()) {
+                drifts.add(drift(flashSale.getProductId(), flashSale.getFlashSaleId(), DRIFT_SOLD_QUANTITY,
+                        flashSale.getCompletedOrders(), soldQuantity));
+            }
+        }
+
+        // Step 3: Repair or report
+        for (InventoryDrift drift : drifts) {
+            recheck.add(drift.getProductId());
+            if (autoRepair) {
+                drift.setRepaired(repair(drift, settledBefore));
+            }
+            log.warn("Inventory drift: type={}, productId={}, flashSaleId={}, expected={}, actual={}, repaired={}",
+                    drift.getType(), drift.getProductId(), drift.getFlashSaleId(),
+                    drift.getExpected(), drift.getActual(), drift.getRepaired());
+        }
+        return new PartitionResult(drifts, recheck, totals.products().size());
+    }
+
+    /**
+     * Repairs drifts with an unambiguous source of truth: sold quantities follow the completed orders and
+     * missing sync logs are written again. Stock and orphan logs are only reported.
+     */
+    private boolean repair(InventoryDrift drift, LocalDateTime settledBefore) {
+        boolean repaired = switch (drift.getType()) {
+            // Conditional on the observed value, a purchase committed since the snapshot makes it a no-op
+            case DRIFT_SOLD_QUANTITY -> repairTemplate.execute(status -> flashSaleConfigRepository.repairSoldQuantity(
+                    drift.getFlashSaleId(), drift.getActual().intValue(), drift.getExpected().intValue())) > 0;
+            case DRIFT_MISSING_SYNC_LOG -> {
+                List<Long> orderIds = flashSaleOrderRepository.findUnsyncedIdsByProductId(drift.getProductId(), settledBefore);
+                inventorySyncService.syncInventoryForBatch(drift.getProductId(), orderIds);
+                yield !orderIds.isEmpty();
+            }
+            default -> false;
+        };
+        if (repaired) {
+            repairedCounter.increment();
+        }
+        return repaired;
+    }
+
+    private static InventoryDrift drift(Long productId, Long flashSaleId, String type, long expected, long actual) {
+        return InventoryDrift.builder()
+                .productId(productId)
+                .flashSaleId(flashSaleId)
+                .type(type)
+                .expected(expected)
+                .actual(actual)
+                .repaired(false)
+                .build();
+    }
+
+    /**
+     * Product IDs in ascending keyset pages of the partition size, read lazily as partitions are submitted.
+     */
+    private final class KeysetPages implements Iterator<List<Long>> {
+        private long afterId = 0;
+        private List<Long> next;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = productRepository.findIdsAfter(afterId, PageRequest.of(0, partitionSize));
+                if (!next.isEmpty()) {
+                    afterId = next.get(next.size() - 1);
+                }
+            }
+            return !next.isEmpty();
+        }
+
+        @Override
+        public List<Long> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<Long> page = next;
+            next = null;
+            return page;
+        }
+    }
+
+    record PartitionResult(List<InventoryDrift> drifts, Set<Long> recheckProductIds, int productsChecked) {
+    }
+
+    private record PartitionTotals(List<ProductInventoryTotals> products, List<ProductSyncLogTotals> syncLogs,
+                                   List<FlashSaleSoldTotals> flashSales) {
+    }
+}
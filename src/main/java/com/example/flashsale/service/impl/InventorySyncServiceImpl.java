@@ -2,69 +2,230 @@ package com.example.flashsale.service.impl;
 
 import com.example.flashsale.entity.FlashSaleOrder;
 import com.example.flashsale.entity.InventorySyncLog;
-import com.example.flashsale.entity.Product;
 import com.example.flashsale.repository.FlashSaleOrderRepository;
-import com.example.flashsale.repository.InventorySyncLogRepository;
-import com.example.flashsale.repository.ProductRepository;
+import com.example.flashsale.service.InventorySyncLogWriter;
 import com.example.flashsale.service.InventorySyncService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Records inventory changes of flash sale orders outside the purchase transaction. Orders are queued in memory
+ * once their transaction commits and a background worker writes the sync logs in batches. Events lost to a
+ * full queue, a failed write or a restart are found again by scanning for completed orders without a log.
+ * Where the logs go is up to the {@link InventorySyncLogWriter}, the database directly or a local journal.
+ * The stock before and after each order is the stock level recorded on the order under the product lock,
+ * never derived from id order: ids are unique but not ordered across instances.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class InventorySyncServiceImpl implements InventorySyncService {
-    private final InventorySyncLogRepository syncLogRepository;
-    private final ProductRepository productRepository;
+    private final InventorySyncLogWriter syncLogWriter;
     private final FlashSaleOrderRepository flashSaleOrderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final BlockingQueue<SyncEvent> pending;
+    private final AtomicBoolean recoveryNeeded = new AtomicBoolean(true);
+    private final Counter droppedCounter;
 
     private static final String SYNC_TYPE_FLASH_SALE = "FLASH_SALE_ORDER";
 
+    public InventorySyncServiceImpl(InventorySyncLogWriter syncLogWriter,
+                                    FlashSaleOrderRepository flashSaleOrderRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${flash-sale.inventory-sync.queue-capacity:100000}") int queueCapacity,
+                                    @Value("${flash-sale.inventory-sync.batch-size:500}") int batchSize) {
+        this.syncLogWriter = syncLogWriter;
+        this.flashSaleOrderRepository = flashSaleOrderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        this.droppedCounter = Counter.builder("flashsale.inventory.sync.dropped")
+                .description("Inventory sync events that did not fit the queue and are left to the recovery scan")
+                .register(meterRegistry);
+        Gauge.builder("flashsale.inventory.sync.pending", pending, BlockingQueue::size)
+                .description("Committed orders waiting for their inventory sync log")
+                .register(meterRegistry);
+    }
+
     /**
-     * Synchronizes inventory for a flash sale order with idempotent processing.
+     * Queues the inventory sync log of a flash sale order. Inside a transaction the order is only queued
+     * once it commits, so the purchase transaction does no inventory logging and a rollback logs nothing.
      * @param orderId the ID of the flash sale order
      * @param productId the ID of the product purchased
-     * @throws RuntimeException if product or order is not found
      */
     @Override
-    @Transactional
     public void syncInventoryForOrder(Long orderId, Long productId) {
-        String referenceId = "ORDER_" + orderId;
+        afterCommit(List.of(new SyncEvent(orderId, productId)));
+    }
+
+    /**
+     * Queues one inventory sync log per order for a batch of orders committed together.
+     * @param productId the ID of the product purchased
+     * @param orderIds the IDs of the orders
+     */
+    @Override
+    public void syncInventoryForBatch(Long productId, List<Long> orderIds) {
+        List<SyncEvent> events = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            events.add(new SyncEvent(orderId, productId));
+        }
+        afterCommit(events);
+    }
+
+    @Scheduled(fixedDelayString = "${flash-sale.inventory-sync.flush-interval-millis:200}")
+    public void flush() {
+        drainPending();
+    }
+
+    /**
+     * Writes the queued sync logs, one multi-row insert per batch, until the queue is empty.
+     * @return number of events processed
+     */
+    int drainPending() {
+        int processed = 0;
+        List<SyncEvent> batch = new ArrayList<>(batchSize);
+        while (pending.drainTo(batch, batchSize) > 0) {
+            processed += batch.size();
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                // The orders are committed, the recovery scan writes their logs once the database is back
+                log.error("Inventory sync batch failed, left to recovery: events={}", batch.size(), e);
+                recoveryNeeded.set(true);
+                break;
+            }
+            batch.clear();
+        }
+        return processed;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${flash-sale.inventory-sync.recovery-interval-millis:60000}")
+    public void recover() {
+        recoverUnsynced();
+    }
+
+    /**
+     * Writes sync logs for completed orders that have none, after a restart or after events were dropped.
+     * @return number of orders found without a sync log
+     */
+    int recoverUnsynced() {
+        if (!recoveryNeeded.getAndSet(false)) {
+            return 0;
+        }
+        int recovered = 0;
+        long afterId = 0;
+        try {
+            List<FlashSaleOrder> unsynced;
+            do {
+                unsynced = flashSaleOrderRepository.findUnsyncedAfter(afterId, batchSize);
+                List<SyncEvent> batch = new ArrayList<>(unsynced.size());
+                for (FlashSaleOrder order : unsynced) {
+                    batch.add(new SyncEvent(order.getId(), order.getProductId()));
+                    afterId = order.getId();
+                }
+                write(batch);
+                recovered += batch.size();
+            } while (unsynced.size() == batchSize);
+        } catch (RuntimeException e) {
+            log.error("Inventory sync recovery failed, retrying on the next run", e);
+            recoveryNeeded.set(true);
+        }
+        if (recovered > 0) {
+            log.info("Inventory sync recovered: orders={}", recovered);
+        }
+        return recovered;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainPending();
+    }
 
-        // Check if already synced (idempotent check)
-        if (syncLogRepository.existsBySyncTypeAndReferenceId(SYNC_TYPE_FLASH_SALE, referenceId)) {
-            log.info("Inventory already synced for order: {}", orderId);
+    private void afterCommit(List<SyncEvent> events) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(events);
             return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(events);
+            }
+        });
+    }
 
-        // Get product
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found: " + productId));
+    private void enqueue(List<SyncEvent> events) {
+        for (SyncEvent event : events) {
+            // Never block a request thread that has already committed, the order itself is the durable record
+            if (!pending.offer(event)) {
+                droppedCounter.increment();
+                recoveryNeeded.set(true);
+            }
+        }
+    }
 
-        // Get order to verify
-        FlashSaleOrder order = flashSaleOrderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
-        if (order.getStatus() != FlashSaleOrder.OrderStatus.COMPLETED) {
-            log.warn("Order is not completed, skip sync: {}", orderId);
+    private void write(List<SyncEvent> events) {
+        if (events.isEmpty()) {
             return;
         }
+        // The same order may be queued twice, by its commit and by a repair
+        Map<Long, SyncEvent> eventsByOrder = new LinkedHashMap<>();
+        for (SyncEvent event : events) {
+            eventsByOrder.putIfAbsent(event.orderId(), event);
+        }
+
+        int written = transactionTemplate.execute(status -> {
+            Map<Long, FlashSaleOrder> completed = flashSaleOrderRepository.findCompletedByIdIn(eventsByOrder.keySet()).stream()
+                    .collect(Collectors.toMap(FlashSaleOrder::getId, Function.identity()));
+            List<InventorySyncLog> syncLogs = new ArrayList<>(eventsByOrder.size());
+            for (SyncEvent event : eventsByOrder.values()) {
+                FlashSaleOrder order = completed.get(event.orderId());
+                if (order == null) {
+                    log.warn("Order is not completed, skip sync: {}", event.orderId());
+                    continue;
+                }
+                syncLogs.add(InventorySyncLog.builder()
+                        .productId(event.productId())
+                        .quantityChange(-1)
+                        .stockBefore(order.getStockAfter() + 1)
+                        .stockAfter(order.getStockAfter())
+                        .syncType(SYNC_TYPE_FLASH_SALE)
+                        .referenceId("ORDER_" + order.getId())
+                        .build());
+            }
+            if (!syncLogs.isEmpty()) {
+                syncLogWriter.write(syncLogs);
+            }
+            return syncLogs.size();
+        });
+        log.debug("Inventory sync batch written: events={}, logs={}", events.size(), written);
+    }
 
-        int stockBefore = product.getStockQuantity() + 1; // +1 because already decreased
-        int stockAfter = product.getStockQuantity();
-        int quantityChange = -1; // Negative for decrease
-
-        // Create sync log
-        InventorySyncLog syncLog = InventorySyncLog.builder()
-                .productId(productId)
-                .quantityChange(quantityChange)
-                .stockBefore(stockBefore)
-                .stockAfter(stockAfter)
-                .syncType(SYNC_TYPE_FLASH_SALE)
-                .referenceId(referenceId)
-                .build();
-        syncLogRepository.save(syncLog);
-        log.info("Inventory synced: productId={}, orderId={}, stockBefore={}, stockAfter={}", productId, orderId, stockBefore, stockAfter);
+    private record SyncEvent(Long orderId, Long productId) {
     }
 }
@@ -0,0 +1,101 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.InventorySyncLog;
+import com.example.flashsale.repository.InventorySyncLogRepository;
+import com.example.flashsale.service.InventorySyncLogWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes sync logs to a local memory-mapped journal and replays the journal into inventory_sync_logs
+ * in large batches, so peak traffic costs a memory copy per change instead of an InnoDB insert.
+ * Replays resume from the journal checkpoint and are idempotent through uk_sync_reference.
+ */
+@Service
+@ConditionalOnProperty(name = "flash-sale.inventory-sync.writer", havingValue = "journal")
+@Slf4j
+public class JournalInventorySyncLogWriter implements InventorySyncLogWriter {
+    private final InventorySyncLogRepository syncLogRepository;
+    private final InventoryJournal journal;
+    private final int replayBatchSize;
+
+    @Autowired
+    public JournalInventorySyncLogWriter(InventorySyncLogRepository syncLogRepository,
+                                         @Value("${flash-sale.inventory-sync.journal.directory:data/inventory-journal}") String directory,
+                                         @Value("${flash-sale.inventory-sync.journal.segment-records:262144}") int segmentRecords,
+                                         @Value("${flash-sale.inventory-sync.journal.replay-batch-size:5000}") int replayBatchSize) throws IOException {
+        this(syncLogRepository, new InventoryJournal(Path.of(directory), segmentRecords), replayBatchSize);
+    }
+
+    JournalInventorySyncLogWriter(InventorySyncLogRepository syncLogRepository, InventoryJournal journal, int replayBatchSize) {
+        this.syncLogRepository = syncLogRepository;
+        this.journal = journal;
+        this.replayBatchSize = replayBatchSize;
+    }
+
+    /**
+     * Appends the sync logs to the journal, they reach the database on the next replay.
+     * @param syncLogs the logs to write
+     */
+    @Override
+    public void write(List<InventorySyncLog> syncLogs) {
+        journal.append(syncLogs);
+    }
+
+    @Scheduled(fixedDelayString = "${flash-sale.inventory-sync.journal.force-interval-millis:100}")
+    public void force() {
+        journal.force();
+    }
+
+    @Scheduled(fixedDelayString = "${flash-sale.inventory-sync.journal.replay-interval-millis:1000}")
+    public void replay() {
+        try {
+            replayPending();
+        } catch (RuntimeException e) {
+            // The checkpoint only moves after a batch is stored, the next run resumes from it
+            log.error("Inventory journal replay failed, checkpoint={}", journal.getCheckpoint(), e);
+        }
+    }
+
+    /**
+     * Inserts journal records after the checkpoint into inventory_sync_logs, advancing the checkpoint after each batch.
+     * @return number of records replayed
+     */
+    int replayPending() {
+        int replayed = 0;
+        List<InventoryJournal.Entry> entries;
+        do {
+            entries = journal.read(journal.getCheckpoint(), replayBatchSize);
+            if (entries.isEmpty()) {
+                break;
+            }
+            List<InventorySyncLog> syncLogs = new ArrayList<>(entries.size());
+            for (InventoryJournal.Entry entry : entries) {
+                syncLogs.add(entry.syncLog());
+            }
+            syncLogRepository.insertIgnoringDuplicates(syncLogs);
+            journal.checkpoint(entries.get(entries.size() - 1).sequence());
+            replayed += entries.size();
+        } while (entries.size() == replayBatchSize);
+        if (replayed > 0) {
+            log.debug("Inventory journal replayed: records={}, checkpoint={}", replayed, journal.getCheckpoint());
+        }
+        return replayed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        journal.force();
+        replay();
+    }
+}
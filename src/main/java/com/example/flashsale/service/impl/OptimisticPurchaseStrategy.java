@@ -0,0 +1,183 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.entity.FlashSaleOrder;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.repository.FlashSaleOrderRepository;
+import com.example.flashsale.repository.ProductRepository;
+import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.service.InventorySyncService;
+import com.example.flashsale.service.PurchaseIdempotencyService;
+import com.example.flashsale.service.PurchaseStrategy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Service
+@Slf4j
+public class OptimisticPurchaseStrategy implements PurchaseStrategy {
+    private final FlashSaleConfigRepository flashSaleConfigRepository;
+    private final FlashSaleOrderRepository flashSaleOrderRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final InventorySyncService inventorySyncService;
+    private final PurchaseIdempotencyService purchaseIdempotencyService;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter conflictCounter;
+    private final Counter retryCounter;
+    private final int defaultMaxRetries;
+    private final long backoffMillis;
+
+    public OptimisticPurchaseStrategy(FlashSaleConfigRepository flashSaleConfigRepository,
+                                      FlashSaleOrderRepository flashSaleOrderRepository,
+                                      ProductRepository productRepository,
+                                      UserRepository userRepository,
+                                      InventorySyncService inventorySyncService,
+                                      PurchaseIdempotencyService purchaseIdempotencyService,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${flash-sale.purchase.optimistic.max-retries:3}") int defaultMaxRetries,
+                                      @Value("${flash-sale.purchase.optimistic.backoff-millis:10}") long backoffMillis) {
+        this.flashSaleConfigRepository = flashSaleConfigRepository;
+        this.flashSaleOrderRepository = flashSaleOrderRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.inventorySyncService = inventorySyncService;
+        this.purchaseIdempotencyService = purchaseIdempotencyService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.conflictCounter = Counter.builder("flashsale.purchase.optimistic.conflicts")
+                .description("Optimistic purchase attempts that lost a version check")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("flashsale.purchase.optimistic.retries")
+                .description("Optimistic purchase attempts retried after a conflict")
+                .register(meterRegistry);
+        this.defaultMaxRetries = defaultMaxRetries;
+        this.backoffMillis = backoffMillis;
+    }
+
+    @Override
+    public FlashSaleConfig.PurchaseMode getMode() {
+        return FlashSaleConfig.PurchaseMode.OPTIMISTIC;
+    }
+
+    /**
+     * Creates a flash sale order without holding row locks while reading, relying on the
+     * flash sale version column to detect concurrent updates. Conflicting attempts are retried
+     * in a fresh transaction with jittered exponential backoff until the sale's retry budget is spent.
+     * @param userId the ID of the purchasing user
+     * @param flashSale the flash sale configuration a unit was reserved from
+     * @param idempotencyKey the Idempotency-Key to record with the order, or null
+     * @return PurchaseResponse containing order details and updated balance
+     * @throws BusinessException if user already purchased a flash sale product today
+     * @throws SoldOutException if flash sale is sold out
+     * @throws BusinessException if product is out of stock
+     * @throws BusinessException if user has insufficient balance
+     * @throws BusinessException if the retry budget is exhausted
+     */
+    @Override
+    public PurchaseResponse purchase(Long userId, FlashSaleConfig flashSale, String idempotencyKey) {
+        int maxRetries = flashSale.getMaxPurchaseRetries() != null ? flashSale.getMaxPurchaseRetries() : defaultMaxRetries;
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> attemptPurchase(userId, flashSale, idempotencyKey));
+            } catch (ObjectOptimisticLockingFailureException e) {
+                conflictCounter.increment();
+                if (attempt >= maxRetries) {
+                    log.warn("Optimistic purchase gave up: flashSaleId={}, userId={}, attempts={}",
+                            flashSale.getId(), userId, attempt + 1);
+                    throw new BusinessException("Flash sale is busy, please try again");
+                }
+                retryCounter.increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    private PurchaseResponse attemptPurchase(Long userId, FlashSaleConfig flashSale, String idempotencyKey) {
+        // Read flash sale without locking, the version is checked when the update is flushed
+        FlashSaleConfig currentFlashSale = flashSaleConfigRepository.findById(flashSale.getId())
+                .orElseThrow(() -> new BusinessException("Flash sale not found"));
+        if (!currentFlashSale.hasStock()) {
+            throw new SoldOutException();
+        }
+
+        // Increment sold quantity and flush so a version conflict surfaces before any other write
+        currentFlashSale.incrementSoldQuantity();
+        flashSaleConfigRepository.saveAndFlush(currentFlashSale);
+
+        // Decrease product stock while stock remains, the row stays locked so the stock read next is this order's
+        if (productRepository.decrementStock(currentFlashSale.getProductId()) == 0) {
+            throw new BusinessException("Product out of stock");
+        }
+        Integer stockAfter = productRepository.findStockQuantityById(currentFlashSale.getProductId());
+
+        // Deduct user balance while it covers the price
+        if (userRepository.deductBalance(userId, currentFlashSale.getFlashPrice()) == 0) {
+            throw new BusinessException("Insufficient balance");
+        }
+
+        // Create order, flushed so uk_user_order_date rejects a same-day purchase here and not at commit
+        FlashSaleOrder order = FlashSaleOrder.builder()
+                .userId(userId)
+                .productId(currentFlashSale.getProductId())
+                .flashSaleConfigId(currentFlashSale.getId())
+                .amount(currentFlashSale.getFlashPrice())
+                .stockAfter(stockAfter)
+                .status(FlashSaleOrder.OrderStatus.COMPLETED)
+                .orderedAt(LocalDateTime.now())
+                .build();
+        try {
+            order = flashSaleOrderRepository.saveAndFlush(order);
+        } catch (DataIntegrityViolationException e) {
+            throw new BusinessException("You can only purchase one flash sale product per day");
+        }
+
+        // Record the inventory change, the sync log is written after commit
+        inventorySyncService.syncInventoryForOrder(order.getId(), currentFlashSale.getProductId());
+        log.info("Flash sale order created: orderId={}, userId={}, productId={}, amount={}",
+                order.getId(), userId, currentFlashSale.getProductId(), order.getAmount());
+
+        PurchaseResponse response = PurchaseResponse.builder()
+                .orderId(order.getId())
+                .productId(currentFlashSale.getProductId())
+                .productName(flashSale.getProduct().getName())
+                .amount(order.getAmount())
+                .remainingBalance(userRepository.findBalanceById(userId))
+                .status(order.getStatus().toString())
+                .orderedAt(order.getOrderedAt())
+                .message("Purchase successful!")
+                .build();
+
+        // Record the key inside the attempt, a conflicting attempt rolls it back with the order
+        if (idempotencyKey != null) {
+            purchaseIdempotencyService.record(userId, idempotencyKey, response);
+        }
+        return response;
+    }
+
+    private void backoff(int attempt) {
+        // Full jitter over an exponentially growing window spreads retries of colliding buyers apart
+        long window = backoffMillis << Math.min(attempt, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(window + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Purchase interrupted, please try again");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.repository.OtpVerificationRepository;
+import com.example.flashsale.service.OtpVerificationPurgeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+@Service
+@Slf4j
+public class OtpVerificationPurgeServiceImpl implements OtpVerificationPurgeService {
+    private final OtpVerificationRepository otpRepository;
+    private final long retentionHours;
+    private final int batchSize;
+
+    public OtpVerificationPurgeServiceImpl(OtpVerificationRepository otpRepository,
+                                           @Value("${otp.purge.retention-hours:24}") long retentionHours,
+                                           @Value("${otp.purge.batch-size:1000}") int batchSize) {
+        this.otpRepository = otpRepository;
+        this.retentionHours = retentionHours;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Deletes otp_verifications rows that expired more than the retention period ago.
+     * Rows are deleted in small batches, each in its own transaction, so the purge never holds
+     * locks on a large range of the table while registrations insert new codes.
+     * @return number of rows deleted
+     */
+    @Override
+    @Scheduled(cron = "${otp.purge.cron:0 */10 * * * *}")
+    public int purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = otpRepository.deleteExpiredBatch(cutoff, batchSize);
+            total += deleted;
+        } while (deleted == batchSize);
+        if (total > 0) {
+            log.info("Expired OTP verifications purged: count={}", total);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.entity.FlashSaleOrder;
+import com.example.flashsale.entity.Product;
+import com.example.flashsale.entity.User;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.repository.FlashSaleOrderRepository;
+import com.example.flashsale.repository.ProductRepository;
+import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.service.InventorySyncService;
+import com.example.flashsale.service.PurchaseIdempotencyService;
+import com.example.flashsale.service.PurchaseStrategy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PessimisticPurchaseStrategy implements PurchaseStrategy {
+    private final FlashSaleConfigRepository flashSaleConfigRepository;
+    private final FlashSaleOrderRepository flashSaleOrderRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final InventorySyncService inventorySyncService;
+    private final PurchaseIdempotencyService purchaseIdempotencyService;
+
+    @Override
+    public FlashSaleConfig.PurchaseMode getMode() {
+        return FlashSaleConfig.PurchaseMode.PESSIMISTIC;
+    }
+
+    /**
+     * Creates a flash sale order while holding pessimistic write locks on the flash sale and product rows.
+     * @param userId the ID of the purchasing user
+     * @param flashSale the flash sale configuration a unit was reserved from
+     * @param idempotencyKey the Idempotency-Key to record with the order, or null
+     * @return PurchaseResponse containing order details and updated balance
+     * @throws BusinessException if user already purchased a flash sale product today
+     * @throws SoldOutException if flash sale is sold out
+     * @throws BusinessException if product is out of stock
+     * @throws BusinessException if user has insufficient balance
+     */
+    @Override
+    @Transactional(isolation = Isolation.SERIALIZABLE)
+    public PurchaseResponse purchase(Long userId, FlashSaleConfig flashSale, String idempotencyKey) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new BusinessException("User not found"));
+
+        // Lock flash sale config with pessimistic write lock
+        FlashSaleConfig lockedFlashSale = flashSaleConfigRepository.findByIdWithLock(flashSale.getId())
+                .orElseThrow(() -> new BusinessException("Flash sale not found"));
+
+        // Check if still has stock
+        if (!lockedFlashSale.hasStock()) {
+            throw new SoldOutException();
+        }
+
+        // Lock product for inventory update
+        Product product = productRepository.findByIdWithLock(lockedFlashSale.getProductId())
+                .orElseThrow(() -> new BusinessException("Product not found"));
+
+        // Check product stock
+        if (product.getStockQuantity() <= 0) {
+            throw new BusinessException("Product out of stock");
+        }
+
+        // Check user balance
+        if (user.getBalance().compareTo(lockedFlashSale.getFlashPrice()) < 0) {
+            throw new BusinessException("Insufficient balance");
+        }
+
+        // Deduct user balance
+        user.setBalance(user.getBalance().subtract(lockedFlashSale.getFlashPrice()));
+        userRepository.save(user);
+
+        // Increment sold quantity
+        lockedFlashSale.incrementSoldQuantity();
+        flashSaleConfigRepository.save(lockedFlashSale);
+
+        // Decrease product stock
+        product.setStockQuantity(product.getStockQuantity() - 1);
+        productRepository.save(product);
+
+        // Create order, uk_user_order_date rejects a second purchase on the same day. The id is assigned
+        // before insert, so the insert is flushed here to surface the violation instead of at commit
+        FlashSaleOrder order = FlashSaleOrder.builder()
+                .userId(user.getId())
+                .productId(product.getId())
+                .flashSaleConfigId(lockedFlashSale.getId())
+                .amount(lockedFlashSale.getFlashPrice())
+                .stockAfter(product.getStockQuantity())
+                .status(FlashSaleOrder.OrderStatus.COMPLETED)
+                .orderedAt(LocalDateTime.now())
+                .build();
+        try {
+            order = flashSaleOrderRepository.saveAndFlush(order);
+        } catch (DataIntegrityViolationException e) {
+            throw new BusinessException("You can only purchase one flash sale product per day");
+        }
+
+        // Record the inventory change, the sync log is written after commit
+        inventorySyncService.syncInventoryForOrder(order.getId(), product.getId());
+        log.info("Flash sale order created: orderId={}, userId={}, productId={}, amount={}",
+                order.getId(), user.getId(), product.getId(), order.getAmount());
+
+        PurchaseResponse response = PurchaseResponse.builder()
+                .orderId(order.getId())
+                .productId(product.getId())
+                .productName(product.getName())
+                .amount(order.getAmount())
+                .remainingBalance(user.getBalance())
+                .status(order.getStatus().toString())
+                .orderedAt(order.getOrderedAt())
+                .message("Purchase successful!")
+                .build();
+
+        // Record the idempotency key in the same transaction as the order
+        if (idempotencyKey != null) {
+            purchaseIdempotencyService.record(userId, idempotencyKey, response);
+        }
+        return response;
+    }
+}
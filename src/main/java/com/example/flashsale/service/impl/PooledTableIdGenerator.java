@@ -0,0 +1,130 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.service.IdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Reserves blocks of ids per table from the id_blocks table (hi/lo) and hands them out from memory,
+ * so only one insert in block-size pays a database round trip. Each node owns whole blocks, ids are
+ * unique but only ordered within a node.
+ */
+@Service
+@ConditionalOnProperty(name = "flash-sale.id.strategy", havingValue = "pooled")
+@Slf4j
+public class PooledTableIdGenerator implements IdGenerator {
+    private static final Pattern TABLE_NAME = Pattern.compile("[a-z_]+");
+    private static final String SELECT_FOR_UPDATE = "SELECT next_value FROM id_blocks WHERE table_name = ? FOR UPDATE";
+    private static final String UPDATE = "UPDATE id_blocks SET next_value = ? WHERE table_name = ?";
+    // Nodes seeding the same table at once can deadlock on the gap lock, the loser retries
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final DataSource dataSource;
+    private final int blockSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public PooledTableIdGenerator(DataSource dataSource,
+                                  @Value("${flash-sale.id.pooled.block-size:1000}") int blockSize) {
+        this.dataSource = dataSource;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public long nextId(String table) {
+        Block block = blocks.computeIfAbsent(table, key -> new Block());
+        synchronized (block) {
+            if (block.next >= block.end) {
+                block.next = reserveBlock(table);
+                block.end = block.next + blockSize;
+            }
+            return block.next++;
+        }
+    }
+
+    /**
+     * Moves the table's next_value one block ahead on a connection of its own, so the reservation commits
+     * independently of the caller's transaction.
+     * @param table the table to reserve ids for
+     * @return the first id of the reserved block
+     */
+    private long reserveBlock(String table) {
+        if (!TABLE_NAME.matcher(table).matches()) {
+            throw new IllegalArgumentException("Invalid table name: " + table);
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return tryReserveBlock(table);
+            } catch (SQLException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw new IllegalStateException("Could not reserve an id block for " + table, e);
+                }
+                log.warn("Id block reservation failed, retrying: table={}, attempt={}", table, attempt, e);
+            }
+        }
+    }
+
+    private long tryReserveBlock(String table) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                // Step 1: Lock the table's row, seeding it past the existing ids on first use
+                Long start = selectForUpdate(connection, table);
+                if (start == null) {
+                    seed(connection, table);
+                    start = selectForUpdate(connection, table);
+                }
+
+                // Step 2: Move next_value past the block
+                try (PreparedStatement update = connection.prepareStatement(UPDATE)) {
+                    update.setLong(1, start + blockSize);
+                    update.setString(2, table);
+                    update.executeUpdate();
+                }
+                connection.commit();
+                log.debug("Reserved id block: table={}, start={}, size={}", table, start, blockSize);
+                return start;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static Long selectForUpdate(Connection connection, String table) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(SELECT_FOR_UPDATE)) {
+            select.setString(1, table);
+            try (ResultSet resultSet = select.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : null;
+            }
+        }
+    }
+
+    private static void seed(Connection connection, String table) throws SQLException {
+        String sql = "INSERT INTO id_blocks (table_name, next_value) SELECT ?, COALESCE(MAX(id), 0) + 1 FROM " + table;
+        try (PreparedStatement insert = connection.prepareStatement(sql)) {
+            insert.setString(1, table);
+            insert.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // Another node seeded the row first, its value is locked by the next select
+        }
+    }
+
+    private static class Block {
+        private long next;
+        private long end;
+    }
+}
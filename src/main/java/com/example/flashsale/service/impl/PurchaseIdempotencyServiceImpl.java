@@ -0,0 +1,203 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.entity.PurchaseIdempotencyKey;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.IdempotencyKeyMismatchException;
+import com.example.flashsale.exception.PurchasePendingException;
+import com.example.flashsale.exception.ServiceUnavailableException;
+import com.example.flashsale.repository.PurchaseIdempotencyKeyRepository;
+import com.example.flashsale.service.PurchaseIdempotencyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+@Service
+@Slf4j
+public class PurchaseIdempotencyServiceImpl implements PurchaseIdempotencyService {
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final PurchaseIdempotencyKeyRepository purchaseIdempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final long waitTimeoutMillis;
+    private final long retentionHours;
+
+    private final Map<String, PurchaseResponse> completed;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public PurchaseIdempotencyServiceImpl(PurchaseIdempotencyKeyRepository purchaseIdempotencyKeyRepository,
+                                          ObjectMapper objectMapper,
+                                          @Value("${flash-sale.purchase.idempotency.cache-size:10000}") int cacheSize,
+                                          @Value("${flash-sale.purchase.idempotency.wait-timeout-millis:10000}") long waitTimeoutMillis,
+                                          @Value("${flash-sale.purchase.idempotency.retention-hours:24}") long retentionHours) {
+        this.purchaseIdempotencyKeyRepository = purchaseIdempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.retentionHours = retentionHours;
+        // Access ordered map evicting the least recently replayed response once full
+        this.completed = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PurchaseResponse> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Runs a purchase at most once per user and idempotency key.
+     * A replay of a completed purchase returns the original response from memory or the durable table,
+     * and a duplicate arriving while the first request is still running waits for its outcome.
+     * The purchase records its own key through {@link #record} inside the order transaction.
+     * Failed purchases are not recorded, so the client can retry them with the same key. A pending purchase
+     * stays in flight until its commit reports the outcome.
+     * @param userId the ID of the purchasing user
+     * @param idempotencyKey the Idempotency-Key header sent by the client
+     * @param productId the ID of the product being purchased
+     * @param purchase the purchase to run if the key has not completed yet
+     * @return PurchaseResponse of the first successful execution
+     * @throws BusinessException if the key is too long, or the purchase itself fails
+     * @throws IdempotencyKeyMismatchException if the key was already used for another product
+     * @throws ServiceUnavailableException if the in-flight duplicate does not finish in time
+     */
+    @Override
+    public PurchaseResponse execute(Long userId, String idempotencyKey, Long productId, Supplier<PurchaseResponse> purchase) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String cacheKey = userId + ":" + idempotencyKey;
+
+        // Step 1: replay from memory
+        PurchaseResponse cached = completed.get(cacheKey);
+        if (cached != null) {
+            return checkProduct(cached, productId);
+        }
+
+        // Step 2: wait on a duplicate that is already running
+        InFlight execution = new InFlight(productId, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(cacheKey, execution);
+        if (running != null) {
+            if (!running.productId().equals(productId)) {
+                throw new IdempotencyKeyMismatchException();
+            }
+            return await(running.result());
+        }
+
+        boolean pending = false;
+        try {
+            // Step 3: replay from the durable table, written by another instance or before a restart
+            Optional<PurchaseResponse> recorded = findRecorded(userId, idempotencyKey, productId);
+            if (recorded.isPresent()) {
+                return complete(cacheKey, execution, recorded.get());
+            }
+            return complete(cacheKey, execution, purchase.get());
+        } catch (PurchasePendingException e) {
+            // The order may still commit, keep the key in flight so a retry waits instead of buying again
+            pending = true;
+            e.getResult().whenComplete((response, error) -> {
+                if (error == null) {
+                    complete(cacheKey, execution, response);
+                } else {
+                    execution.result().completeExceptionally(error);
+                }
+                inFlight.remove(cacheKey, execution);
+            });
+            throw e;
+        } catch (RuntimeException e) {
+            execution.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            if (!pending) {
+                inFlight.remove(cacheKey, execution);
+            }
+        }
+    }
+
+    /**
+     * Saves the response of a purchase made with an idempotency key. Must be called inside the order
+     * transaction, so the key is durable exactly when the order is.
+     * @param userId the ID of the purchasing user
+     * @param idempotencyKey the Idempotency-Key header sent by the client
+     * @param response the response to replay for the key
+     */
+    @Override
+    public void record(Long userId, String idempotencyKey, PurchaseResponse response) {
+        try {
+            purchaseIdempotencyKeyRepository.save(PurchaseIdempotencyKey.builder()
+                    .userId(userId)
+                    .idempotencyKey(idempotencyKey)
+                    .productId(response.getProductId())
+                    .responseBody(objectMapper.writeValueAsString(response))
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Purchase response not serializable: key=" + idempotencyKey, e);
+        }
+    }
+
+    @Scheduled(cron = "${flash-sale.purchase.idempotency.cleanup-cron:0 0 * * * *}")
+    public void purgeExpiredKeys() {
+        int deleted = purchaseIdempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours));
+        log.info("Expired idempotency keys purged: count={}", deleted);
+    }
+
+    private PurchaseResponse await(CompletableFuture<PurchaseResponse> running) {
+        try {
+            return running.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("A purchase with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("A purchase with this Idempotency-Key is still in progress");
+        }
+    }
+
+    private Optional<PurchaseResponse> findRecorded(Long userId, String idempotencyKey, Long productId) {
+        return purchaseIdempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .map(record -> {
+                    if (!record.getProductId().equals(productId)) {
+                        throw new IdempotencyKeyMismatchException();
+                    }
+                    try {
+                        return objectMapper.readValue(record.getResponseBody(), PurchaseResponse.class);
+                    } catch (JsonProcessingException e) {
+                        throw new IllegalStateException("Corrupt idempotency record: id=" + record.getId(), e);
+                    }
+                });
+    }
+
+    private PurchaseResponse complete(String cacheKey, InFlight execution, PurchaseResponse response) {
+        completed.put(cacheKey, response);
+        execution.result().complete(response);
+        return response;
+    }
+
+    private PurchaseResponse checkProduct(PurchaseResponse response, Long productId) {
+        if (!response.getProductId().equals(productId)) {
+            throw new IdempotencyKeyMismatchException();
+        }
+        return response;
+    }
+
+    private record InFlight(Long productId, CompletableFuture<PurchaseResponse> result) {
+    }
+}
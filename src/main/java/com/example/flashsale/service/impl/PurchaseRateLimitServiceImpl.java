@@ -0,0 +1,176 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.exception.TooManyRequestsException;
+import com.example.flashsale.service.FlashSaleScheduleService;
+import com.example.flashsale.service.PurchaseRateLimitService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class PurchaseRateLimitServiceImpl implements PurchaseRateLimitService {
+    private final FlashSaleScheduleService flashSaleScheduleService;
+    private final double userPermitsPerSecond;
+    private final int userBurst;
+    private final int salePermitsPerSecond;
+    private final long idleBucketTtlNanos;
+    // Sale limits come from the schedule index, so a closed sale can reopen with the next reload
+    private final long closedRetryAfterSeconds;
+
+    private final ConcurrentMap<Long, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, TokenBucket> saleBuckets = new ConcurrentHashMap<>();
+
+    private final Counter admittedCounter;
+    private final Counter userRejectedCounter;
+    private final Counter saleRejectedCounter;
+
+    public PurchaseRateLimitServiceImpl(FlashSaleScheduleService flashSaleScheduleService,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${flash-sale.purchase.rate-limit.user-permits-per-second:2}") double userPermitsPerSecond,
+                                        @Value("${flash-sale.purchase.rate-limit.user-burst:5}") int userBurst,
+                                        @Value("${flash-sale.purchase.rate-limit.sale-permits-per-second:500}") int salePermitsPerSecond,
+                                        @Value("${flash-sale.purchase.rate-limit.idle-bucket-ttl-seconds:300}") long idleBucketTtlSeconds,
+                                        @Value("${flash-sale.schedule.reload-interval-millis:60000}") long scheduleReloadIntervalMillis) {
+        if (userPermitsPerSecond <= 0 || userBurst < 1 || salePermitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Purchase rate limits must be positive");
+        }
+        this.flashSaleScheduleService = flashSaleScheduleService;
+        this.userPermitsPerSecond = userPermitsPerSecond;
+        this.userBurst = userBurst;
+        this.salePermitsPerSecond = salePermitsPerSecond;
+        this.idleBucketTtlNanos = TimeUnit.SECONDS.toNanos(idleBucketTtlSeconds);
+        this.closedRetryAfterSeconds = toRetryAfterSeconds(TimeUnit.MILLISECONDS.toNanos(scheduleReloadIntervalMillis));
+        this.admittedCounter = Counter.builder("flashsale.ratelimit.requests")
+                .description("Purchase requests checked against the rate limits")
+                .tag("outcome", "admitted")
+                .register(meterRegistry);
+        this.userRejectedCounter = Counter.builder("flashsale.ratelimit.requests")
+                .description("Purchase requests checked against the rate limits")
+                .tag("outcome", "user_limited")
+                .register(meterRegistry);
+        this.saleRejectedCounter = Counter.builder("flashsale.ratelimit.requests")
+                .description("Purchase requests checked against the rate limits")
+                .tag("outcome", "sale_limited")
+                .register(meterRegistry);
+        Gauge.builder("flashsale.ratelimit.buckets", userBuckets, Map::size)
+                .description("Token buckets currently tracked")
+                .tag("scope", "user")
+                .register(meterRegistry);
+        Gauge.builder("flashsale.ratelimit.buckets", saleBuckets, Map::size)
+                .description("Token buckets currently tracked")
+                .tag("scope", "sale")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes one token from the user's bucket and from the bucket of the flash sale running for the product.
+     * Requests for products without an active sale are only limited per user, the service rejects them later.
+     * When the sale bucket rejects, the user's token is given back so a busy sale does not also throttle the user.
+     * The sale is read from the schedule index, so its bucket is rebuilt once a reload changes the configured
+     * limit, and a sale whose limit is not positive admits nothing until a reload raises it.
+     * @param userId the ID of the authenticated user
+     * @param productId the ID of the product being purchased, may be null if the request body is invalid
+     * @throws TooManyRequestsException if either bucket is empty
+     */
+    @Override
+    public void acquire(Long userId, Long productId) {
+        long now = System.nanoTime();
+
+        // Step 1: per-user budget
+        TokenBucket userBucket = userBuckets.computeIfAbsent(userId,
+                id -> new TokenBucket(userPermitsPerSecond, userBurst, now));
+        long userWaitNanos = userBucket.tryAcquire(now);
+        if (userWaitNanos > 0) {
+            userRejectedCounter.increment();
+            throw new TooManyRequestsException("Too many purchase attempts, please slow down", toRetryAfterSeconds(userWaitNanos));
+        }
+
+        // Step 2: per-sale budget, using the limit configured on the sale when present
+        FlashSaleConfig flashSale = productId != null
+                ? flashSaleScheduleService.findActiveFlashSale(productId, LocalDate.now(), LocalTime.now()).orElse(null)
+                : null;
+        if (flashSale != null) {
+            int permitsPerSecond = flashSale.getPurchaseRateLimit() != null ? flashSale.getPurchaseRateLimit() : salePermitsPerSecond;
+            if (permitsPerSecond <= 0) {
+                userBucket.refund();
+                saleRejectedCounter.increment();
+                throw new TooManyRequestsException("Flash sale is not accepting purchases", closedRetryAfterSeconds);
+            }
+            TokenBucket saleBucket = saleBuckets.get(flashSale.getId());
+            if (saleBucket == null || saleBucket.permitsPerSecond != permitsPerSecond) {
+                saleBucket = saleBuckets.compute(flashSale.getId(), (id, existing) ->
+                        existing != null && existing.permitsPerSecond == permitsPerSecond
+                                ? existing
+                                : new TokenBucket(permitsPerSecond, permitsPerSecond, now));
+            }
+            long saleWaitNanos = saleBucket.tryAcquire(now);
+            if (saleWaitNanos > 0) {
+                userBucket.refund();
+                saleRejectedCounter.increment();
+                throw new TooManyRequestsException("Flash sale is busy, please try again", toRetryAfterSeconds(saleWaitNanos));
+            }
+        }
+        admittedCounter.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${flash-sale.purchase.rate-limit.cleanup-interval-millis:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        userBuckets.values().removeIf(bucket -> bucket.isIdle(now, idleBucketTtlNanos));
+        saleBuckets.values().removeIf(bucket -> bucket.isIdle(now, idleBucketTtlNanos));
+    }
+
+    private long toRetryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static final class TokenBucket {
+        private final double permitsPerSecond;
+        private final double permitsPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefillNanos;
+
+        private TokenBucket(double permitsPerSecond, double capacity, long now) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefillNanos = now;
+        }
+
+        // Returns 0 when a token was taken, otherwise the nanoseconds until one becomes available
+        private synchronized long tryAcquire(long now) {
+            if (now > lastRefillNanos) {
+                tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * permitsPerNano);
+                lastRefillNanos = now;
+            }
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / permitsPerNano);
+        }
+
+        private synchronized void refund() {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+
+        private synchronized boolean isIdle(long now, long ttlNanos) {
+            return now - lastRefillNanos > ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.PurchaseRequest;
+import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.dto.PurchaseTicketResponse;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.PurchasePendingException;
+import com.example.flashsale.exception.ServiceUnavailableException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.security.AuthenticatedUser;
+import com.example.flashsale.service.CustomUserDetailsService;
+import com.example.flashsale.service.FlashSaleService;
+import com.example.flashsale.service.PurchaseTicketService;
+import com.example.flashsale.service.PurchaserIndexService;
+import com.example.flashsale.service.SoldOutRegistryService;
+import com.example.flashsale.service.StockReservationService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@Slf4j
+public class PurchaseTicketServiceImpl implements PurchaseTicketService {
+    private final FlashSaleService flashSaleService;
+    private final StockReservationService stockReservationService;
+    private final PurchaserIndexService purchaserIndexService;
+    private final SoldOutRegistryService soldOutRegistryService;
+    private final CustomUserDetailsService userDetailsService;
+    private final ExecutorService settlementExecutor;
+    private final long ticketTtlMinutes;
+
+    private final ConcurrentMap<String, PurchaseTicket> tickets = new ConcurrentHashMap<>();
+
+    public PurchaseTicketServiceImpl(FlashSaleService flashSaleService,
+                                     StockReservationService stockReservationService,
+                                     PurchaserIndexService purchaserIndexService,
+                                     SoldOutRegistryService soldOutRegistryService,
+                                     CustomUserDetailsService userDetailsService,
+                                     @Value("${flash-sale.purchase.async.worker-threads:8}") int workerThreads,
+                                     @Value("${flash-sale.purchase.async.queue-capacity:1000}") int queueCapacity,
+                                     @Value("${flash-sale.purchase.async.ticket-ttl-minutes:10}") long ticketTtlMinutes) {
+        this.flashSaleService = flashSaleService;
+        this.stockReservationService = stockReservationService;
+        this.purchaserIndexService = purchaserIndexService;
+        this.soldOutRegistryService = soldOutRegistryService;
+        this.userDetailsService = userDetailsService;
+        AtomicInteger threadCounter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "purchase-settlement-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Workers run the purchase as the user who submitted it
+        this.settlementExecutor = new DelegatingSecurityContextExecutorService(executor);
+        this.ticketTtlMinutes = ticketTtlMinutes;
+    }
+
+    /**
+     * Accepts a purchase for asynchronous settlement after cheap in-memory validation.
+     * @param request the purchase request containing product ID
+     * @return PurchaseTicketResponse in PENDING status carrying the ticket ID to poll
+     * @throws BusinessException if user already purchased a flash sale product today
+     * @throws BusinessException if no active flash sale exists for the product
+     * @throws SoldOutException if flash sale is sold out
+     * @throws ServiceUnavailableException if the settlement queue is full
+     */
+    @Override
+    public PurchaseTicketResponse submitPurchase(PurchaseRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        LocalDate today = LocalDate.now();
+        LocalTime currentTime = LocalTime.now();
+
+        // Reject repeat buyers, sold out and inactive sales before queueing anything. Replays of an
+        // idempotency key are let through, they are answered with the original response once settled
+        if (request.getIdempotencyKey() == null && purchaserIndexService.hasPurchased(userId(authentication), today)) {
+            throw new BusinessException("You can only purchase one flash sale product per day");
+        }
+        if (soldOutRegistryService.isSoldOut(request.getProductId(), today, currentTime)) {
+            throw new SoldOutException();
+        }
+        stockReservationService.ensureAvailable(request.getProductId(), today, currentTime);
+
+        String username = authentication.getName();
+        PurchaseTicket ticket = new PurchaseTicket(UUID.randomUUID().toString(), username, request.getProductId());
+        tickets.put(ticket.ticketId, ticket);
+        // Snapshot before handing off, a fast worker may settle the ticket before execute returns
+        PurchaseTicketResponse accepted = ticket.toResponse();
+
+        try {
+            settlementExecutor.execute(() -> settle(ticket, request));
+        } catch (RejectedExecutionException e) {
+            tickets.remove(ticket.ticketId);
+            throw new ServiceUnavailableException("Too many pending purchases, please try again");
+        }
+        log.info("Purchase ticket accepted: ticketId={}, username={}, productId={}",
+                ticket.ticketId, username, request.getProductId());
+        return accepted;
+    }
+
+    /**
+     * Returns the current state of a purchase ticket owned by the authenticated user.
+     * @param ticketId the ticket ID returned on submission
+     * @return PurchaseTicketResponse with PENDING, COMPLETED or REJECTED status
+     * @throws BusinessException if the ticket does not exist, expired or belongs to another user
+     */
+    @Override
+    public PurchaseTicketResponse getTicket(String ticketId) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        PurchaseTicket ticket = tickets.get(ticketId);
+        if (ticket == null || !ticket.username.equals(username)) {
+            throw new BusinessException("Purchase ticket not found");
+        }
+        return ticket.toResponse();
+    }
+
+    @Scheduled(fixedDelayString = "${flash-sale.purchase.async.cleanup-interval-millis:60000}")
+    public void evictExpiredTickets() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(ticketTtlMinutes);
+        tickets.values().removeIf(ticket -> ticket.status != TicketStatus.PENDING && ticket.createdAt.isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        settlementExecutor.shutdown();
+    }
+
+    private Long userId(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
+        return userDetailsService.getUserIdByUsername(authentication.getName());
+    }
+
+    private void settle(PurchaseTicket ticket, PurchaseRequest request) {
+        try {
+            ticket.complete(flashSaleService.purchaseFlashSaleProduct(request));
+        } catch (PurchasePendingException e) {
+            // The order may still roll back, so the ticket stays pending until the commit reports its outcome
+            e.getResult().whenComplete((purchase, error) -> {
+                if (error == null) {
+                    ticket.complete(purchase);
+                } else {
+                    fail(ticket, error);
+                }
+            });
+        } catch (RuntimeException e) {
+            fail(ticket, e);
+        }
+    }
+
+    private void fail(PurchaseTicket ticket, Throwable error) {
+        if (error instanceof BusinessException) {
+            ticket.reject(error.getMessage());
+        } else {
+            log.error("Purchase settlement failed: ticketId={}", ticket.ticketId, error);
+            ticket.reject("Purchase failed, please try again");
+        }
+    }
+
+    private enum TicketStatus {
+        PENDING, COMPLETED, REJECTED
+    }
+
+    private static final class PurchaseTicket {
+        private final String ticketId;
+        private final String username;
+        private final Long productId;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile TicketStatus status = TicketStatus.PENDING;
+        private volatile PurchaseResponse purchase;
+        private volatile String error;
+
+        private PurchaseTicket(String ticketId, String username, Long productId) {
+            this.ticketId = ticketId;
+            this.username = username;
+            this.productId = productId;
+        }
+
+        private void complete(PurchaseResponse purchase) {
+            this.purchase = purchase;
+            this.status = TicketStatus.COMPLETED;
+        }
+
+        private void reject(String error) {
+            this.error = error;
+            this.status = TicketStatus.REJECTED;
+        }
+
+        private PurchaseTicketResponse toResponse() {
+            // Status is written last by the worker, so reading it first gives a consistent view
+            TicketStatus currentStatus = status;
+            return PurchaseTicketResponse.builder()
+                    .ticketId(ticketId)
+                    .productId(productId)
+                    .status(currentStatus.toString())
+                    .purchase(currentStatus == TicketStatus.COMPLETED ? purchase : null)
+                    .error(currentStatus == TicketStatus.REJECTED ? error : null)
+                    .createdAt(createdAt)
+                    .build();
+        }
+    }
+}
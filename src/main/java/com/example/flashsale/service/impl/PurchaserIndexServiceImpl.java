@@ -0,0 +1,99 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.repository.FlashSaleOrderRepository;
+import com.example.flashsale.service.PurchaserIndexService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PurchaserIndexServiceImpl implements PurchaserIndexService {
+    private final FlashSaleOrderRepository flashSaleOrderRepository;
+
+    private volatile DailyBitmap today = new DailyBitmap(LocalDate.now());
+
+    /**
+     * Rebuilds today's index from the COMPLETED orders already in the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDate orderDate = LocalDate.now();
+        DailyBitmap rebuilt = new DailyBitmap(orderDate);
+        List<Long> userIds = flashSaleOrderRepository.findUserIdsByOrderDate(orderDate);
+        userIds.forEach(rebuilt::set);
+        today = rebuilt;
+        log.info("Purchaser index rebuilt: orderDate={}, purchasers={}", orderDate, userIds.size());
+    }
+
+    /**
+     * Checks whether the user is known to have a COMPLETED order on the given day.
+     * A negative answer is not authoritative, since orders placed by other instances are not indexed here.
+     * @param userId the ID of the user
+     * @param orderDate the order date to check
+     * @return true if the user already purchased on that day
+     */
+    @Override
+    public boolean hasPurchased(Long userId, LocalDate orderDate) {
+        DailyBitmap bitmap = today;
+        return bitmap.day.equals(orderDate) && bitmap.get(userId);
+    }
+
+    /**
+     * Records a committed order for the user. There is no unmark, since no flow moves an order out of
+     * COMPLETED and uk_user_order_date would keep blocking the day anyway.
+     * @param userId the ID of the user
+     * @param orderDate the date of the order
+     */
+    @Override
+    public void markPurchased(Long userId, LocalDate orderDate) {
+        bitmapFor(orderDate).set(userId);
+    }
+
+    private DailyBitmap bitmapFor(LocalDate orderDate) {
+        DailyBitmap bitmap = today;
+        if (bitmap.day.equals(orderDate)) {
+            return bitmap;
+        }
+        synchronized (this) {
+            // Roll over to an empty bitmap on the first order of a new day
+            if (!today.day.equals(orderDate) && orderDate.isAfter(today.day)) {
+                today = new DailyBitmap(orderDate);
+            }
+            return today.day.equals(orderDate) ? today : new DailyBitmap(orderDate);
+        }
+    }
+
+    /**
+     * Concurrent bitmap of user IDs, one 64-bit word per block of 64 consecutive IDs.
+     * Compact only because user IDs are dense AUTO_INCREMENT values.
+     */
+    private static final class DailyBitmap {
+        private final LocalDate day;
+        private final ConcurrentMap<Long, AtomicLong> words = new ConcurrentHashMap<>();
+
+        private DailyBitmap(LocalDate day) {
+            this.day = day;
+        }
+
+        // Shifting a long only uses the low 6 bits of the distance, which selects the bit within the word
+        private boolean get(long userId) {
+            AtomicLong word = words.get(userId >>> 6);
+            return word != null && (word.get() & (1L << userId)) != 0;
+        }
+
+        private void set(long userId) {
+            long mask = 1L << userId;
+            words.computeIfAbsent(userId >>> 6, key -> new AtomicLong()).getAndAccumulate(mask, (current, bit) -> current | bit);
+        }
+    }
+}
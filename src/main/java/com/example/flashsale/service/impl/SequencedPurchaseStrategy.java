@@ -0,0 +1,364 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.entity.FlashSaleOrder;
+import com.example.flashsale.entity.Product;
+import com.example.flashsale.entity.User;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.PurchasePendingException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.repository.FlashSaleOrderRepository;
+import com.example.flashsale.repository.ProductRepository;
+import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.service.InventorySyncService;
+import com.example.flashsale.service.PurchaseIdempotencyService;
+import com.example.flashsale.service.PurchaseStrategy;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class SequencedPurchaseStrategy implements PurchaseStrategy {
+    private final FlashSaleConfigRepository flashSaleConfigRepository;
+    private final FlashSaleOrderRepository flashSaleOrderRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final InventorySyncService inventorySyncService;
+    private final PurchaseIdempotencyService purchaseIdempotencyService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService writerExecutor;
+    private final int ringBufferSize;
+    private final int batchSize;
+    private final long timeoutMillis;
+
+    private final ConcurrentMap<Long, Sequencer> sequencers = new ConcurrentHashMap<>();
+
+    public SequencedPurchaseStrategy(FlashSaleConfigRepository flashSaleConfigRepository,
+                                     FlashSaleOrderRepository flashSaleOrderRepository,
+                                     ProductRepository productRepository,
+                                     UserRepository userRepository,
+                                     InventorySyncService inventorySyncService,
+                                     PurchaseIdempotencyService purchaseIdempotencyService,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${flash-sale.purchase.sequencer.writer-threads:4}") int writerThreads,
+                                     @Value("${flash-sale.purchase.sequencer.ring-buffer-size:1024}") int ringBufferSize,
+                                     @Value("${flash-sale.purchase.sequencer.batch-size:50}") int batchSize,
+                                     @Value("${flash-sale.purchase.sequencer.timeout-millis:5000}") long timeoutMillis) {
+        this.flashSaleConfigRepository = flashSaleConfigRepository;
+        this.flashSaleOrderRepository = flashSaleOrderRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.inventorySyncService = inventorySyncService;
+        this.purchaseIdempotencyService = purchaseIdempotencyService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.writerExecutor = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "purchase-sequencer-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ringBufferSize = ringBufferSize;
+        this.batchSize = batchSize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public FlashSaleConfig.PurchaseMode getMode() {
+        return FlashSaleConfig.PurchaseMode.SEQUENCED;
+    }
+
+    /**
+     * Hands the purchase to the flash sale's single writer and waits until the batch containing it commits.
+     * @param userId the ID of the purchasing user
+     * @param flashSale the flash sale configuration a unit was reserved from
+     * @param idempotencyKey the Idempotency-Key to record with the order, or null
+     * @return PurchaseResponse containing order details and updated balance
+     * @throws BusinessException if the purchase is rejected by the writer, the sequencer is full or the
+     * intent was cancelled before the writer reached it
+     * @throws SoldOutException if flash sale is sold out
+     * @throws PurchasePendingException if the writer is committing the intent but did not finish in time
+     */
+    @Override
+    public PurchaseResponse purchase(Long userId, FlashSaleConfig flashSale, String idempotencyKey) {
+        PurchaseIntent intent = enqueue(userId, flashSale, idempotencyKey);
+        try {
+            return intent.result().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            if (intent.cancel()) {
+                // The writer will skip the intent, so the caller may release its unit
+                throw new BusinessException("Flash sale is busy, please try again");
+            }
+            throw new PurchasePendingException(flashSale.getProductId(), intent.result());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (intent.cancel()) {
+                throw new BusinessException("Purchase interrupted, please try again");
+            }
+            throw new PurchasePendingException(flashSale.getProductId(), intent.result());
+        }
+    }
+
+    /**
+     * Enqueues a purchase intent on the flash sale's ring buffer without waiting for it to commit.
+     * @param userId the ID of the purchasing user
+     * @param flashSale the flash sale configuration a unit was reserved from
+     * @return future completed once the batch containing the intent commits or the intent is rejected
+     * @throws BusinessException if the ring buffer is full
+     */
+    CompletableFuture<PurchaseResponse> submit(Long userId, FlashSaleConfig flashSale) {
+        return enqueue(userId, flashSale, null).result();
+    }
+
+    @Scheduled(fixedDelayString = "${flash-sale.purchase.sequencer.eviction-interval-millis:60000}")
+    public void evictEndedSequencers() {
+        int evicted = evictEndedBefore(LocalDateTime.now());
+        if (evicted > 0) {
+            log.debug("Ended flash sale sequencers evicted: count={}", evicted);
+        }
+    }
+
+    /**
+     * Drops the sequencers of sales that ended before the given time and have nothing left to commit.
+     * @param now the current time
+     * @return number of sequencers removed
+     */
+    int evictEndedBefore(LocalDateTime now) {
+        int before = sequencers.size();
+        // An intent offered to an evicted sequencer is still drained by it, a new sale gets a new one
+        sequencers.values().removeIf(sequencer -> sequencer.isIdle() && sequencer.endsAt.isBefore(now));
+        return before - sequencers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writerExecutor.shutdown();
+    }
+
+    private PurchaseIntent enqueue(Long userId, FlashSaleConfig flashSale, String idempotencyKey) {
+        PurchaseIntent intent = new PurchaseIntent(userId, flashSale, idempotencyKey, new CompletableFuture<>(),
+                new AtomicInteger(QUEUED));
+        Sequencer sequencer = sequencers.computeIfAbsent(flashSale.getId(),
+                id -> new Sequencer(LocalDateTime.of(flashSale.getSaleDate(), flashSale.getEndTime())));
+        if (!sequencer.offer(intent)) {
+            throw new BusinessException("Flash sale is busy, please try again");
+        }
+        return intent;
+    }
+
+    private void commitBatch(List<PurchaseIntent> batch) {
+        Map<PurchaseIntent, RuntimeException> rejected = new HashMap<>();
+        Map<PurchaseIntent, PurchaseResponse> accepted;
+        try {
+            accepted = transactionTemplate.execute(status -> applyBatch(batch, rejected));
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                // One bad intent must not fail its neighbours, so isolate it by committing one at a time
+                log.warn("Batch commit failed, retrying individually: flashSaleId={}, size={}",
+                        batch.get(0).flashSale().getId(), batch.size(), e);
+                batch.forEach(intent -> commitBatch(List.of(intent)));
+            } else {
+                batch.get(0).result().completeExceptionally(e);
+            }
+            return;
+        }
+
+        accepted.forEach((intent, response) -> intent.result().complete(response));
+        rejected.forEach((intent, error) -> intent.result().completeExceptionally(error));
+    }
+
+    private Map<PurchaseIntent, PurchaseResponse> applyBatch(List<PurchaseIntent> batch,
+                                                             Map<PurchaseIntent, RuntimeException> rejected) {
+        rejected.clear();
+        FlashSaleConfig flashSale = batch.get(0).flashSale();
+        LocalDate today = LocalDate.now();
+
+        // Lock flash sale config and product once for the whole batch
+        FlashSaleConfig lockedFlashSale = flashSaleConfigRepository.findByIdWithLock(flashSale.getId())
+                .orElseThrow(() -> new BusinessException("Flash sale not found"));
+        Product product = productRepository.findByIdWithLock(lockedFlashSale.getProductId())
+                .orElseThrow(() -> new BusinessException("Product not found"));
+
+        // Load buyers and today's purchasers with one query each
+        Set<Long> userIds = batch.stream().map(PurchaseIntent::userId).collect(Collectors.toSet());
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Set<Long> purchasedToday = new HashSet<>(flashSaleOrderRepository.findUserIdsWithOrderOn(userIds, today));
+
+        // Apply the checks in arrival order, winners take units until the sale runs out
+        Map<PurchaseIntent, FlashSaleOrder> winners = new LinkedHashMap<>();
+        for (PurchaseIntent intent : batch) {
+            User user = users.get(intent.userId());
+            if (user == null) {
+                rejected.put(intent, new BusinessException("User not found"));
+            } else if (purchasedToday.contains(user.getId())) {
+                rejected.put(intent, new BusinessException("You can only purchase one flash sale product per day"));
+            } else if (!lockedFlashSale.hasStock()) {
+                rejected.put(intent, new SoldOutException());
+            } else if (product.getStockQuantity() <= 0) {
+                rejected.put(intent, new BusinessException("Product out of stock"));
+            } else if (user.getBalance().compareTo(lockedFlashSale.getFlashPrice()) < 0) {
+                rejected.put(intent, new BusinessException("Insufficient balance"));
+            } else {
+                purchasedToday.add(user.getId());
+                user.setBalance(user.getBalance().subtract(lockedFlashSale.getFlashPrice()));
+                lockedFlashSale.incrementSoldQuantity();
+                product.setStockQuantity(product.getStockQuantity() - 1);
+                winners.put(intent, FlashSaleOrder.builder()
+                        .userId(user.getId())
+                        .productId(product.getId())
+                        .flashSaleConfigId(lockedFlashSale.getId())
+                        .amount(lockedFlashSale.getFlashPrice())
+                        .stockAfter(product.getStockQuantity())
+                        .status(FlashSaleOrder.OrderStatus.COMPLETED)
+                        .orderedAt(LocalDateTime.now())
+                        .build());
+            }
+        }
+        if (winners.isEmpty()) {
+            return Map.of();
+        }
+
+        // Insert all orders, balance/sold/stock updates are flushed with the same commit and sync logs follow it
+        List<FlashSaleOrder> orders = flashSaleOrderRepository.saveAll(winners.values());
+        List<Long> orderIds = orders.stream().map(FlashSaleOrder::getId).collect(Collectors.toList());
+        inventorySyncService.syncInventoryForBatch(product.getId(), orderIds);
+        log.info("Flash sale batch committed: flashSaleId={}, orders={}, rejected={}",
+                lockedFlashSale.getId(), orders.size(), rejected.size());
+
+        Map<PurchaseIntent, PurchaseResponse> responses = new LinkedHashMap<>();
+        int index = 0;
+        for (PurchaseIntent intent : winners.keySet()) {
+            FlashSaleOrder order = orders.get(index++);
+            PurchaseResponse response = PurchaseResponse.builder()
+                    .orderId(order.getId())
+                    .productId(product.getId())
+                    .productName(product.getName())
+                    .amount(order.getAmount())
+                    .remainingBalance(users.get(intent.userId()).getBalance())
+                    .status(order.getStatus().toString())
+                    .orderedAt(order.getOrderedAt())
+                    .message("Purchase successful!")
+                    .build();
+            // Keys commit with the batch, a timed out caller's retry finds them once its order is durable
+            if (intent.idempotencyKey() != null) {
+                purchaseIdempotencyService.record(intent.userId(), intent.idempotencyKey(), response);
+            }
+            responses.put(intent, response);
+        }
+        return responses;
+    }
+
+    private static final int QUEUED = 0;
+    private static final int CLAIMED = 1;
+    private static final int CANCELLED = 2;
+
+    /**
+     * A queued purchase. The writer claims it before applying it and a timed out caller cancels it,
+     * whichever comes first wins, so a cancelled intent is never charged.
+     */
+    private record PurchaseIntent(Long userId, FlashSaleConfig flashSale, String idempotencyKey,
+                                  CompletableFuture<PurchaseResponse> result, AtomicInteger state) {
+        private boolean claim() {
+            return state.compareAndSet(QUEUED, CLAIMED);
+        }
+
+        private boolean cancel() {
+            return state.compareAndSet(QUEUED, CANCELLED);
+        }
+    }
+
+    /**
+     * Single writer for one flash sale. Intents are drained by at most one pooled thread at a time,
+     * so a batch naturally accumulates everything that arrived while the previous batch was committing.
+     */
+    private final class Sequencer {
+        private final BlockingQueue<PurchaseIntent> ringBuffer = new ArrayBlockingQueue<>(ringBufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final LocalDateTime endsAt;
+
+        private Sequencer(LocalDateTime endsAt) {
+            this.endsAt = endsAt;
+        }
+
+        private boolean isIdle() {
+            return ringBuffer.isEmpty() && !draining.get();
+        }
+
+        private boolean offer(PurchaseIntent intent) {
+            if (!ringBuffer.offer(intent)) {
+                return false;
+            }
+            scheduleDrain();
+            return true;
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                writerExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                List<PurchaseIntent> batch = new ArrayList<>(batchSize);
+                while (ringBuffer.drainTo(batch, batchSize) > 0) {
+                    // Skip intents whose caller already gave up
+                    batch.removeIf(intent -> !intent.claim());
+                    if (batch.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        commitBatch(batch);
+                    } catch (RuntimeException e) {
+                        batch.forEach(intent -> intent.result().completeExceptionally(e));
+                    }
+                    batch = new ArrayList<>(batchSize);
+                }
+            } finally {
+                draining.set(false);
+                // An intent offered after the last drain but before the flag cleared still needs a writer
+                if (!ringBuffer.isEmpty()) {
+                    scheduleDrain();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.service.SoldOutRegistryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Slf4j
+public class SoldOutRegistryServiceImpl implements SoldOutRegistryService {
+    private final ConcurrentMap<Long, FlashSaleConfig> soldOutByProduct = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Checks whether the flash sale currently running for a product is known to be sold out.
+     * @param productId the ID of the product being purchased
+     * @param saleDate the current date
+     * @param currentTime the current time of day
+     * @return true if the sale covering the given time has committed its last unit
+     */
+    @Override
+    public boolean isSoldOut(Long productId, LocalDate saleDate, LocalTime currentTime) {
+        FlashSaleConfig soldOut = soldOutByProduct.get(productId);
+        return soldOut != null
+                && soldOut.getSaleDate().equals(saleDate)
+                && !currentTime.isBefore(soldOut.getStartTime())
+                && !currentTime.isAfter(soldOut.getEndTime());
+    }
+
+    /**
+     * Checks whether the given flash sale is known to be sold out.
+     * @param productId the ID of the product on sale
+     * @param flashSaleId the ID of the flash sale configuration
+     * @return true if the sale has committed its last unit
+     */
+    @Override
+    public boolean isSoldOut(Long productId, Long flashSaleId) {
+        FlashSaleConfig soldOut = soldOutByProduct.get(productId);
+        return soldOut != null && soldOut.getId().equals(flashSaleId);
+    }
+
+    /**
+     * Flags a flash sale as sold out once its last unit has committed.
+     * @param flashSale the flash sale configuration
+     */
+    @Override
+    public void markSoldOut(FlashSaleConfig flashSale) {
+        FlashSaleConfig previous = soldOutByProduct.put(flashSale.getProductId(), flashSale);
+        if (previous == null || !previous.getId().equals(flashSale.getId())) {
+            version.incrementAndGet();
+            log.info("Flash sale flagged as sold out: flashSaleId={}, productId={}", flashSale.getId(), flashSale.getProductId());
+        }
+    }
+
+    /**
+     * Clears the sold out flag, to be called when a unit of the sale returns to stock.
+     * @param flashSale the flash sale configuration
+     */
+    @Override
+    public void clearSoldOut(FlashSaleConfig flashSale) {
+        FlashSaleConfig soldOut = soldOutByProduct.get(flashSale.getProductId());
+        if (soldOut != null && soldOut.getId().equals(flashSale.getId())
+                && soldOutByProduct.remove(flashSale.getProductId(), soldOut)) {
+            version.incrementAndGet();
+            log.info("Flash sale sold out flag cleared: flashSaleId={}", flashSale.getId());
+        }
+    }
+
+    /**
+     * Returns a number that changes whenever a sale is flagged or its flag is cleared.
+     * @return the registry version
+     */
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+}
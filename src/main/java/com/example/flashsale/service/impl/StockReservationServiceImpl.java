@@ -0,0 +1,187 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.service.FlashSaleScheduleService;
+import com.example.flashsale.service.SoldOutRegistryService;
+import com.example.flashsale.service.StockReservationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockReservationServiceImpl implements StockReservationService {
+    private final FlashSaleConfigRepository flashSaleConfigRepository;
+    private final FlashSaleScheduleService flashSaleScheduleService;
+    private final SoldOutRegistryService soldOutRegistryService;
+
+    private final ConcurrentMap<Long, StockCounter> countersBySale = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the active flash sale for a product from the schedule index, seeding its counter on first use.
+     * @param productId the ID of the product
+     * @param saleDate the current date
+     * @param currentTime the current time of day
+     * @return the active flash sale configuration
+     * @throws BusinessException if no active flash sale exists for the product
+     */
+    @Override
+    public FlashSaleConfig getActiveFlashSale(Long productId, LocalDate saleDate, LocalTime currentTime) {
+        return counterFor(productId, saleDate, currentTime).flashSale;
+    }
+
+    /**
+     * Reserves one unit of the active flash sale for a product with a lock-free decrement.
+     * The sale is resolved from the schedule index on every call, so a deactivated, moved or edited sale
+     * takes effect with the next reload. The counter is seeded from the database the first time a sale
+     * is seen, after which requests are accepted or rejected without borrowing a connection.
+     * @param productId the ID of the product being purchased
+     * @param saleDate the current date
+     * @param currentTime the current time of day
+     * @return the flash sale configuration the unit was reserved from
+     * @throws BusinessException if no active flash sale exists for the product
+     * @throws SoldOutException if every remaining unit is already reserved
+     */
+    @Override
+    public FlashSaleConfig reserve(Long productId, LocalDate saleDate, LocalTime currentTime) {
+        StockCounter counter = counterFor(productId, saleDate, currentTime);
+        if (!counter.tryDecrement()) {
+            throw new SoldOutException();
+        }
+        return counter.flashSale;
+    }
+
+    /**
+     * Checks that the product has an active flash sale with unreserved units, without reserving one.
+     * @param productId the ID of the product being purchased
+     * @param saleDate the current date
+     * @param currentTime the current time of day
+     * @throws BusinessException if no active flash sale exists for the product
+     * @throws SoldOutException if every remaining unit is already reserved
+     */
+    @Override
+    public void ensureAvailable(Long productId, LocalDate saleDate, LocalTime currentTime) {
+        StockCounter counter = counterFor(productId, saleDate, currentTime);
+        if (counter.remaining.get() <= 0) {
+            throw new SoldOutException();
+        }
+    }
+
+    /**
+     * Returns the number of units of a flash sale that are not reserved on this instance.
+     * @param flashSale the flash sale configuration returned by {@link #reserve}
+     * @return remaining units, or 0 if the sale is no longer tracked
+     */
+    @Override
+    public int getRemaining(FlashSaleConfig flashSale) {
+        StockCounter counter = countersBySale.get(flashSale.getId());
+        return counter == null ? 0 : Math.max(0, counter.remaining.get());
+    }
+
+    /**
+     * Returns a previously reserved unit, e.g. when the purchase transaction rolls back
+     * or a completed order is cancelled, and lifts the sold out flag of the sale.
+     * @param flashSale the flash sale configuration returned by {@link #reserve}
+     */
+    @Override
+    public void release(FlashSaleConfig flashSale) {
+        StockCounter counter = countersBySale.get(flashSale.getId());
+        if (counter != null) {
+            counter.remaining.incrementAndGet();
+        }
+        soldOutRegistryService.clearSoldOut(flashSale);
+    }
+
+    /**
+     * Drops the remaining count to zero once the database reports the sale as sold out,
+     * which happens when another instance sold the last units.
+     * @param flashSale the flash sale configuration returned by {@link #reserve}
+     */
+    @Override
+    public void markSoldOut(FlashSaleConfig flashSale) {
+        StockCounter counter = countersBySale.get(flashSale.getId());
+        if (counter != null) {
+            counter.remaining.set(0);
+            log.info("Flash sale marked as sold out: flashSaleId={}", flashSale.getId());
+        }
+    }
+
+    private StockCounter counterFor(Long productId, LocalDate saleDate, LocalTime currentTime) {
+        FlashSaleConfig flashSale = flashSaleScheduleService.findActiveFlashSale(productId, saleDate, currentTime)
+                .orElseThrow(() -> new BusinessException("No active flash sale for this product"));
+        StockCounter counter = countersBySale.get(flashSale.getId());
+        if (counter == null) {
+            return seed(flashSale);
+        }
+        counter.refresh(flashSale);
+        return counter;
+    }
+
+    private StockCounter seed(FlashSaleConfig flashSale) {
+        // The schedule index may be older than the last sale, so seed from the current sold quantity
+        int soldQuantity = flashSaleConfigRepository.findSoldQuantityById(flashSale.getId())
+                .orElseThrow(() -> new BusinessException("No active flash sale for this product"));
+        StockCounter seeded = new StockCounter(flashSale, soldQuantity);
+
+        // Keep the counter that is already installed for the sale so concurrent seeds never add stock twice
+        StockCounter counter = countersBySale.putIfAbsent(flashSale.getId(), seeded);
+        if (counter != null) {
+            counter.refresh(flashSale);
+            return counter;
+        }
+        // Earlier sales of the product are over once a new one is active
+        countersBySale.values().removeIf(other -> other.flashSale.getProductId().equals(flashSale.getProductId())
+                && !other.flashSale.getId().equals(flashSale.getId()));
+        log.info("Stock counter seeded: flashSaleId={}, productId={}, remaining={}",
+                flashSale.getId(), flashSale.getProductId(), seeded.remaining.get());
+        return seeded;
+    }
+
+    private static final class StockCounter {
+        private volatile FlashSaleConfig flashSale;
+        private final AtomicInteger remaining;
+
+        private StockCounter(FlashSaleConfig flashSale, int soldQuantity) {
+            this.flashSale = flashSale;
+            this.remaining = new AtomicInteger(Math.max(0, flashSale.getFlashQuantity() - soldQuantity));
+        }
+
+        /**
+         * Swaps in the configuration of a schedule reload. A changed flash quantity moves the remaining
+         * units by the difference, reservations already made stay counted.
+         */
+        private void refresh(FlashSaleConfig reloaded) {
+            if (flashSale == reloaded) {
+                return;
+            }
+            synchronized (this) {
+                int added = reloaded.getFlashQuantity() - flashSale.getFlashQuantity();
+                if (added != 0) {
+                    remaining.addAndGet(added);
+                }
+                flashSale = reloaded;
+            }
+        }
+
+        private boolean tryDecrement() {
+            int current;
+            do {
+                current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - 1));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.service.IdGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.function.LongSupplier;
+
+/**
+ * Builds ids from the current millisecond, the node id and a per-millisecond sequence without touching
+ * the database. Ids of one node only grow. Across nodes they follow wall-clock order up to the clock skew.
+ * <p>
+ * Layout: 41 bits milliseconds since 2025-01-01 | 5 bits node | 7 bits sequence. The total of 53 bits
+ * keeps ids exact as JSON numbers in browsers and lasts until 2094.
+ */
+@Service
+@ConditionalOnProperty(name = "flash-sale.id.strategy", havingValue = "time-ordered", matchIfMissing = true)
+public class TimeOrderedIdGenerator implements IdGenerator {
+    static final long EPOCH_MILLIS = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 5;
+    static final int SEQUENCE_BITS = 7;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long MAX_TIMESTAMP = (1L << 41) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+
+    private long lastMillis = -1;
+    private long sequence;
+
+    @Autowired
+    public TimeOrderedIdGenerator(@Value("${flash-sale.id.node-id:0}") int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    TimeOrderedIdGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized long nextId(String table) {
+        long millis = clock.getAsLong() - EPOCH_MILLIS;
+        if (millis > lastMillis) {
+            lastMillis = millis;
+            sequence = 0;
+        } else if (++sequence > SEQUENCE_MASK) {
+            // Sequence exhausted or the clock moved back, borrow the next millisecond instead of waiting
+            lastMillis++;
+            sequence = 0;
+        }
+        if (lastMillis < 0 || lastMillis > MAX_TIMESTAMP) {
+            throw new IllegalStateException("Clock is outside the id range: " + clock.getAsLong());
+        }
+        return (lastMillis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | sequence;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.RevokedToken;
+import com.example.flashsale.repository.RevokedTokenRepository;
+import com.example.flashsale.service.TokenDenylistService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Service
+@Slf4j
+public class TokenDenylistServiceImpl implements TokenDenylistService {
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final int expectedRevocations;
+    private final double falsePositiveRate;
+
+    private final Object writeLock = new Object();
+    private volatile Denylist denylist;
+
+    public TokenDenylistServiceImpl(RevokedTokenRepository revokedTokenRepository,
+                                    @Value("${jwt.denylist.expected-revocations:100000}") int expectedRevocations,
+                                    @Value("${jwt.denylist.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.denylist = new Denylist(new BloomFilter(expectedRevocations, falsePositiveRate));
+    }
+
+    /**
+     * Revokes a token until it expires. The revocation is stored first so it survives restarts
+     * and reaches other instances on their next reload.
+     * @param jti the jti claim of the token
+     * @param userId the ID of the user the token was issued to
+     * @param expiresAt the exp claim of the token
+     * @throws IllegalArgumentException if the token has no jti, so it cannot be denylisted
+     */
+    @Override
+    public void revoke(String jti, Long userId, LocalDateTime expiresAt) {
+        if (jti == null) {
+            throw new IllegalArgumentException("Token without jti cannot be revoked");
+        }
+        if (!expiresAt.isAfter(LocalDateTime.now())) {
+            // The filter already rejects expired tokens, there is nothing left to deny
+            return;
+        }
+        synchronized (writeLock) {
+            if (isRevoked(jti)) {
+                return;
+            }
+            try {
+                revokedTokenRepository.save(RevokedToken.builder().jti(jti).userId(userId).expiresAt(expiresAt).build());
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Token already revoked by another instance: jti={}", jti);
+            }
+            denylist.add(jti, toEpochMillis(expiresAt));
+        }
+        log.info("Token revoked: userId={}, jti={}", userId, jti);
+    }
+
+    /**
+     * Checks whether a token has been revoked. Almost every token misses the Bloom filter,
+     * which answers without touching the exact set or allocating.
+     * @param jti the jti claim of the token, may be null for tokens issued before it was added
+     * @return true if the token was revoked
+     */
+    @Override
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        Denylist current = denylist;
+        return current.bloomFilter.mightContain(jti) && current.expiresAtByJti.containsKey(jti);
+    }
+
+    /**
+     * Rebuilds the denylist from the database, dropping expired entries, which a Bloom filter
+     * cannot delete, and picking up revocations made on other instances.
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jwt.denylist.reload-interval-millis:30000}", initialDelayString = "${jwt.denylist.reload-interval-millis:30000}")
+    public void reload() {
+        LocalDateTime now = LocalDateTime.now();
+        long nowMillis = toEpochMillis(now);
+        List<RevokedToken> revokedTokens = revokedTokenRepository.findByExpiresAtAfter(now);
+        synchronized (writeLock) {
+            Denylist previous = denylist;
+            int capacity = Math.max(expectedRevocations, 2 * (revokedTokens.size() + previous.expiresAtByJti.size()));
+            Denylist rebuilt = new Denylist(new BloomFilter(capacity, falsePositiveRate));
+            revokedTokens.forEach(token -> rebuilt.add(token.getJti(), toEpochMillis(token.getExpiresAt())));
+            // Keep local revocations the query may not have seen yet
+            previous.expiresAtByJti.forEach((jti, expiresAtMillis) -> {
+                if (expiresAtMillis > nowMillis) {
+                    rebuilt.add(jti, expiresAtMillis);
+                }
+            });
+            denylist = rebuilt;
+        }
+        log.debug("Token denylist reloaded: revoked={}", revokedTokens.size());
+    }
+
+    @Scheduled(cron = "${jwt.denylist.cleanup-cron:0 30 * * * *}")
+    public void purgeExpired() {
+        int deleted = revokedTokenRepository.deleteExpiredBefore(LocalDateTime.now());
+        log.info("Expired revoked tokens purged: count={}", deleted);
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static final class Denylist {
+        private final BloomFilter bloomFilter;
+        private final ConcurrentMap<String, Long> expiresAtByJti = new ConcurrentHashMap<>();
+
+        private Denylist(BloomFilter bloomFilter) {
+            this.bloomFilter = bloomFilter;
+        }
+
+        private void add(String jti, long expiresAtMillis) {
+            // Exact set first, a reader that passes the filter must find the entry
+            expiresAtByJti.put(jti, expiresAtMillis);
+            bloomFilter.add(jti);
+        }
+    }
+
+    /**
+     * Bloom filter over token IDs using double hashing of one 64-bit hash of the string.
+     */
+    private static final class BloomFilter {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+
+        private BloomFilter(int expectedInsertions, double falsePositiveRate) {
+            double ln2 = Math.log(2);
+            long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+            this.bitCount = Math.max(64, Math.min(bits, (long) Integer.MAX_VALUE * 64));
+            this.words = new AtomicLongArray((int) ((bitCount + 63) / 64));
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * ln2));
+        }
+
+        private void add(String value) {
+            long hash = hash(value);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = index(hash, i);
+                long mask = 1L << bit;
+                words.getAndAccumulate((int) (bit >>> 6), mask, (current, update) -> current | update);
+            }
+        }
+
+        private boolean mightContain(String value) {
+            long hash = hash(value);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = index(hash, i);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long index(long hash, int i) {
+            long combined = (hash & 0xFFFFFFFFL) + i * (hash >>> 32);
+            return Math.floorMod(combined, bitCount);
+        }
+
+        // FNV-1a over the UTF-16 code units followed by a 64-bit finalizer, no intermediate byte array
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.QueueTokenResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.service.StockReservationService;
+import com.example.flashsale.service.WaitingRoomService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Base64;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Slf4j
+public class WaitingRoomServiceImpl implements WaitingRoomService {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final StockReservationService stockReservationService;
+    private final SecretKeySpec signingKey;
+    private final int maxAdmitPerSecond;
+    private final int minAdmitPerSecond;
+    private final double throughputHeadroom;
+    private final Duration admissionTtl;
+    private final double ticksPerSecond;
+
+    private final ConcurrentMap<Long, SaleRoom> roomsBySale = new ConcurrentHashMap<>();
+
+    public WaitingRoomServiceImpl(StockReservationService stockReservationService,
+                                  @Value("${flash-sale.purchase.waiting-room.secret:${jwt.secret}}") String secret,
+                                  @Value("${flash-sale.purchase.waiting-room.max-admit-per-second:50}") int maxAdmitPerSecond,
+                                  @Value("${flash-sale.purchase.waiting-room.min-admit-per-second:5}") int minAdmitPerSecond,
+                                  @Value("${flash-sale.purchase.waiting-room.throughput-headroom:1.5}") double throughputHeadroom,
+                                  @Value("${flash-sale.purchase.waiting-room.admission-ttl-seconds:120}") long admissionTtlSeconds,
+                                  @Value("${flash-sale.purchase.waiting-room.admit-interval-millis:1000}") long admitIntervalMillis) {
+        this.stockReservationService = stockReservationService;
+        this.signingKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.maxAdmitPerSecond = maxAdmitPerSecond;
+        this.minAdmitPerSecond = minAdmitPerSecond;
+        this.throughputHeadroom = throughputHeadroom;
+        this.admissionTtl = Duration.ofSeconds(admissionTtlSeconds);
+        this.ticksPerSecond = 1000.0 / admitIntervalMillis;
+    }
+
+    /**
+     * Places the user in the waiting room of the flash sale running for a product.
+     * Joining again returns the position the user already holds, unless its admission expired unused.
+     * @param userId the ID of the authenticated user
+     * @param productId the ID of the product
+     * @return QueueTokenResponse carrying the signed queue token and the current position
+     * @throws BusinessException if no active flash sale exists for the product or it has no waiting room
+     */
+    @Override
+    public QueueTokenResponse join(Long userId, Long productId) {
+        FlashSaleConfig flashSale = stockReservationService.getActiveFlashSale(productId, LocalDate.now(), LocalTime.now());
+        if (!Boolean.TRUE.equals(flashSale.getWaitingRoomEnabled())) {
+            throw new BusinessException("This flash sale has no waiting room");
+        }
+
+        // Users whose admission lapsed unused go to the back of the queue
+        SaleRoom room = roomsBySale.computeIfAbsent(flashSale.getId(), id -> new SaleRoom(flashSale));
+        LocalDateTime now = LocalDateTime.now();
+        QueueEntry entry = room.entriesByUser.compute(userId, (id, existing) ->
+                existing == null || (existing.isExpired(now) && !existing.completed) ? room.enqueue() : existing);
+        return toResponse(room, entry, sign(flashSale.getId(), userId, entry.position));
+    }
+
+    /**
+     * Returns the state of a queue token owned by the authenticated user.
+     * @param userId the ID of the authenticated user
+     * @param queueToken the token returned by {@link #join}
+     * @return QueueTokenResponse with WAITING, ADMITTED, EXPIRED or SOLD_OUT status
+     * @throws BusinessException if the token is invalid, belongs to another user or its sale has ended
+     */
+    @Override
+    public QueueTokenResponse getStatus(Long userId, String queueToken) {
+        QueueEntry entry = verify(userId, queueToken);
+        return toResponse(roomsBySale.get(entry.flashSaleId), entry, queueToken);
+    }
+
+    /**
+     * Lets the purchase through only if the sale has no waiting room or the user's token has been admitted.
+     * @param userId the ID of the purchasing user
+     * @param flashSale the active flash sale configuration
+     * @param queueToken the token returned by {@link #join}, may be null for sales without a waiting room
+     * @throws BusinessException if the token is missing, invalid, not yet admitted or its admission expired
+     * @throws SoldOutException if remaining stock is already spoken for by admitted tokens
+     */
+    @Override
+    public void checkAdmitted(Long userId, FlashSaleConfig flashSale, String queueToken) {
+        if (!Boolean.TRUE.equals(flashSale.getWaitingRoomEnabled())) {
+            return;
+        }
+        if (queueToken == null) {
+            throw new BusinessException("A queue token is required for this flash sale");
+        }
+        QueueEntry entry = verify(userId, queueToken);
+        if (!entry.flashSaleId.equals(flashSale.getId())) {
+            throw new BusinessException("Queue token is not valid for this flash sale");
+        }
+        QueueStatus status = statusOf(roomsBySale.get(entry.flashSaleId), entry);
+        if (status == QueueStatus.SOLD_OUT) {
+            throw new SoldOutException();
+        }
+        if (status == QueueStatus.EXPIRED) {
+            throw new BusinessException("Queue admission expired, please join the queue again");
+        }
+        if (status == QueueStatus.WAITING) {
+            throw new BusinessException("Not admitted yet, please wait for your turn");
+        }
+    }
+
+    /**
+     * Records that an admitted user reserved a unit, which the remaining stock no longer counts.
+     * @param userId the ID of the purchasing user
+     * @param flashSale the flash sale configuration the unit was reserved from
+     */
+    @Override
+    public void recordReservation(Long userId, FlashSaleConfig flashSale) {
+        QueueEntry entry = entryOf(userId, flashSale);
+        if (entry != null) {
+            entry.reserved = true;
+        }
+    }
+
+    /**
+     * Records that the unit reserved by an admitted user was given back, for example after a rollback.
+     * @param userId the ID of the purchasing user
+     * @param flashSale the flash sale configuration the unit was reserved from
+     */
+    @Override
+    public void releaseReservation(Long userId, FlashSaleConfig flashSale) {
+        QueueEntry entry = entryOf(userId, flashSale);
+        if (entry != null) {
+            entry.reserved = false;
+        }
+    }
+
+    /**
+     * Records a committed purchase, freeing the admission and feeding the measured commit throughput.
+     * @param userId the ID of the purchasing user
+     * @param flashSale the flash sale configuration the purchase was made from
+     */
+    @Override
+    public void complete(Long userId, FlashSaleConfig flashSale) {
+        SaleRoom room = roomsBySale.get(flashSale.getId());
+        if (room == null) {
+            return;
+        }
+        QueueEntry entry = room.entriesByUser.get(userId);
+        if (entry != null && !entry.completed) {
+            entry.completed = true;
+            room.commitsSinceTick.incrementAndGet();
+        }
+    }
+
+    /**
+     * Admits the next batch of queued users of every open room, sized to the measured commit throughput
+     * and capped by the units not yet spoken for by outstanding admissions.
+     */
+    @Scheduled(fixedRateString = "${flash-sale.purchase.waiting-room.admit-interval-millis:1000}")
+    public void admitNext() {
+        LocalDateTime now = LocalDateTime.now();
+        roomsBySale.values().removeIf(room -> now.isAfter(LocalDateTime.of(room.flashSale.getSaleDate(), room.flashSale.getEndTime())));
+        roomsBySale.values().forEach(room -> admit(room, now));
+    }
+
+    private void admit(SaleRoom room, LocalDateTime now) {
+        // Step 1: fold the commits since the last tick into the per-second throughput estimate
+        room.commitsPerSecond = room.commitsPerSecond * 0.5 + room.commitsSinceTick.getAndSet(0) * ticksPerSecond * 0.5;
+
+        // Step 2: drop admissions that were used or expired. What is left still holds a unit, which the
+        // remaining stock already excludes once the user has reserved it
+        room.admitted.removeIf(entry -> entry.completed || entry.isExpired(now));
+        long unreserved = room.admitted.stream().filter(entry -> !entry.reserved).count();
+        int unspoken = (int) (stockReservationService.getRemaining(room.flashSale) - unreserved);
+        room.soldOut = unspoken <= 0;
+        if (room.soldOut) {
+            return;
+        }
+
+        // Step 3: admit the next positions in order, the rates are per second and the fraction of a
+        // position a tick cannot admit is carried to the next tick
+        int maxRate = room.flashSale.getWaitingRoomAdmitRate() != null ? room.flashSale.getWaitingRoomAdmitRate() : maxAdmitPerSecond;
+        int target = Math.max(minAdmitPerSecond, (int) Math.ceil(room.commitsPerSecond * throughputHeadroom));
+        double credit = room.admitCredit + Math.min(target, maxRate) / ticksPerSecond;
+        int batch = Math.min((int) credit, unspoken);
+        long admittedThrough = room.admittedThrough;
+        long last = Math.min(admittedThrough + batch, room.nextPosition.get());
+        LocalDateTime expiresAt = now.plus(admissionTtl);
+        for (long position = admittedThrough + 1; position <= last; position++) {
+            QueueEntry entry = room.entriesByPosition.get(position);
+            if (entry == null) {
+                // The position is taken but its entry is not published yet, pick it up on the next tick
+                last = position - 1;
+                break;
+            }
+            entry.admissionExpiresAt = expiresAt;
+            room.admitted.add(entry);
+        }
+        room.admittedThrough = last;
+        // Credit left over because the queue ran short is dropped, only the fraction is carried
+        room.admitCredit = Math.min(credit - (last - admittedThrough), 1.0);
+        if (last > admittedThrough) {
+            log.info("Waiting room admitted: flashSaleId={}, through={}, queued={}",
+                    room.flashSale.getId(), last, room.nextPosition.get() - last);
+        }
+    }
+
+    private QueueEntry entryOf(Long userId, FlashSaleConfig flashSale) {
+        SaleRoom room = roomsBySale.get(flashSale.getId());
+        return room != null ? room.entriesByUser.get(userId) : null;
+    }
+
+    private QueueTokenResponse toResponse(SaleRoom room, QueueEntry entry, String queueToken) {
+        QueueStatus status = statusOf(room, entry);
+        return QueueTokenResponse.builder()
+                .queueToken(queueToken)
+                .productId(room.flashSale.getProductId())
+                .position(entry.position)
+                .positionsAhead(status == QueueStatus.WAITING ? Math.max(0, entry.position - room.admittedThrough - 1) : null)
+                .status(status.toString())
+                .admissionExpiresAt(status == QueueStatus.ADMITTED ? entry.admissionExpiresAt : null)
+                .build();
+    }
+
+    private QueueStatus statusOf(SaleRoom room, QueueEntry entry) {
+        LocalDateTime expiresAt = entry.admissionExpiresAt;
+        if (expiresAt != null) {
+            return entry.isExpired(LocalDateTime.now()) && !entry.completed ? QueueStatus.EXPIRED : QueueStatus.ADMITTED;
+        }
+        // Everyone still waiting learns at once that the stock is spoken for
+        return room.soldOut ? QueueStatus.SOLD_OUT : QueueStatus.WAITING;
+    }
+
+    private QueueEntry verify(Long userId, String queueToken) {
+        int separator = queueToken.lastIndexOf('.');
+        if (separator < 0) {
+            throw new BusinessException("Invalid queue token");
+        }
+        String payload = queueToken.substring(0, separator);
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(queueToken.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("Invalid queue token");
+        }
+        if (!MessageDigest.isEqual(hmac(payload), signature)) {
+            throw new BusinessException("Invalid queue token");
+        }
+
+        String[] parts = new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8).split(":");
+        Long flashSaleId = Long.valueOf(parts[0]);
+        if (!Long.valueOf(parts[1]).equals(userId)) {
+            throw new BusinessException("Invalid queue token");
+        }
+        SaleRoom room = roomsBySale.get(flashSaleId);
+        QueueEntry entry = room != null ? room.entriesByUser.get(userId) : null;
+        if (entry == null || entry.position != Long.parseLong(parts[2])) {
+            throw new BusinessException("Queue token is no longer valid");
+        }
+        return entry;
+    }
+
+    private String sign(Long flashSaleId, Long userId, long position) {
+        String payload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((flashSaleId + ":" + userId + ":" + position).getBytes(StandardCharsets.UTF_8));
+        return payload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(hmac(payload));
+    }
+
+    private byte[] hmac(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign queue token", e);
+        }
+    }
+
+    private enum QueueStatus {
+        WAITING, ADMITTED, EXPIRED, SOLD_OUT
+    }
+
+    private static final class SaleRoom {
+        private final FlashSaleConfig flashSale;
+        private final AtomicLong nextPosition = new AtomicLong();
+        private final ConcurrentMap<Long, QueueEntry> entriesByUser = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Long, QueueEntry> entriesByPosition = new ConcurrentHashMap<>();
+        private final Queue<QueueEntry> admitted = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger commitsSinceTick = new AtomicInteger();
+
+        // Written only by the admission tick
+        private volatile long admittedThrough;
+        private volatile boolean soldOut;
+        private double commitsPerSecond;
+        private double admitCredit;
+
+        private SaleRoom(FlashSaleConfig flashSale) {
+            this.flashSale = flashSale;
+        }
+
+        private QueueEntry enqueue() {
+            QueueEntry entry = new QueueEntry(flashSale.getId(), nextPosition.incrementAndGet());
+            entriesByPosition.put(entry.position, entry);
+            return entry;
+        }
+    }
+
+    private static final class QueueEntry {
+        private final Long flashSaleId;
+        private final long position;
+        private volatile LocalDateTime admissionExpiresAt;
+        private volatile boolean reserved;
+        private volatile boolean completed;
+
+        private QueueEntry(Long flashSaleId, long position) {
+            this.flashSaleId = flashSaleId;
+            this.position = position;
+        }
+
+        private boolean isExpired(LocalDateTime now) {
+            return admissionExpiresAt != null && now.isAfter(admissionExpiresAt);
+        }
+    }
+}
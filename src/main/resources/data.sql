@@ -31,6 +31,9 @@ INSERT INTO flash_sale_configs (product_id, start_time, end_time, flash_price, f
 (9, '20:00:00', '22:00:00', 6990000, 15, 0, CURRENT_DATE, TRUE),
 (10, '20:00:00', '22:00:00', 14990000, 8, 0, CURRENT_DATE, TRUE);
 
+-- Hot drops go through the waiting room (the PlayStation 5 evening drop; the Postman purchase uses product 1 without a queue token)
+UPDATE flash_sale_configs SET waiting_room_enabled = TRUE WHERE product_id = 8;
+
 -- Insert demo users with balance (password is "Password123!" for all)
 -- Password hash generated using BCrypt with strength 10
 INSERT INTO users (email, phone, password_hash, balance, email_verified, phone_verified) VALUES
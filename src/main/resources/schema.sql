@@ -1,4 +1,6 @@
 -- Drop tables if exist (for clean restart)
+DROP TABLE IF EXISTS id_blocks;
+DROP TABLE IF EXISTS purchase_idempotency_keys;
 DROP TABLE IF EXISTS inventory_sync_logs;
 DROP TABLE IF EXISTS flash_sale_orders;
 DROP TABLE IF EXISTS flash_sale_configs;
@@ -59,9 +61,15 @@ CREATE TABLE flash_sale_configs (
     sold_quantity INT DEFAULT 0,
     sale_date DATE NOT NULL,
     is_active BOOLEAN DEFAULT TRUE,
+    purchase_mode VARCHAR(20) COMMENT 'PESSIMISTIC, OPTIMISTIC, ATOMIC_UPDATE or SEQUENCED, NULL uses the application default',
+    max_purchase_retries INT COMMENT 'Retry budget for OPTIMISTIC mode, NULL uses the application default',
+    purchase_rate_limit INT COMMENT 'Purchase requests admitted per second for this sale, NULL uses the application default',
+    waiting_room_enabled BOOLEAN DEFAULT FALSE COMMENT 'Buyers must queue for an admitted token before purchasing',
+    waiting_room_admit_rate INT COMMENT 'Maximum queue tokens admitted per second, NULL uses the application default',
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     version BIGINT DEFAULT 0 COMMENT 'For optimistic locking',
+    CONSTRAINT chk_purchase_rate_limit CHECK (purchase_rate_limit > 0),
     FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE,
     INDEX idx_product_date (product_id, sale_date),
     INDEX idx_sale_date_time (sale_date, start_time, end_time, is_active)
@@ -76,6 +84,7 @@ CREATE TABLE flash_sale_orders (
     amount DECIMAL(15, 2) NOT NULL,
     status VARCHAR(20) DEFAULT 'COMPLETED' COMMENT 'COMPLETED, CANCELLED',
     ordered_at DATETIME NOT NULL,
+    stock_after INT NOT NULL COMMENT 'Product stock right after this order, read under the product row lock',
     order_date DATE AS (DATE(ordered_at)) STORED,
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
@@ -83,6 +92,7 @@ CREATE TABLE flash_sale_orders (
     FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE,
     FOREIGN KEY (flash_sale_config_id) REFERENCES flash_sale_configs(id) ON DELETE CASCADE,
     INDEX idx_user_date (user_id, ordered_at),
+    INDEX idx_ordered_at (ordered_at),
     INDEX idx_flash_sale_config (flash_sale_config_id),
     UNIQUE KEY uk_user_order_date (user_id, order_date)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -100,5 +110,36 @@ CREATE TABLE inventory_sync_logs (
     FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE,
     INDEX idx_product_id (product_id),
     INDEX idx_reference (reference_id),
+    INDEX idx_synced_at (synced_at),
     UNIQUE KEY uk_sync_reference (sync_type, reference_id)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
\ No newline at end of file
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Create PURCHASE_IDEMPOTENCY_KEYS table
+CREATE TABLE purchase_idempotency_keys (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(64) NOT NULL COMMENT 'Idempotency-Key header sent by the client',
+    product_id BIGINT NOT NULL COMMENT 'Product the key was first used for, a replay for another product is rejected',
+    response_body TEXT NOT NULL COMMENT 'Serialized PurchaseResponse returned on replay',
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    INDEX idx_created_at (created_at),
+    UNIQUE KEY uk_user_idempotency_key (user_id, idempotency_key)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Create ID_BLOCKS table, next unreserved id per table for flash-sale.id.strategy=pooled
+CREATE TABLE id_blocks (
+    table_name VARCHAR(64) PRIMARY KEY,
+    next_value BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Create REVOKED_TOKENS table, kept across restarts so logged out tokens stay rejected until they expire
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    jti VARCHAR(36) NOT NULL COMMENT 'jti claim of the revoked JWT',
+    user_id BIGINT NOT NULL,
+    expires_at DATETIME NOT NULL COMMENT 'exp claim of the token, the row can be purged after it',
+    revoked_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_jti (jti),
+    INDEX idx_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
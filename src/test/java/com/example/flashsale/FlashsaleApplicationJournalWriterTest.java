@@ -0,0 +1,44 @@
+package com.example.flashsale;
+
+import com.example.flashsale.service.InventorySyncLogWriter;
+import com.example.flashsale.service.impl.JournalInventorySyncLogWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:journal_writer;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "flash-sale.inventory-sync.writer=journal"
+})
+class FlashsaleApplicationJournalWriterTest {
+
+    @TempDir
+    static Path journalDirectory;
+
+    @Autowired
+    private InventorySyncLogWriter inventorySyncLogWriter;
+
+    @DynamicPropertySource
+    static void journalProperties(DynamicPropertyRegistry registry) {
+        registry.add("flash-sale.inventory-sync.journal.directory", () -> journalDirectory.toString());
+    }
+
+    @Test
+    void contextLoads_WithJournalWriter() {
+        assertInstanceOf(JournalInventorySyncLogWriter.class, inventorySyncLogWriter);
+    }
+}
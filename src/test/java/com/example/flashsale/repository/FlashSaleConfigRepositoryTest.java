@@ -0,0 +1,95 @@
+package com.example.flashsale.repository;
+
+import com.example.flashsale.config.IdGeneratorConfig;
+import com.example.flashsale.dto.FlashSaleScheduleRow;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.entity.Product;
+import com.example.flashsale.service.impl.TimeOrderedIdGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({TimeOrderedIdGenerator.class, IdGeneratorConfig.class})
+class FlashSaleConfigRepositoryTest {
+    private static final LocalDate TODAY = LocalDate.of(2026, 1, 1);
+
+    @Autowired
+    private FlashSaleConfigRepository flashSaleConfigRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void findScheduleForDate_StatementCountIndependentOfSaleCount() {
+        persistSales(1);
+        assertEquals(1, countStatements());
+
+        persistSales(20);
+        assertEquals(1, countStatements());
+    }
+
+    @Test
+    void findScheduleForDate_ProjectsProductFields() {
+        persistSales(1);
+
+        List<FlashSaleScheduleRow> rows = flashSaleConfigRepository.findScheduleForDate(TODAY);
+
+        assertEquals(1, rows.size());
+        assertEquals("Product 0", rows.get(0).getProductName());
+        assertEquals(0, new BigDecimal("30000000").compareTo(rows.get(0).getRegularPrice()));
+    }
+
+    private long countStatements() {
+        entityManager.clear();
+        statistics.clear();
+        flashSaleConfigRepository.findScheduleForDate(TODAY);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void persistSales(int count) {
+        for (int i = 0; i < count; i++) {
+            Product product = entityManager.persist(Product.builder()
+                    .name("Product " + i)
+                    .description("Description " + i)
+                    .regularPrice(new BigDecimal("30000000"))
+                    .stockQuantity(100).build());
+            entityManager.persist(FlashSaleConfig.builder()
+                    .productId(product.getId())
+                    .flashPrice(new BigDecimal("25000000"))
+                    .flashQuantity(10)
+                    .saleDate(TODAY)
+                    .startTime(LocalTime.of(10, 0))
+                    .endTime(LocalTime.of(12, 0)).build());
+        }
+        entityManager.flush();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.flashsale.repository;
+
+import com.example.flashsale.config.IdGeneratorConfig;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.entity.FlashSaleOrder;
+import com.example.flashsale.entity.Product;
+import com.example.flashsale.entity.User;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.service.InventorySyncService;
+import com.example.flashsale.service.PurchaseIdempotencyService;
+import com.example.flashsale.service.impl.AtomicUpdatePurchaseStrategy;
+import com.example.flashsale.service.impl.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Inserts real duplicate orders against uk_user_order_date. Order ids are assigned before insert,
+ * so the violation only shows up when the insert is flushed.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import({TimeOrderedIdGenerator.class, IdGeneratorConfig.class, AtomicUpdatePurchaseStrategy.class})
+class FlashSaleOrderDuplicateTest {
+
+    @Autowired
+    private FlashSaleOrderRepository flashSaleOrderRepository;
+
+    @MockitoBean
+    private InventorySyncService inventorySyncService;
+
+    @MockitoBean
+    private PurchaseIdempotencyService purchaseIdempotencyService;
+
+    @Autowired
+    private AtomicUpdatePurchaseStrategy atomicUpdatePurchaseStrategy;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    private FlashSaleConfig flashSale;
+
+    @BeforeEach
+    void setUp() {
+        // schema.sql declares order_date as a MySQL stored generated column, rebuild it in H2 syntax
+        jdbcTemplate.execute("DROP INDEX IF EXISTS uk_user_order_date");
+        jdbcTemplate.execute("ALTER TABLE flash_sale_orders DROP COLUMN IF EXISTS order_date");
+        jdbcTemplate.execute("ALTER TABLE flash_sale_orders ADD COLUMN order_date DATE GENERATED ALWAYS AS (CAST(ordered_at AS DATE))");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX uk_user_order_date ON flash_sale_orders (user_id, order_date)");
+
+        Product product = entityManager.persist(Product.builder()
+                .name("iPhone 15 Pro")
+                .regularPrice(new BigDecimal("30000000"))
+                .stockQuantity(10)
+                .build());
+        flashSale = entityManager.persist(FlashSaleConfig.builder()
+                .productId(product.getId())
+                .startTime(LocalTime.MIN)
+                .endTime(LocalTime.MAX)
+                .flashPrice(new BigDecimal("25000000"))
+                .flashQuantity(10)
+                .saleDate(LocalDate.now())
+                .build());
+        user = entityManager.persist(User.builder()
+                .email("test@example.com")
+                .passwordHash("hash")
+                .balance(new BigDecimal("100000000"))
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+        flashSale = entityManager.find(FlashSaleConfig.class, flashSale.getId());
+    }
+
+    @Test
+    void saveAndFlush_SecondOrderSameDay_ThrowsDataIntegrityViolation() {
+        flashSaleOrderRepository.saveAndFlush(order(LocalDateTime.now()));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> flashSaleOrderRepository.saveAndFlush(order(LocalDateTime.now())));
+    }
+
+    @Test
+    void purchase_SecondOrderSameDay_RejectedWithDailyLimitMessage() {
+        Long orderId = atomicUpdatePurchaseStrategy.purchase(user.getId(), flashSale, null).getOrderId();
+        // The stock read back after the guarded decrement is this order's own
+        assertEquals(9, flashSaleOrderRepository.findById(orderId).orElseThrow().getStockAfter());
+
+        // No existence check runs first, uk_user_order_date alone rejects the second order
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> atomicUpdatePurchaseStrategy.purchase(user.getId(), flashSale, null));
+
+        assertEquals("You can only purchase one flash sale product per day", exception.getMessage());
+    }
+
+    private FlashSaleOrder order(LocalDateTime orderedAt) {
+        return FlashSaleOrder.builder()
+                .userId(user.getId())
+                .productId(flashSale.getProductId())
+                .flashSaleConfigId(flashSale.getId())
+                .amount(flashSale.getFlashPrice())
+                .stockAfter(9)
+                .orderedAt(orderedAt)
+                .build();
+    }
+}
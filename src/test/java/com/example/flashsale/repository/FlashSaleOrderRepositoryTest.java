@@ -0,0 +1,77 @@
+package com.example.flashsale.repository;
+
+import com.example.flashsale.config.IdGeneratorConfig;
+import com.example.flashsale.entity.FlashSaleOrder;
+import com.example.flashsale.service.impl.TimeOrderedIdGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=20"
+})
+@Import({TimeOrderedIdGenerator.class, IdGeneratorConfig.class})
+class FlashSaleOrderRepositoryTest {
+
+    @Autowired
+    private FlashSaleOrderRepository flashSaleOrderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void saveAll_AssignsIdsBeforeInsertAndBatchesStatements() {
+        List<FlashSaleOrder> orders = flashSaleOrderRepository.saveAll(orders(40));
+        // Ids are known on persist, nothing has been sent yet
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(orders.stream().allMatch(order -> order.getId() != null));
+
+        entityManager.flush();
+
+        assertEquals(40, statistics.getEntityInsertCount());
+        // One insert statement executed in batches, IDENTITY ids need a statement per row
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private static List<FlashSaleOrder> orders(int count) {
+        List<FlashSaleOrder> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(FlashSaleOrder.builder()
+                    .userId((long) i)
+                    .productId(1L)
+                    .flashSaleConfigId(1L)
+                    .amount(new BigDecimal("25000000"))
+                    .stockAfter(count - i - 1)
+                    .build());
+        }
+        return orders;
+    }
+}
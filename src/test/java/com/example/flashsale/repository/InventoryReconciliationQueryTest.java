@@ -0,0 +1,170 @@
+package com.example.flashsale.repository;
+
+import com.example.flashsale.config.IdGeneratorConfig;
+import com.example.flashsale.dto.FlashSaleSoldTotals;
+import com.example.flashsale.dto.ProductInventoryTotals;
+import com.example.flashsale.dto.ProductSyncLogTotals;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.entity.FlashSaleOrder;
+import com.example.flashsale.entity.InventorySyncLog;
+import com.example.flashsale.entity.Product;
+import com.example.flashsale.service.impl.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the aggregate queries the inventory reconciliation compares against real rows, including the
+ * ORDER_&lt;id&gt; join between orders and their sync logs.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import({TimeOrderedIdGenerator.class, IdGeneratorConfig.class})
+class InventoryReconciliationQueryTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 10, 30, 0);
+    private static final LocalDateTime SETTLED_BEFORE = NOW.minusMinutes(1);
+
+    @Autowired
+    private FlashSaleOrderRepository flashSaleOrderRepository;
+
+    @Autowired
+    private InventorySyncLogRepository inventorySyncLogRepository;
+
+    @Autowired
+    private FlashSaleConfigRepository flashSaleConfigRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Product product;
+    private Product untouchedProduct;
+    private Product otherProduct;
+    private FlashSaleConfig flashSale;
+    private FlashSaleConfig earlierFlashSale;
+    private FlashSaleConfig untouchedFlashSale;
+
+    @BeforeEach
+    void setUp() {
+        product = persistProduct("iPhone 15 Pro", 7);
+        untouchedProduct = persistProduct("Galaxy S24", 5);
+        otherProduct = persistProduct("Pixel 8", 3);
+        flashSale = persistFlashSale(product, 3, NOW.toLocalDate());
+        earlierFlashSale = persistFlashSale(product, 1, NOW.toLocalDate().minusDays(1));
+        untouchedFlashSale = persistFlashSale(untouchedProduct, 0, NOW.toLocalDate());
+        FlashSaleConfig otherFlashSale = persistFlashSale(otherProduct, 1, NOW.toLocalDate());
+
+        // Settled and synced, settled but never synced, and too recent to be settled
+        FlashSaleOrder synced = persistOrder(1L, flashSale, FlashSaleOrder.OrderStatus.COMPLETED, NOW.minusMinutes(10), 9);
+        FlashSaleOrder settledUnsynced = persistOrder(2L, flashSale, FlashSaleOrder.OrderStatus.COMPLETED, NOW.minusMinutes(10), 8);
+        persistOrder(3L, flashSale, FlashSaleOrder.OrderStatus.COMPLETED, NOW, 7);
+        persistOrder(4L, flashSale, FlashSaleOrder.OrderStatus.CANCELLED, NOW.minusMinutes(10), 6);
+        persistOrder(5L, otherFlashSale, FlashSaleOrder.OrderStatus.COMPLETED, NOW.minusMinutes(10), 2);
+
+        persistSyncLog(product, "FLASH_SALE_ORDER", "ORDER_" + synced.getId(), 9);
+        // A log of another type for the same reference does not settle the order
+        persistSyncLog(product, "MANUAL_ADJUSTMENT", "ORDER_" + settledUnsynced.getId(), 4);
+        // Left by an order that was since removed, it still counts towards the product's logs
+        persistSyncLog(product, "FLASH_SALE_ORDER", "ORDER_0", 6);
+        persistSyncLog(otherProduct, "FLASH_SALE_ORDER", "ORDER_1", 1);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findInventoryTotals_SplitsSettledAndUnsettledUnsyncedOrders() {
+        Map<Long, ProductInventoryTotals> totals = flashSaleOrderRepository
+                .findInventoryTotals(List.of(product.getId(), untouchedProduct.getId()), SETTLED_BEFORE)
+                .stream()
+                .collect(Collectors.toMap(ProductInventoryTotals::getProductId, Function.identity()));
+
+        assertEquals(2, totals.size());
+        assertEquals(new ProductInventoryTotals(product.getId(), 7, 3L, 2L, 1L), totals.get(product.getId()));
+        assertEquals(new ProductInventoryTotals(untouchedProduct.getId(), 5, 0L, 0L, 0L), totals.get(untouchedProduct.getId()));
+    }
+
+    @Test
+    void findSyncLogTotals_CountsOrderLogsAndLowestStockAfter() {
+        List<ProductSyncLogTotals> totals = inventorySyncLogRepository
+                .findSyncLogTotals(List.of(product.getId(), untouchedProduct.getId()));
+
+        assertEquals(List.of(new ProductSyncLogTotals(product.getId(), 2L, 6)), totals);
+    }
+
+    @Test
+    void findSoldTotals_CountsCompletedOrdersPerFlashSale() {
+        List<FlashSaleSoldTotals> totals = flashSaleConfigRepository
+                .findSoldTotals(List.of(product.getId(), untouchedProduct.getId()))
+                .stream()
+                .sorted(Comparator.comparing(FlashSaleSoldTotals::getFlashSaleId))
+                .toList();
+
+        assertEquals(List.of(
+                new FlashSaleSoldTotals(flashSale.getId(), product.getId(), 3, 3L),
+                new FlashSaleSoldTotals(earlierFlashSale.getId(), product.getId(), 1, 0L),
+                new FlashSaleSoldTotals(untouchedFlashSale.getId(), untouchedProduct.getId(), 0, 0L)
+        ), totals);
+    }
+
+    private Product persistProduct(String name, int stockQuantity) {
+        return entityManager.persist(Product.builder()
+                .name(name)
+                .regularPrice(new BigDecimal("30000000"))
+                .stockQuantity(stockQuantity)
+                .build());
+    }
+
+    private FlashSaleConfig persistFlashSale(Product product, int soldQuantity, LocalDate saleDate) {
+        return entityManager.persist(FlashSaleConfig.builder()
+                .productId(product.getId())
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(12, 0))
+                .flashPrice(new BigDecimal("25000000"))
+                .flashQuantity(10)
+                .soldQuantity(soldQuantity)
+                .saleDate(saleDate)
+                .build());
+    }
+
+    private FlashSaleOrder persistOrder(Long userId, FlashSaleConfig flashSale, FlashSaleOrder.OrderStatus status,
+                                       LocalDateTime orderedAt, int stockAfter) {
+        return entityManager.persist(FlashSaleOrder.builder()
+                .userId(userId)
+                .productId(flashSale.getProductId())
+                .flashSaleConfigId(flashSale.getId())
+                .amount(flashSale.getFlashPrice())
+                .status(status)
+                .orderedAt(orderedAt)
+                .stockAfter(stockAfter)
+                .build());
+    }
+
+    private void persistSyncLog(Product product, String syncType, String referenceId, int stockAfter) {
+        entityManager.persist(InventorySyncLog.builder()
+                .productId(product.getId())
+                .quantityChange(-1)
+                .stockBefore(stockAfter + 1)
+                .stockAfter(stockAfter)
+                .syncType(syncType)
+                .referenceId(referenceId)
+                .build());
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.flashsale.security;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtUtilTest {
+    private static final String SECRET = "mySecretKeyForJWTTokenGenerationMustBe256BitsOrMoreForHS256AlgorithmToWorkProperly";
+
+    private final JwtUtil jwtUtil = new JwtUtil(SECRET, 3600000L, 100);
+
+    @Test
+    void parseToken_CachesVerifiedClaims() {
+        String token = jwtUtil.generateToken("test@example.com", 1L);
+
+        assertEquals("test@example.com", jwtUtil.parseToken(token).getSubject());
+        assertSame(jwtUtil.parseToken(token), jwtUtil.parseToken(token));
+    }
+
+    @Test
+    void extractUserId_ReadsClaim() {
+        String token = jwtUtil.generateToken("test@example.com", 42L);
+
+        assertEquals(42L, jwtUtil.extractUserId(jwtUtil.parseToken(token)));
+    }
+
+    @Test
+    void parseToken_TamperedSignature_ThrowsException() {
+        String token = jwtUtil.generateToken("test@example.com", 1L);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(SignatureException.class, () -> jwtUtil.parseToken(tampered));
+    }
+
+    @Test
+    void parseToken_ExpiredToken_ThrowsException() {
+        String token = new JwtUtil(SECRET, -1000L, 100).generateToken("test@example.com", 1L);
+
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.parseToken(token));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.flashsale.security;
+
+import com.example.flashsale.service.PurchaseRateLimitService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class PurchaseRateLimitFilterTest {
+    private final PurchaseRateLimitService purchaseRateLimitService = mock(PurchaseRateLimitService.class);
+
+    private final PurchaseRateLimitFilter filter = new PurchaseRateLimitFilter(purchaseRateLimitService, new ObjectMapper().findAndRegisterModules());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "maxBodyBytes", 64);
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "test@example.com", "", List.of());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_SmallBody_PassesBodyDownstream() throws Exception {
+        MockHttpServletRequest request = purchaseRequest("{\"productId\":1}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        verify(purchaseRateLimitService).acquire(1L, 1L);
+        assertEquals("{\"productId\":1}",
+                new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void doFilter_ReadListener_ReceivesBufferedBody() throws Exception {
+        MockHttpServletRequest request = purchaseRequest("{\"productId\":1}");
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        ServletInputStream input = chain.getRequest().getInputStream();
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        boolean[] allDataRead = new boolean[1];
+        input.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                while (input.isReady() && !input.isFinished()) {
+                    received.write(input.read());
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allDataRead[0] = true;
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+        });
+
+        assertTrue(allDataRead[0]);
+        assertEquals("{\"productId\":1}", received.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void doFilter_OversizedBody_Returns413WithoutBuffering() throws Exception {
+        MockHttpServletRequest request = purchaseRequest("{\"productId\":1,\"padding\":\"" + "x".repeat(100) + "\"}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(413, response.getStatus());
+        assertNull(chain.getRequest());
+        verify(purchaseRateLimitService, never()).acquire(any(), any());
+    }
+
+    private MockHttpServletRequest purchaseRequest(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/flash-sale/purchase");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.entity.FlashSaleOrder;
+import com.example.flashsale.entity.Product;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.repository.FlashSaleOrderRepository;
+import com.example.flashsale.repository.ProductRepository;
+import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.service.InventorySyncService;
+import com.example.flashsale.service.PurchaseIdempotencyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AtomicUpdatePurchaseStrategyTest {
+    @Mock
+    private FlashSaleConfigRepository flashSaleConfigRepository;
+
+    @Mock
+    private FlashSaleOrderRepository flashSaleOrderRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private InventorySyncService inventorySyncService;
+
+    @Mock
+    private PurchaseIdempotencyService purchaseIdempotencyService;
+
+    @InjectMocks
+    private AtomicUpdatePurchaseStrategy purchaseStrategy;
+
+    private FlashSaleConfig testFlashSaleConfig;
+
+    @BeforeEach
+    void setUp() {
+        Product testProduct = Product.builder()
+                .id(1L).name("iPhone 15 Pro")
+                .regularPrice(new BigDecimal("30000000"))
+                .stockQuantity(100).build();
+
+        testFlashSaleConfig = FlashSaleConfig.builder()
+                .id(1L).productId(1L).product(testProduct)
+                .flashPrice(new BigDecimal("25000000"))
+                .flashQuantity(50).soldQuantity(10)
+                .saleDate(LocalDate.now())
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(12, 0)).build();
+    }
+
+    @Test
+    void purchase_Success() {
+        when(flashSaleConfigRepository.incrementSoldQuantity(1L)).thenReturn(1);
+        when(productRepository.decrementStock(1L)).thenReturn(1);
+        when(userRepository.deductBalance(1L, new BigDecimal("25000000"))).thenReturn(1);
+        when(flashSaleOrderRepository.saveAndFlush(any())).thenReturn(
+                FlashSaleOrder.builder().id(1L).amount(new BigDecimal("25000000"))
+                        .status(FlashSaleOrder.OrderStatus.COMPLETED).build());
+        when(userRepository.findBalanceById(1L)).thenReturn(new BigDecimal("25000000"));
+
+        PurchaseResponse response = purchaseStrategy.purchase(1L, testFlashSaleConfig, null);
+
+        assertEquals("Purchase successful!", response.getMessage());
+        assertEquals("iPhone 15 Pro", response.getProductName());
+        assertEquals(new BigDecimal("25000000"), response.getRemainingBalance());
+        verify(inventorySyncService).syncInventoryForOrder(1L, 1L);
+    }
+
+    @Test
+    void purchase_SoldOut() {
+        when(flashSaleConfigRepository.incrementSoldQuantity(1L)).thenReturn(0);
+
+        assertThrows(SoldOutException.class, () -> purchaseStrategy.purchase(1L, testFlashSaleConfig, null));
+        verify(productRepository, never()).decrementStock(any());
+    }
+
+    @Test
+    void purchase_InsufficientBalance() {
+        when(flashSaleConfigRepository.incrementSoldQuantity(1L)).thenReturn(1);
+        when(productRepository.decrementStock(1L)).thenReturn(1);
+        when(userRepository.deductBalance(any(), any())).thenReturn(0);
+
+        assertThrows(BusinessException.class, () -> purchaseStrategy.purchase(1L, testFlashSaleConfig, null));
+        verify(flashSaleOrderRepository, never()).save(any());
+    }
+
+    @Test
+    void purchase_ConcurrentSecondOrder_ThrowsBusinessException() {
+        when(flashSaleConfigRepository.incrementSoldQuantity(1L)).thenReturn(1);
+        when(productRepository.decrementStock(1L)).thenReturn(1);
+        when(userRepository.deductBalance(any(), any())).thenReturn(1);
+        when(flashSaleOrderRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("uk_user_order_date"));
+
+        assertThrows(BusinessException.class, () -> purchaseStrategy.purchase(1L, testFlashSaleConfig, null));
+        verify(inventorySyncService, never()).syncInventoryForOrder(any(), any());
+    }
+}
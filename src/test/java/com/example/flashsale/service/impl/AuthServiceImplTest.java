@@ -7,9 +7,15 @@ import com.example.flashsale.dto.OtpVerificationRequest;
 import com.example.flashsale.entity.OtpVerification;
 import com.example.flashsale.entity.User;
 import com.example.flashsale.exception.BusinessException;
-import com.example.flashsale.repository.OtpVerificationRepository;
 import com.example.flashsale.repository.UserRepository;
 import com.example.flashsale.security.JwtUtil;
+import com.example.flashsale.security.UserAccount;
+import com.example.flashsale.service.CustomUserDetailsService;
+import com.example.flashsale.service.OtpStore;
+import com.example.flashsale.service.TokenDenylistService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,22 +24,29 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Date;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -42,7 +55,7 @@ class AuthServiceImplTest {
     private UserRepository userRepository;
 
     @Mock
-    private OtpVerificationRepository otpRepository;
+    private OtpStore otpStore;
 
     @Mock
     private PasswordEncoder passwordEncoder;
@@ -53,6 +66,15 @@ class AuthServiceImplTest {
     @Mock
     private AuthenticationManager authenticationManager;
 
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
+    @Mock
+    private TokenDenylistService tokenDenylistService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private AuthServiceImpl authService;
 
@@ -83,13 +105,46 @@ class AuthServiceImplTest {
         ApiResponse<String> response = authService.register(request);
 
         assertTrue(response.getSuccess());
-        verify(otpRepository).save(any(OtpVerification.class));
+        verify(otpStore).save(any(OtpVerification.class));
 
         ArgumentCaptor<OtpVerification> captor = ArgumentCaptor.forClass(OtpVerification.class);
-        verify(otpRepository).save(captor.capture());
+        verify(otpStore).save(captor.capture());
         assertEquals(6, captor.getValue().getOtpCode().length());
     }
 
+    @Test
+    void register_HashesPasswordOutsideTransaction() {
+        AuthRequest request = new AuthRequest();
+        request.setEmail("test@example.com");
+        request.setPassword("password123");
+        AtomicBoolean inTransaction = new AtomicBoolean();
+        AtomicBoolean encodedInTransaction = new AtomicBoolean();
+        AtomicBoolean savedInTransaction = new AtomicBoolean();
+
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            inTransaction.set(true);
+            return null;
+        });
+        doAnswer(invocation -> {
+            inTransaction.set(false);
+            return null;
+        }).when(transactionManager).commit(any());
+        when(passwordEncoder.encode(any())).thenAnswer(invocation -> {
+            encodedInTransaction.set(inTransaction.get());
+            return "hashedPassword";
+        });
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            savedInTransaction.set(inTransaction.get());
+            return testUser;
+        });
+
+        authService.register(request);
+
+        verify(passwordEncoder).encode("password123");
+        assertFalse(encodedInTransaction.get());
+        assertTrue(savedInTransaction.get());
+    }
+
     @Test
     void register_EmailExists_ThrowsException() {
         AuthRequest request = new AuthRequest();
@@ -114,14 +169,12 @@ class AuthServiceImplTest {
                 .expiresAt(LocalDateTime.now().plusMinutes(5))
                 .isUsed(false).build();
 
-        when(otpRepository.findByContactInfoAndOtpCodeAndIsUsedFalseAndExpiresAtAfter(eq("test@example.com"), eq("123456"), any()))
-                .thenReturn(Optional.of(otp));
+        when(otpStore.consume(eq("test@example.com"), eq("123456"), any())).thenReturn(Optional.of(otp));
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
 
         ApiResponse<String> response = authService.verifyOtp(request);
 
         assertTrue(response.getSuccess());
-        assertTrue(otp.getIsUsed());
         assertTrue(testUser.getEmailVerified());
     }
 
@@ -131,10 +184,7 @@ class AuthServiceImplTest {
         request.setEmail("test@example.com");
         request.setOtpCode("999999");
 
-        when(otpRepository.findByContactInfoAndOtpCodeAndIsUsedFalseAndExpiresAtAfter(
-                anyString(),
-                anyString(),
-                any())).thenReturn(Optional.empty());
+        when(otpStore.consume(anyString(), anyString(), any())).thenReturn(Optional.empty());
 
         assertThrows(BusinessException.class, () -> authService.verifyOtp(request));
     }
@@ -146,8 +196,8 @@ class AuthServiceImplTest {
         request.setPassword("password");
 
         when(authenticationManager.authenticate(any())).thenReturn(null);
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(jwtUtil.generateToken("test@example.com")).thenReturn("jwt-token");
+        when(userDetailsService.getAccountByUsername("test@example.com")).thenReturn(UserAccount.from(testUser));
+        when(jwtUtil.generateToken("test@example.com", 1L)).thenReturn("jwt-token");
         when(jwtUtil.getExpirationTime()).thenReturn(3600000L);
 
         AuthResponse response = authService.login(request);
@@ -165,9 +215,40 @@ class AuthServiceImplTest {
         request.setPassword("password");
 
         when(authenticationManager.authenticate(any())).thenReturn(null);
-        when(userRepository.findByEmail(any())).thenReturn(Optional.empty());
-        when(userRepository.findByPhone(any())).thenReturn(Optional.empty());
+        when(userDetailsService.getAccountByUsername(any())).thenThrow(new UsernameNotFoundException("User not found"));
 
         assertThrows(BusinessException.class, () -> authService.login(request));
     }
-}
\ No newline at end of file
+
+    @Test
+    void logout_RevokesToken() {
+        Date expiration = new Date(System.currentTimeMillis() + 3600000L);
+        Claims claims = Jwts.claims().setId("token-id").setSubject("test@example.com").setExpiration(expiration);
+        when(jwtUtil.parseToken("jwt-token")).thenReturn(claims);
+        when(jwtUtil.extractUserId(claims)).thenReturn(1L);
+
+        authService.logout("jwt-token");
+
+        verify(tokenDenylistService).revoke(eq("token-id"), eq(1L), any());
+    }
+
+    @Test
+    void logout_TokenWithoutJti_ReportsNotRevoked() {
+        Date expiration = new Date(System.currentTimeMillis() + 3600000L);
+        Claims claims = Jwts.claims().setSubject("test@example.com").setExpiration(expiration);
+        when(jwtUtil.parseToken("legacy-token")).thenReturn(claims);
+
+        BusinessException exception = assertThrows(BusinessException.class, () -> authService.logout("legacy-token"));
+
+        assertTrue(exception.getMessage().startsWith("This token cannot be revoked"));
+        verifyNoInteractions(tokenDenylistService);
+    }
+
+    @Test
+    void logout_InvalidToken_ThrowsException() {
+        when(jwtUtil.parseToken("bad-token")).thenThrow(new MalformedJwtException("malformed"));
+
+        assertThrows(BusinessException.class, () -> authService.logout("bad-token"));
+        verifyNoInteractions(tokenDenylistService);
+    }
+}
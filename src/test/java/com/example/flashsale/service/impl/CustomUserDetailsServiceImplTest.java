@@ -0,0 +1,81 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.User;
+import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.security.AuthenticatedUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomUserDetailsServiceImplTest {
+    @Mock
+    private UserRepository userRepository;
+
+    private CustomUserDetailsServiceImpl userDetailsService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsService = new CustomUserDetailsServiceImpl(userRepository, 100, 300);
+        testUser = User.builder()
+                .id(1L).email("test@example.com").phone("0900000000")
+                .passwordHash("hashedPassword")
+                .balance(new BigDecimal("10000000"))
+                .emailVerified(false).build();
+    }
+
+    @Test
+    void loadUserByUsername_CachesAccount() {
+        when(userRepository.findByEmailOrPhone("test@example.com")).thenReturn(List.of(testUser));
+
+        AuthenticatedUser first = (AuthenticatedUser) userDetailsService.loadUserByUsername("test@example.com");
+        AuthenticatedUser second = (AuthenticatedUser) userDetailsService.loadUserByUsername("test@example.com");
+
+        assertEquals(1L, first.getId());
+        assertEquals("hashedPassword", second.getPassword());
+        verify(userRepository, times(1)).findByEmailOrPhone("test@example.com");
+    }
+
+    @Test
+    void getAccountByUsername_PrefersEmailMatch() {
+        User phoneMatch = User.builder().id(2L).phone("test@example.com").passwordHash("other").build();
+        when(userRepository.findByEmailOrPhone("test@example.com")).thenReturn(List.of(phoneMatch, testUser));
+
+        assertEquals(1L, userDetailsService.getUserIdByUsername("test@example.com"));
+    }
+
+    @Test
+    void evictUser_ReloadsChangedFields() {
+        when(userRepository.findByEmailOrPhone("0900000000")).thenReturn(List.of(testUser));
+        assertFalse(userDetailsService.getAccountByUsername("0900000000").isEmailVerified());
+
+        testUser.setEmailVerified(true);
+        userDetailsService.evictUser(testUser);
+
+        assertTrue(userDetailsService.getAccountByUsername("0900000000").isEmailVerified());
+        verify(userRepository, times(2)).findByEmailOrPhone("0900000000");
+    }
+
+    @Test
+    void loadUserByUsername_NotFound_ThrowsException() {
+        when(userRepository.findByEmailOrPhone("missing@example.com")).thenReturn(List.of());
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("missing@example.com"));
+    }
+}
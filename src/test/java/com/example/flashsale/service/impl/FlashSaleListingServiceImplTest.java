@@ -0,0 +1,102 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.EncodedListingResponse;
+import com.example.flashsale.dto.FlashSaleProductResponse;
+import com.example.flashsale.service.FlashSaleSnapshotService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FlashSaleListingServiceImplTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 10, 30, 0);
+
+    @Mock
+    private FlashSaleSnapshotService flashSaleSnapshotService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private FlashSaleListingServiceImpl flashSaleListingService;
+
+    @BeforeEach
+    void setUp() {
+        flashSaleListingService = new FlashSaleListingServiceImpl(flashSaleSnapshotService, objectMapper, true);
+        when(flashSaleSnapshotService.getActiveFlashSaleProducts(any())).thenReturn(List.of(
+                FlashSaleProductResponse.builder().flashSaleId(1L).productName("iPhone 15 Pro").availableQuantity(40).build()));
+    }
+
+    @Test
+    void getCurrentListing_EncodedOncePerVersion() throws Exception {
+        when(flashSaleSnapshotService.getVersion(any())).thenReturn(1L);
+
+        EncodedListingResponse first = flashSaleListingService.getCurrentListing(NOW);
+        EncodedListingResponse later = flashSaleListingService.getCurrentListing(NOW.plusSeconds(30));
+
+        assertSame(first, later);
+        verify(flashSaleSnapshotService, times(1)).getActiveFlashSaleProducts(any());
+        JsonNode body = objectMapper.readTree(first.getJson());
+        assertEquals("iPhone 15 Pro", body.get("data").get(0).get("productName").asText());
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(first.getGzippedJson()))) {
+            assertArrayEquals(first.getJson(), gzip.readAllBytes());
+        }
+    }
+
+    @Test
+    void getCurrentListing_EtagFollowsBodyNotVersionOrSecond() {
+        when(flashSaleSnapshotService.getVersion(any())).thenReturn(1L, 2L, 3L);
+        when(flashSaleSnapshotService.getActiveFlashSaleProducts(any())).thenReturn(
+                List.of(product(40, 1800L)), List.of(product(40, 1799L)), List.of(product(39, 1798L)));
+
+        EncodedListingResponse initial = flashSaleListingService.getCurrentListing(NOW);
+        EncodedListingResponse rebuilt = flashSaleListingService.getCurrentListing(NOW.plusSeconds(1));
+        EncodedListingResponse purchased = flashSaleListingService.getCurrentListing(NOW.plusSeconds(2));
+
+        assertEquals(initial.getEtag(), rebuilt.getEtag());
+        assertNotEquals(initial.getEtag(), purchased.getEtag());
+        assertNotEquals(initial.getEtag(), initial.getGzipEtag());
+        assertFalse(new String(initial.getJson(), StandardCharsets.UTF_8).contains("remainingSeconds"));
+    }
+
+    @Test
+    void getCurrentListing_SameBodySameEtagAcrossInstances() {
+        when(flashSaleSnapshotService.getVersion(any())).thenReturn(7L);
+        FlashSaleListingServiceImpl restarted = new FlashSaleListingServiceImpl(flashSaleSnapshotService, objectMapper, true);
+
+        assertEquals(flashSaleListingService.getCurrentListing(NOW).getEtag(), restarted.getCurrentListing(NOW.plusSeconds(5)).getEtag());
+    }
+
+    @Test
+    void getCurrentProducts_KeepsRemainingSeconds() {
+        when(flashSaleSnapshotService.getActiveFlashSaleProducts(NOW)).thenReturn(List.of(product(40, 1800L)));
+
+        List<FlashSaleProductResponse> products = flashSaleListingService.getCurrentProducts(NOW);
+
+        assertEquals(1800L, products.get(0).getRemainingSeconds());
+    }
+
+    private FlashSaleProductResponse product(int available, long remainingSeconds) {
+        return FlashSaleProductResponse.builder().flashSaleId(1L).productName("iPhone 15 Pro")
+                .availableQuantity(available).remainingSeconds(remainingSeconds).build();
+    }
+}
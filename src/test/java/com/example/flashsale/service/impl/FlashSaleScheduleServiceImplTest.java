@@ -0,0 +1,85 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FlashSaleScheduleServiceImplTest {
+    private static final LocalDate TODAY = LocalDate.of(2026, 1, 1);
+
+    @Mock
+    private FlashSaleConfigRepository flashSaleConfigRepository;
+
+    @InjectMocks
+    private FlashSaleScheduleServiceImpl flashSaleScheduleService;
+
+    @Test
+    void findActiveFlashSales_OverlappingWindows() {
+        FlashSaleConfig morning = config(1L, 1L, LocalTime.of(9, 0), LocalTime.of(11, 0));
+        FlashSaleConfig midday = config(2L, 2L, LocalTime.of(10, 0), LocalTime.of(13, 0));
+        FlashSaleConfig allDay = config(3L, 3L, LocalTime.MIN, LocalTime.MAX);
+        when(flashSaleConfigRepository.findActiveConfigsForDate(TODAY)).thenReturn(List.of(morning, midday, allDay));
+
+        assertEquals(List.of(allDay), flashSaleScheduleService.findActiveFlashSales(TODAY, LocalTime.of(8, 0)));
+        assertEquals(List.of(allDay, morning), flashSaleScheduleService.findActiveFlashSales(TODAY, LocalTime.of(9, 0)));
+        assertEquals(3, flashSaleScheduleService.findActiveFlashSales(TODAY, LocalTime.of(10, 30)).size());
+        // End time is inclusive
+        assertEquals(3, flashSaleScheduleService.findActiveFlashSales(TODAY, LocalTime.of(11, 0)).size());
+        assertEquals(List.of(allDay, midday), flashSaleScheduleService.findActiveFlashSales(TODAY, LocalTime.of(11, 0, 0, 1)));
+        assertEquals(List.of(allDay), flashSaleScheduleService.findActiveFlashSales(TODAY, LocalTime.MAX));
+
+        verify(flashSaleConfigRepository, times(1)).findActiveConfigsForDate(any());
+    }
+
+    @Test
+    void findActiveFlashSale_PicksWindowOfProduct() {
+        FlashSaleConfig morning = config(1L, 1L, LocalTime.of(9, 0), LocalTime.of(11, 0));
+        FlashSaleConfig evening = config(2L, 1L, LocalTime.of(18, 0), LocalTime.of(20, 0));
+        when(flashSaleConfigRepository.findActiveConfigsForDate(TODAY)).thenReturn(List.of(evening, morning));
+
+        assertEquals(Optional.of(morning), flashSaleScheduleService.findActiveFlashSale(1L, TODAY, LocalTime.of(10, 0)));
+        assertEquals(Optional.of(evening), flashSaleScheduleService.findActiveFlashSale(1L, TODAY, LocalTime.of(20, 0)));
+        assertTrue(flashSaleScheduleService.findActiveFlashSale(1L, TODAY, LocalTime.of(12, 0)).isEmpty());
+        assertTrue(flashSaleScheduleService.findActiveFlashSale(2L, TODAY, LocalTime.of(10, 0)).isEmpty());
+    }
+
+    @Test
+    void findActiveFlashSale_NewDay_ReloadsSchedule() {
+        LocalDate tomorrow = TODAY.plusDays(1);
+        FlashSaleConfig tomorrowSale = config(2L, 1L, LocalTime.of(9, 0), LocalTime.of(11, 0));
+        when(flashSaleConfigRepository.findActiveConfigsForDate(TODAY)).thenReturn(List.of());
+        when(flashSaleConfigRepository.findActiveConfigsForDate(tomorrow)).thenReturn(List.of(tomorrowSale));
+
+        assertTrue(flashSaleScheduleService.findActiveFlashSale(1L, TODAY, LocalTime.of(10, 0)).isEmpty());
+        assertEquals(Optional.of(tomorrowSale), flashSaleScheduleService.findActiveFlashSale(1L, tomorrow, LocalTime.of(10, 0)));
+    }
+
+    private FlashSaleConfig config(Long id, Long productId, LocalTime startTime, LocalTime endTime) {
+        return FlashSaleConfig.builder()
+                .id(id).productId(productId)
+                .flashPrice(new BigDecimal("100"))
+                .flashQuantity(10).soldQuantity(0)
+                .saleDate(TODAY)
+                .startTime(startTime)
+                .endTime(endTime)
+                .isActive(true).build();
+    }
+}
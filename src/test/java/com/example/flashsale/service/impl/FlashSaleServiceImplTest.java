@@ -1,42 +1,51 @@
 package com.example.flashsale.service.impl;
 
-import com.example.flashsale.dto.FlashSaleProductResponse;
 import com.example.flashsale.dto.PurchaseRequest;
 import com.example.flashsale.dto.PurchaseResponse;
 import com.example.flashsale.entity.FlashSaleConfig;
-import com.example.flashsale.entity.FlashSaleOrder;
 import com.example.flashsale.entity.Product;
-import com.example.flashsale.entity.User;
 import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.PurchasePendingException;
+import com.example.flashsale.exception.SoldOutException;
 import com.example.flashsale.repository.FlashSaleConfigRepository;
-import com.example.flashsale.repository.FlashSaleOrderRepository;
-import com.example.flashsale.repository.ProductRepository;
-import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.security.AuthenticatedUser;
 import com.example.flashsale.service.CustomUserDetailsService;
-import com.example.flashsale.service.InventorySyncService;
+import com.example.flashsale.service.FlashSaleSnapshotService;
+import com.example.flashsale.service.PurchaseIdempotencyService;
+import com.example.flashsale.service.PurchaseStrategy;
+import com.example.flashsale.service.PurchaserIndexService;
+import com.example.flashsale.service.SoldOutRegistryService;
+import com.example.flashsale.service.StockReservationService;
+import com.example.flashsale.service.WaitingRoomService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -45,24 +54,31 @@ class FlashSaleServiceImplTest {
     private FlashSaleConfigRepository flashSaleConfigRepository;
 
     @Mock
-    private FlashSaleOrderRepository flashSaleOrderRepository;
+    private CustomUserDetailsService userDetailsService;
 
     @Mock
-    private ProductRepository productRepository;
+    private StockReservationService stockReservationService;
 
     @Mock
-    private UserRepository userRepository;
+    private PurchaserIndexService purchaserIndexService;
 
     @Mock
-    private CustomUserDetailsService userDetailsService;
+    private SoldOutRegistryService soldOutRegistryService;
+
+    @Mock
+    private WaitingRoomService waitingRoomService;
+
+    @Mock
+    private PurchaseIdempotencyService purchaseIdempotencyService;
 
     @Mock
-    private InventorySyncService inventorySyncService;
+    private FlashSaleSnapshotService flashSaleSnapshotService;
+
+    @Mock
+    private PurchaseStrategy purchaseStrategy;
 
-    @InjectMocks
     private FlashSaleServiceImpl flashSaleService;
 
-    private User testUser;
 
     private Product testProduct;
 
@@ -70,9 +86,10 @@ class FlashSaleServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        testUser = User.builder()
-                .id(1L).email("test@example.com")
-                .balance(new BigDecimal("50000000")).build();
+        flashSaleService = new FlashSaleServiceImpl(flashSaleConfigRepository, userDetailsService,
+                stockReservationService, purchaserIndexService, soldOutRegistryService, waitingRoomService, purchaseIdempotencyService, flashSaleSnapshotService, List.of(purchaseStrategy));
+        ReflectionTestUtils.setField(flashSaleService, "purchaseMode", FlashSaleConfig.PurchaseMode.PESSIMISTIC);
+        lenient().when(purchaseStrategy.getMode()).thenReturn(FlashSaleConfig.PurchaseMode.PESSIMISTIC);
 
         testProduct = Product.builder()
                 .id(1L).name("iPhone 15 Pro")
@@ -88,34 +105,23 @@ class FlashSaleServiceImplTest {
                 .endTime(LocalTime.of(12, 0)).build();
     }
 
-    @Test
-    void getCurrentFlashSaleProducts_Success() {
-        when(flashSaleConfigRepository.findActiveFlashSales(any(), any())).thenReturn(Arrays.asList(testFlashSaleConfig));
-
-        List<FlashSaleProductResponse> responses = flashSaleService.getCurrentFlashSaleProducts();
-
-        assertEquals(1, responses.size());
-        assertEquals(40, responses.get(0).getAvailableQuantity());
-    }
-
     @Test
     void purchaseFlashSaleProduct_Success() {
         PurchaseRequest request = new PurchaseRequest();
         request.setProductId(1L);
         setupSecurityContext("test@example.com");
 
-        when(userDetailsService.getUserByUsername("test@example.com")).thenReturn(testUser);
-        when(flashSaleOrderRepository.existsByUserIdAndOrderDate(1L, LocalDate.now())).thenReturn(false);
-        when(flashSaleConfigRepository.findActiveFlashSaleForProduct(any(), any(), any())).thenReturn(Optional.of(testFlashSaleConfig));
-        when(flashSaleConfigRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testFlashSaleConfig));
-        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
-        when(flashSaleOrderRepository.save(any())).thenReturn(
-                FlashSaleOrder.builder().id(1L).status(FlashSaleOrder.OrderStatus.COMPLETED).build());
+        when(stockReservationService.reserve(eq(1L), any(), any())).thenReturn(testFlashSaleConfig);
+        when(userDetailsService.getUserIdByUsername("test@example.com")).thenReturn(1L);
+        when(purchaseStrategy.purchase(1L, testFlashSaleConfig, null)).thenReturn(
+                PurchaseResponse.builder().orderId(1L).orderedAt(LocalDateTime.now()).message("Purchase successful!").build());
 
         PurchaseResponse response = flashSaleService.purchaseFlashSaleProduct(request);
 
         assertEquals("Purchase successful!", response.getMessage());
-        verify(inventorySyncService).syncInventoryForOrder(1L, 1L);
+        verify(stockReservationService, never()).release(any());
+        verify(purchaserIndexService).markPurchased(1L, LocalDate.now());
+        verify(flashSaleSnapshotService).recordSale(testFlashSaleConfig);
     }
 
     @Test
@@ -124,30 +130,185 @@ class FlashSaleServiceImplTest {
         request.setProductId(1L);
         setupSecurityContext("test@example.com");
 
-        when(userDetailsService.getUserByUsername(any())).thenReturn(testUser);
-        when(flashSaleOrderRepository.existsByUserIdAndOrderDate(1L, LocalDate.now())).thenReturn(true);
+        when(stockReservationService.reserve(eq(1L), any(), any())).thenReturn(testFlashSaleConfig);
+        when(userDetailsService.getUserIdByUsername(any())).thenReturn(1L);
+        when(purchaseStrategy.purchase(1L, testFlashSaleConfig, null))
+                .thenThrow(new BusinessException("You can only purchase one flash sale product per day"));
 
         assertThrows(BusinessException.class, () -> flashSaleService.purchaseFlashSaleProduct(request));
+        verify(stockReservationService).release(testFlashSaleConfig);
+    }
+
+    @Test
+    void purchaseFlashSaleProduct_ReservationRejected_SkipsTransaction() {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setProductId(1L);
+        setupSecurityContext("test@example.com");
+
+        when(userDetailsService.getUserIdByUsername(any())).thenReturn(1L);
+        when(stockReservationService.reserve(eq(1L), any(), any())).thenThrow(new SoldOutException());
+
+        assertThrows(SoldOutException.class, () -> flashSaleService.purchaseFlashSaleProduct(request));
+        verifyNoInteractions(purchaseStrategy);
+    }
+
+    @Test
+    void purchaseFlashSaleProduct_RepeatBuyer_RejectedFromIndex() {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setProductId(1L);
+        setupSecurityContext(new AuthenticatedUser(1L, "test@example.com", "hashedPassword", List.of()));
+
+        when(purchaserIndexService.hasPurchased(1L, LocalDate.now())).thenReturn(true);
+
+        assertThrows(BusinessException.class, () -> flashSaleService.purchaseFlashSaleProduct(request));
+        verifyNoInteractions(userDetailsService, stockReservationService, purchaseStrategy);
+    }
+
+    @Test
+    void purchaseFlashSaleProduct_SoldOutInDatabase_MarksSoldOut() {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setProductId(1L);
+        setupSecurityContext("test@example.com");
+
+        when(stockReservationService.reserve(eq(1L), any(), any())).thenReturn(testFlashSaleConfig);
+        when(userDetailsService.getUserIdByUsername(any())).thenReturn(1L);
+        when(purchaseStrategy.purchase(1L, testFlashSaleConfig, null)).thenThrow(new SoldOutException());
+
+        assertThrows(SoldOutException.class, () -> flashSaleService.purchaseFlashSaleProduct(request));
+        verify(stockReservationService).markSoldOut(testFlashSaleConfig);
+        verify(soldOutRegistryService).markSoldOut(testFlashSaleConfig);
+        verify(stockReservationService, never()).release(any());
+    }
+
+    @Test
+    void purchaseFlashSaleProduct_SoldOutFlag_SkipsReservation() {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setProductId(1L);
+        setupSecurityContext("test@example.com");
+
+        when(userDetailsService.getUserIdByUsername(any())).thenReturn(1L);
+        when(soldOutRegistryService.isSoldOut(eq(1L), any(), any())).thenReturn(true);
+
+        assertThrows(SoldOutException.class, () -> flashSaleService.purchaseFlashSaleProduct(request));
+        verifyNoInteractions(stockReservationService, purchaseStrategy);
     }
 
     @Test
-    void purchaseFlashSaleProduct_InsufficientBalance() {
-        testUser.setBalance(new BigDecimal("100"));
+    void purchaseFlashSaleProduct_NotAdmitted_SkipsReservation() {
         PurchaseRequest request = new PurchaseRequest();
         request.setProductId(1L);
+        request.setQueueToken("token");
         setupSecurityContext("test@example.com");
 
-        when(userDetailsService.getUserByUsername(any())).thenReturn(testUser);
-        when(flashSaleOrderRepository.existsByUserIdAndOrderDate(any(), any())).thenReturn(false);
-        when(flashSaleConfigRepository.findActiveFlashSaleForProduct(any(), any(), any())).thenReturn(Optional.of(testFlashSaleConfig));
-        when(flashSaleConfigRepository.findByIdWithLock(any())).thenReturn(Optional.of(testFlashSaleConfig));
-        when(productRepository.findByIdWithLock(any())).thenReturn(Optional.of(testProduct));
+        when(userDetailsService.getUserIdByUsername(any())).thenReturn(1L);
+        when(stockReservationService.getActiveFlashSale(eq(1L), any(), any())).thenReturn(testFlashSaleConfig);
+        doThrow(new BusinessException("Not admitted yet, please wait for your turn"))
+                .when(waitingRoomService).checkAdmitted(1L, testFlashSaleConfig, "token");
 
         assertThrows(BusinessException.class, () -> flashSaleService.purchaseFlashSaleProduct(request));
+        verify(stockReservationService, never()).reserve(any(), any(), any());
+        verifyNoInteractions(purchaseStrategy);
+    }
+
+    @Test
+    void purchaseFlashSaleProduct_IdempotencyKey_ReplayBypassesRepeatBuyerCheck() {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setProductId(1L);
+        request.setIdempotencyKey("retry-1");
+        setupSecurityContext(new AuthenticatedUser(1L, "test@example.com", "hashedPassword", List.of()));
+        PurchaseResponse original = PurchaseResponse.builder().orderId(1L).message("Purchase successful!").build();
+
+        when(purchaseIdempotencyService.execute(eq(1L), eq("retry-1"), eq(1L), any())).thenReturn(original);
+
+        assertEquals(original, flashSaleService.purchaseFlashSaleProduct(request));
+        verifyNoInteractions(purchaserIndexService, stockReservationService, purchaseStrategy);
+    }
+
+    @Test
+    void purchaseFlashSaleProduct_LastUnitCommitted_FlagsSoldOut() {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setProductId(1L);
+        setupSecurityContext("test@example.com");
+        FlashSaleConfig committed = FlashSaleConfig.builder().id(1L).flashQuantity(50).soldQuantity(50).build();
+
+        when(stockReservationService.reserve(eq(1L), any(), any())).thenReturn(testFlashSaleConfig);
+        when(userDetailsService.getUserIdByUsername(any())).thenReturn(1L);
+        when(purchaseStrategy.purchase(1L, testFlashSaleConfig, null)).thenReturn(
+                PurchaseResponse.builder().orderId(1L).orderedAt(LocalDateTime.now()).message("Purchase successful!").build());
+        when(stockReservationService.getRemaining(testFlashSaleConfig)).thenReturn(0);
+        when(flashSaleConfigRepository.findById(1L)).thenReturn(Optional.of(committed));
+
+        flashSaleService.purchaseFlashSaleProduct(request);
+
+        verify(soldOutRegistryService).markSoldOut(testFlashSaleConfig);
+    }
+
+    @Test
+    void purchaseFlashSaleProduct_PerSaleModeOverridesDefault() {
+        PurchaseStrategy optimisticStrategy = mock(PurchaseStrategy.class);
+        when(optimisticStrategy.getMode()).thenReturn(FlashSaleConfig.PurchaseMode.OPTIMISTIC);
+        flashSaleService = new FlashSaleServiceImpl(flashSaleConfigRepository, userDetailsService,
+                stockReservationService, purchaserIndexService, soldOutRegistryService, waitingRoomService, purchaseIdempotencyService, flashSaleSnapshotService, List.of(purchaseStrategy, optimisticStrategy));
+        ReflectionTestUtils.setField(flashSaleService, "purchaseMode", FlashSaleConfig.PurchaseMode.PESSIMISTIC);
+        testFlashSaleConfig.setPurchaseMode(FlashSaleConfig.PurchaseMode.OPTIMISTIC);
+        PurchaseRequest request = new PurchaseRequest();
+        request.setProductId(1L);
+        setupSecurityContext("test@example.com");
+
+        when(stockReservationService.reserve(eq(1L), any(), any())).thenReturn(testFlashSaleConfig);
+        when(userDetailsService.getUserIdByUsername(any())).thenReturn(1L);
+        when(optimisticStrategy.purchase(1L, testFlashSaleConfig, null)).thenReturn(
+                PurchaseResponse.builder().orderId(1L).orderedAt(LocalDateTime.now()).message("Purchase successful!").build());
+
+        flashSaleService.purchaseFlashSaleProduct(request);
+
+        verify(optimisticStrategy).purchase(1L, testFlashSaleConfig, null);
+        verify(purchaseStrategy, never()).purchase(any(), any(), any());
+    }
+
+    @Test
+    void purchaseFlashSaleProduct_Pending_KeepsUnitUntilOrderCommits() {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setProductId(1L);
+        setupSecurityContext("test@example.com");
+        CompletableFuture<PurchaseResponse> result = new CompletableFuture<>();
+
+        when(stockReservationService.reserve(eq(1L), any(), any())).thenReturn(testFlashSaleConfig);
+        when(userDetailsService.getUserIdByUsername(any())).thenReturn(1L);
+        when(purchaseStrategy.purchase(1L, testFlashSaleConfig, null)).thenThrow(new PurchasePendingException(1L, result));
+
+        assertThrows(PurchasePendingException.class, () -> flashSaleService.purchaseFlashSaleProduct(request));
+
+        verify(stockReservationService, never()).release(any());
+        verifyNoInteractions(flashSaleSnapshotService);
+
+        result.complete(PurchaseResponse.builder().orderId(1L).orderedAt(LocalDateTime.now()).build());
+
+        verify(purchaserIndexService).markPurchased(1L, LocalDate.now());
+        verify(flashSaleSnapshotService).recordSale(testFlashSaleConfig);
+        verify(stockReservationService, never()).release(any());
+    }
+
+    @Test
+    void purchaseFlashSaleProduct_PendingThenRejected_ReleasesUnit() {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setProductId(1L);
+        setupSecurityContext("test@example.com");
+        CompletableFuture<PurchaseResponse> result = new CompletableFuture<>();
+
+        when(stockReservationService.reserve(eq(1L), any(), any())).thenReturn(testFlashSaleConfig);
+        when(userDetailsService.getUserIdByUsername(any())).thenReturn(1L);
+        when(purchaseStrategy.purchase(1L, testFlashSaleConfig, null)).thenThrow(new PurchasePendingException(1L, result));
+
+        assertThrows(PurchasePendingException.class, () -> flashSaleService.purchaseFlashSaleProduct(request));
+        result.completeExceptionally(new BusinessException("Insufficient balance"));
+
+        verify(stockReservationService).release(testFlashSaleConfig);
+        verify(purchaserIndexService, never()).markPurchased(any(), any());
     }
 
-    private void setupSecurityContext(String username) {
-        Authentication auth = new UsernamePasswordAuthenticationToken(username, null);
+    private void setupSecurityContext(Object principal) {
+        Authentication auth = new UsernamePasswordAuthenticationToken(principal, null);
         SecurityContext context = mock(SecurityContext.class);
         when(context.getAuthentication()).thenReturn(auth);
         SecurityContextHolder.setContext(context);
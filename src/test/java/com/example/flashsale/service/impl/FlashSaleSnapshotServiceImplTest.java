@@ -0,0 +1,99 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.FlashSaleProductResponse;
+import com.example.flashsale.dto.FlashSaleScheduleRow;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.service.SoldOutRegistryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FlashSaleSnapshotServiceImplTest {
+    private static final LocalDate TODAY = LocalDate.of(2026, 1, 1);
+
+    @Mock
+    private FlashSaleConfigRepository flashSaleConfigRepository;
+
+    @Mock
+    private SoldOutRegistryService soldOutRegistryService;
+
+    private FlashSaleSnapshotServiceImpl flashSaleSnapshotService;
+
+    private FlashSaleScheduleRow morningSale;
+
+    private FlashSaleScheduleRow afternoonSale;
+
+    @BeforeEach
+    void setUp() {
+        flashSaleSnapshotService = new FlashSaleSnapshotServiceImpl(flashSaleConfigRepository, soldOutRegistryService, 86400);
+
+        morningSale = FlashSaleScheduleRow.builder()
+                .flashSaleId(1L).productId(1L)
+                .productName("iPhone 15 Pro")
+                .regularPrice(new BigDecimal("30000000"))
+                .flashPrice(new BigDecimal("25000000"))
+                .flashQuantity(50).soldQuantity(10)
+                .saleDate(TODAY)
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(12, 0)).build();
+        afternoonSale = FlashSaleScheduleRow.builder()
+                .flashSaleId(2L).productId(1L)
+                .productName("iPhone 15 Pro")
+                .regularPrice(new BigDecimal("30000000"))
+                .flashPrice(new BigDecimal("24000000"))
+                .flashQuantity(5).soldQuantity(0)
+                .saleDate(TODAY)
+                .startTime(LocalTime.of(13, 0))
+                .endTime(LocalTime.of(14, 0)).build();
+        when(flashSaleConfigRepository.findScheduleForDate(TODAY)).thenReturn(List.of(morningSale, afternoonSale));
+    }
+
+    @Test
+    void getActiveFlashSaleProducts_ServedFromSnapshotUntilNextBoundary() {
+        List<FlashSaleProductResponse> atOpening = flashSaleSnapshotService.getActiveFlashSaleProducts(LocalDateTime.of(TODAY, LocalTime.of(10, 30)));
+        List<FlashSaleProductResponse> beforeClose = flashSaleSnapshotService.getActiveFlashSaleProducts(LocalDateTime.of(TODAY, LocalTime.of(11, 59)));
+
+        assertEquals(1, atOpening.size());
+        assertEquals(40, atOpening.get(0).getAvailableQuantity());
+        assertEquals(new BigDecimal("16.67"), atOpening.get(0).getDiscountPercentage());
+        assertEquals(60, beforeClose.get(0).getRemainingSeconds());
+        verify(flashSaleConfigRepository, times(1)).findScheduleForDate(TODAY);
+
+        List<FlashSaleProductResponse> afternoon = flashSaleSnapshotService.getActiveFlashSaleProducts(LocalDateTime.of(TODAY, LocalTime.of(13, 0)));
+
+        assertEquals(2L, afternoon.get(0).getFlashSaleId());
+        verify(flashSaleConfigRepository, times(2)).findScheduleForDate(TODAY);
+    }
+
+    @Test
+    void recordSale_PatchesAvailableQuantity() {
+        LocalDateTime now = LocalDateTime.of(TODAY, LocalTime.of(13, 30));
+        flashSaleSnapshotService.getActiveFlashSaleProducts(now);
+
+        flashSaleSnapshotService.recordSale(FlashSaleConfig.builder().id(2L).build());
+
+        assertEquals(4, flashSaleSnapshotService.getActiveFlashSaleProducts(now).get(0).getAvailableQuantity());
+    }
+
+    @Test
+    void getActiveFlashSaleProducts_DropsSoldOut() {
+        when(soldOutRegistryService.isSoldOut(1L, 1L)).thenReturn(true);
+
+        assertEquals(0, flashSaleSnapshotService.getActiveFlashSaleProducts(LocalDateTime.of(TODAY, LocalTime.of(10, 30))).size());
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.FlashSaleDelta;
+import com.example.flashsale.dto.FlashSaleProductResponse;
+import com.example.flashsale.exception.ServiceUnavailableException;
+import com.example.flashsale.service.FlashSaleSnapshotService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FlashSaleStreamServiceImplTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 10, 30, 0);
+
+    @Mock
+    private FlashSaleSnapshotService flashSaleSnapshotService;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private FlashSaleStreamServiceImpl flashSaleStreamService;
+
+    @BeforeEach
+    void setUp() {
+        flashSaleStreamService = new FlashSaleStreamServiceImpl(flashSaleSnapshotService, new ObjectMapper(),
+                new SimpleMeterRegistry(), 60000, 2, 60000, 15, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        flashSaleStreamService.shutdown();
+    }
+
+    @Test
+    void diff_StartedAndUpdatedSales() {
+        when(flashSaleSnapshotService.getActiveFlashSaleProducts(NOW)).thenReturn(List.of(product(1L, 10), product(2L, 5)));
+        when(flashSaleSnapshotService.getActiveFlashSaleProducts(NOW.plusSeconds(1))).thenReturn(List.of(product(1L, 9), product(2L, 5)));
+
+        List<FlashSaleDelta> started = flashSaleStreamService.diff(NOW);
+        List<FlashSaleDelta> updated = flashSaleStreamService.diff(NOW.plusSeconds(1));
+
+        assertEquals(2, started.size());
+        assertTrue(started.stream().allMatch(delta -> "STARTED".equals(delta.getState())));
+        assertEquals(List.of(FlashSaleDelta.builder().flashSaleId(1L).productId(1L).available(9).soldOut(false).state("UPDATED").build()), updated);
+    }
+
+    @Test
+    void diff_SoldOutThenEnded() {
+        when(flashSaleSnapshotService.getActiveFlashSaleProducts(NOW)).thenReturn(List.of(product(1L, 1)));
+        when(flashSaleSnapshotService.getActiveFlashSaleProducts(NOW.plusSeconds(1))).thenReturn(List.of());
+        LocalDateTime afterEnd = NOW.with(LocalTime.of(12, 0, 1));
+        when(flashSaleSnapshotService.getActiveFlashSaleProducts(afterEnd)).thenReturn(List.of());
+
+        flashSaleStreamService.diff(NOW);
+        List<FlashSaleDelta> soldOut = flashSaleStreamService.diff(NOW.plusSeconds(1));
+        List<FlashSaleDelta> unchanged = flashSaleStreamService.diff(NOW.plusSeconds(1));
+        List<FlashSaleDelta> ended = flashSaleStreamService.diff(afterEnd);
+
+        assertEquals(List.of(FlashSaleDelta.builder().flashSaleId(1L).productId(1L).available(0).soldOut(true).state("UPDATED").build()), soldOut);
+        assertTrue(unchanged.isEmpty());
+        assertEquals("ENDED", ended.get(0).getState());
+        assertTrue(flashSaleStreamService.diff(afterEnd).isEmpty());
+    }
+
+    @Test
+    void subscribe_LimitReached_ThrowsException() {
+        flashSaleStreamService.subscribe();
+        flashSaleStreamService.subscribe();
+
+        assertThrows(ServiceUnavailableException.class, () -> flashSaleStreamService.subscribe());
+    }
+
+    @Test
+    void publishTick_ChangesWithinTick_CoalescedIntoOneSharedDelta() throws InterruptedException {
+        when(flashSaleSnapshotService.getVersion(any())).thenReturn(1L, 3L);
+        when(flashSaleSnapshotService.getActiveFlashSaleProducts(any()))
+                .thenReturn(List.of(product(1L, 10), product(2L, 5)), List.of(product(1L, 8), product(2L, 4)));
+        RecordingEmitter first = new RecordingEmitter(0);
+        RecordingEmitter second = new RecordingEmitter(0);
+        flashSaleStreamService.subscribe(first);
+        flashSaleStreamService.subscribe(second);
+
+        flashSaleStreamService.publishTick();
+        assertEquals("snapshot", name(first.next()));
+        assertEquals("snapshot", name(second.next()));
+        awaitSendsFinished();
+        flashSaleStreamService.publishTick();
+
+        Set<SseEmitter.DataWithMediaType> delta = first.next();
+        assertEquals("delta", name(delta));
+        assertTrue(text(delta).contains("\"flashSaleId\":1,\"productId\":1,\"available\":8"));
+        assertTrue(text(delta).contains("\"flashSaleId\":2,\"productId\":2,\"available\":4"));
+        assertSame(delta, second.next());
+        assertNull(first.events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void publishTick_SlowSubscriber_SkipsDeltasAndCatchesUpWithSnapshot() throws InterruptedException {
+        when(flashSaleSnapshotService.getVersion(any())).thenReturn(1L, 2L, 3L, 3L);
+        when(flashSaleSnapshotService.getActiveFlashSaleProducts(any()))
+                .thenReturn(List.of(product(1L, 10)), List.of(product(1L, 9)), List.of(product(1L, 7)));
+        RecordingEmitter slow = new RecordingEmitter(2);
+        flashSaleStreamService.subscribe(slow);
+
+        flashSaleStreamService.publishTick();
+        assertEquals("snapshot", name(slow.next()));
+        awaitSendsFinished();
+        flashSaleStreamService.publishTick();
+        assertTrue(slow.blocked.await(5, TimeUnit.SECONDS));
+        flashSaleStreamService.publishTick();
+        release.countDown();
+        assertEquals("delta", name(slow.next()));
+        awaitSendsFinished();
+        flashSaleStreamService.publishTick();
+
+        Set<SseEmitter.DataWithMediaType> snapshot = slow.next();
+        assertEquals("snapshot", name(snapshot));
+        assertTrue(text(snapshot).contains("\"available\":7"));
+    }
+
+    @Test
+    void publishTick_BlockedSubscriber_EvictedAndOthersStillReceiveDelta() throws InterruptedException {
+        flashSaleStreamService.shutdown();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        flashSaleStreamService = new FlashSaleStreamServiceImpl(flashSaleSnapshotService, new ObjectMapper(),
+                meterRegistry, 60000, 2, 100, 15, 1);
+        when(flashSaleSnapshotService.getVersion(any())).thenReturn(1L, 2L, 2L, 2L, 3L);
+        when(flashSaleSnapshotService.getActiveFlashSaleProducts(any()))
+                .thenReturn(List.of(product(1L, 10)), List.of(product(1L, 9)), List.of(product(1L, 8)));
+        // Ignores interrupts, so the only fan-out thread stays stuck for the whole test
+        RecordingEmitter blocked = new RecordingEmitter(2);
+        RecordingEmitter healthy = new RecordingEmitter(0);
+        flashSaleStreamService.subscribe(blocked);
+
+        flashSaleStreamService.publishTick();
+        assertEquals("snapshot", name(blocked.next()));
+        awaitSendsFinished();
+        flashSaleStreamService.publishTick();
+        assertTrue(blocked.blocked.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        flashSaleStreamService.publishTick();
+        assertEquals(0.0, meterRegistry.get("flashsale.stream.subscribers").gauge().value());
+
+        flashSaleStreamService.subscribe(healthy);
+        flashSaleStreamService.publishTick();
+        assertEquals("snapshot", name(healthy.next()));
+        awaitSendsFinished();
+        flashSaleStreamService.publishTick();
+        Set<SseEmitter.DataWithMediaType> delta = healthy.next();
+        assertEquals("delta", name(delta));
+        assertTrue(text(delta).contains("\"available\":8"));
+    }
+
+    private static void awaitSendsFinished() throws InterruptedException {
+        // The sending flag is cleared right after the emitter returns
+        Thread.sleep(100);
+    }
+
+    private static String text(Set<SseEmitter.DataWithMediaType> event) {
+        return event.stream().map(part -> part.getData().toString()).collect(Collectors.joining());
+    }
+
+    private static String name(Set<SseEmitter.DataWithMediaType> event) {
+        String text = text(event);
+        int start = text.indexOf("event:") + "event:".length();
+        return text.substring(start, text.indexOf('\n', start));
+    }
+
+    /**
+     * Emitter that records every event and blocks on one send until the test releases it.
+     */
+    private class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<Set<DataWithMediaType>> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final int blockingSend;
+        private int sends;
+
+        private RecordingEmitter(int blockingSend) {
+            this.blockingSend = blockingSend;
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> event) {
+            if (++sends == blockingSend) {
+                blocked.countDown();
+                awaitRelease();
+            }
+            events.add(event);
+        }
+
+        private void awaitRelease() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private Set<DataWithMediaType> next() throws InterruptedException {
+            Set<DataWithMediaType> event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event);
+            return event;
+        }
+    }
+
+    private FlashSaleProductResponse product(Long flashSaleId, int available) {
+        return FlashSaleProductResponse.builder()
+                .flashSaleId(flashSaleId)
+                .productId(flashSaleId)
+                .availableQuantity(available)
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(12, 0))
+                .build();
+    }
+}
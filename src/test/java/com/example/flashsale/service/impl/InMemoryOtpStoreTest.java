@@ -0,0 +1,150 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.OtpVerification;
+import com.example.flashsale.repository.OtpVerificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryOtpStoreTest {
+    private static final String CONTACT = "test@example.com";
+
+    @Mock
+    private OtpVerificationRepository otpRepository;
+
+    private InMemoryOtpStore otpStore;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        otpStore = new InMemoryOtpStore(otpRepository, false, 3, 8, 1000);
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    void consume_ValidCode_OnlyOnce() {
+        otpStore.save(otp("123456", now.plusMinutes(5)));
+
+        OtpVerification consumed = otpStore.consume(CONTACT, "123456", now).orElseThrow();
+
+        assertTrue(consumed.getIsUsed());
+        assertTrue(otpStore.consume(CONTACT, "123456", now).isEmpty());
+        verifyNoInteractions(otpRepository);
+    }
+
+    @Test
+    void consume_TooManyWrongCodes_InvalidatesOtp() {
+        otpStore.save(otp("123456", now.plusMinutes(5)));
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(otpStore.consume(CONTACT, "000000", now).isEmpty());
+        }
+
+        assertTrue(otpStore.consume(CONTACT, "123456", now).isEmpty());
+    }
+
+    @Test
+    void consume_NewerCode_ReplacesOlder() {
+        otpStore.save(otp("111111", now.plusMinutes(5)));
+        otpStore.save(otp("222222", now.plusMinutes(5)));
+
+        assertTrue(otpStore.consume(CONTACT, "111111", now).isEmpty());
+        assertTrue(otpStore.consume(CONTACT, "222222", now).isPresent());
+    }
+
+    @Test
+    void expireDue_RemovesExpiredEntries() {
+        LocalDateTime expiresAt = now.plusSeconds(20);
+        otpStore.save(otp("123456", expiresAt));
+        long expiresAtMillis = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        // The deadline lies beyond one revolution of the 8-slot wheel, so the first sweep keeps it
+        assertEquals(0, otpStore.expireDue(expiresAtMillis - 1));
+        assertEquals(1, otpStore.expireDue(expiresAtMillis + 1000));
+        assertTrue(otpStore.consume(CONTACT, "123456", now).isEmpty());
+    }
+
+    @Test
+    void saveAndConsume_AuditWriteThrough() {
+        otpStore = new InMemoryOtpStore(otpRepository, true, 3, 8, 1000);
+        OtpVerification otp = otp("123456", now.plusMinutes(5));
+
+        otpStore.save(otp);
+        otpStore.consume(CONTACT, "123456", now);
+
+        verify(otpRepository, times(2)).save(otp);
+    }
+
+    @Test
+    void save_InsideTransaction_PublishedOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            otpStore.save(otp("123456", now.plusMinutes(5)));
+
+            assertTrue(otpStore.consume(CONTACT, "123456", now).isEmpty());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertTrue(otpStore.consume(CONTACT, "123456", now).isPresent());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void consume_InsideTransaction_RestoredOnRollback() {
+        otpStore.save(otp("123456", now.plusMinutes(5)));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(otpStore.consume(CONTACT, "123456", now).isPresent());
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        OtpVerification restored = otpStore.consume(CONTACT, "123456", now).orElseThrow();
+        assertTrue(restored.getIsUsed());
+        assertTrue(otpStore.consume(CONTACT, "123456", now).isEmpty());
+    }
+
+    @Test
+    void consume_InsideTransaction_RolledBackAfterNewerCode_KeepsNewer() {
+        otpStore.save(otp("111111", now.plusMinutes(5)));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(otpStore.consume(CONTACT, "111111", now).isPresent());
+            otpStore.save(otp("222222", now.plusMinutes(5)));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(otpStore.consume(CONTACT, "111111", now).isEmpty());
+        assertTrue(otpStore.consume(CONTACT, "222222", now).isPresent());
+    }
+
+    private OtpVerification otp(String code, LocalDateTime expiresAt) {
+        return OtpVerification.builder()
+                .userId(1L).otpCode(code)
+                .contactInfo(CONTACT)
+                .verificationType(OtpVerification.VerificationType.EMAIL)
+                .expiresAt(expiresAt)
+                .isUsed(false).build();
+    }
+}
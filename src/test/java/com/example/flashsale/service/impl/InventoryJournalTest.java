@@ -0,0 +1,138 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.InventorySyncLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void append_ThenRead_RoundTripsRecords() throws IOException {
+        InventoryJournal journal = new InventoryJournal(directory, 16);
+        LocalDateTime syncedAt = LocalDateTime.of(2026, 10, 17, 12, 0, 0, 123_000_000);
+
+        assertEquals(2, journal.append(List.of(syncLog(1L, syncedAt), syncLog(2L, syncedAt))));
+
+        List<InventoryJournal.Entry> entries = journal.read(0, 10);
+        assertEquals(2, entries.size());
+        assertEquals(1, entries.get(0).sequence());
+        InventorySyncLog log = entries.get(1).syncLog();
+        assertEquals(7L, log.getProductId());
+        assertEquals(-1, log.getQuantityChange());
+        assertEquals(99, log.getStockBefore());
+        assertEquals(98, log.getStockAfter());
+        assertEquals("FLASH_SALE_ORDER", log.getSyncType());
+        assertEquals("ORDER_2", log.getReferenceId());
+        assertEquals(syncedAt, log.getSyncedAt());
+
+        assertEquals(List.of(2L), journal.read(1, 10).stream().map(InventoryJournal.Entry::sequence).toList());
+        assertTrue(journal.read(2, 10).isEmpty());
+    }
+
+    @Test
+    void append_FullSegment_RollsOverAndReadsAcrossSegments() throws IOException {
+        InventoryJournal journal = new InventoryJournal(directory, 2);
+
+        journal.append(List.of(syncLog(1L), syncLog(2L), syncLog(3L), syncLog(4L), syncLog(5L)));
+
+        assertEquals(3, segmentFiles().size());
+        assertEquals(List.of(2L, 3L, 4L), journal.read(1, 3).stream().map(InventoryJournal.Entry::sequence).toList());
+    }
+
+    @Test
+    void reopen_ResumesAfterLastRecordAndCheckpoint() throws IOException {
+        InventoryJournal journal = new InventoryJournal(directory, 16);
+        journal.append(List.of(syncLog(1L), syncLog(2L), syncLog(3L)));
+        journal.force();
+        journal.checkpoint(2);
+
+        InventoryJournal reopened = new InventoryJournal(directory, 16);
+
+        assertEquals(2, reopened.getCheckpoint());
+        List<InventoryJournal.Entry> pending = reopened.read(reopened.getCheckpoint(), 10);
+        assertEquals(1, pending.size());
+        assertEquals("ORDER_3", pending.get(0).syncLog().getReferenceId());
+        assertEquals(4, reopened.append(List.of(syncLog(4L))));
+    }
+
+    @Test
+    void reopen_TornRecord_EndsSegmentBeforeIt() throws IOException {
+        InventoryJournal journal = new InventoryJournal(directory, 16);
+        journal.append(List.of(syncLog(1L), syncLog(2L), syncLog(3L)));
+        journal.force();
+
+        // Simulate a crash that flushed only part of the second record
+        Path segment = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), InventoryJournal.RECORD_SIZE + 40);
+        }
+
+        InventoryJournal reopened = new InventoryJournal(directory, 16);
+
+        List<InventoryJournal.Entry> entries = reopened.read(0, 10);
+        assertEquals(1, entries.size());
+        // The torn sequence is reused by the fresh segment, never read from the old one
+        assertEquals(2, reopened.append(List.of(syncLog(9L))));
+        assertEquals("ORDER_9", reopened.read(1, 10).get(0).syncLog().getReferenceId());
+    }
+
+    @Test
+    void checkpoint_DeletesFullyReplayedSegments() throws IOException {
+        InventoryJournal journal = new InventoryJournal(directory, 2);
+        journal.append(List.of(syncLog(1L), syncLog(2L), syncLog(3L), syncLog(4L), syncLog(5L)));
+
+        journal.checkpoint(3);
+        assertEquals(2, segmentFiles().size());
+
+        journal.checkpoint(5);
+        // The active segment is kept for further appends
+        assertEquals(1, segmentFiles().size());
+        assertTrue(journal.read(5, 10).isEmpty());
+    }
+
+    @Test
+    void append_ReferenceTooLong_ThrowsException() throws IOException {
+        InventoryJournal journal = new InventoryJournal(directory, 16);
+        InventorySyncLog log = syncLog(1L);
+        log.setReferenceId("X".repeat(InventoryJournal.MAX_REFERENCE_LENGTH + 1));
+
+        assertThrows(IllegalArgumentException.class, () -> journal.append(List.of(log)));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+
+    private static InventorySyncLog syncLog(Long orderId) {
+        return syncLog(orderId, LocalDateTime.now());
+    }
+
+    private static InventorySyncLog syncLog(Long orderId, LocalDateTime syncedAt) {
+        return InventorySyncLog.builder()
+                .productId(7L)
+                .quantityChange(-1)
+                .stockBefore(99)
+                .stockAfter(98)
+                .syncType("FLASH_SALE_ORDER")
+                .referenceId("ORDER_" + orderId)
+                .syncedAt(syncedAt)
+                .build();
+    }
+}
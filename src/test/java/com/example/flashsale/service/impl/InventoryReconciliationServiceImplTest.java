@@ -0,0 +1,157 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.FlashSaleSoldTotals;
+import com.example.flashsale.dto.InventoryDrift;
+import com.example.flashsale.dto.InventoryReconciliationReport;
+import com.example.flashsale.dto.ProductInventoryTotals;
+import com.example.flashsale.dto.ProductSyncLogTotals;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.repository.FlashSaleOrderRepository;
+import com.example.flashsale.repository.InventorySyncLogRepository;
+import com.example.flashsale.repository.ProductRepository;
+import com.example.flashsale.service.InventorySyncService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryReconciliationServiceImplTest {
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private FlashSaleConfigRepository flashSaleConfigRepository;
+    @Mock
+    private FlashSaleOrderRepository flashSaleOrderRepository;
+    @Mock
+    private InventorySyncLogRepository syncLogRepository;
+    @Mock
+    private InventorySyncService inventorySyncService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private InventoryReconciliationServiceImpl reconciliationService;
+
+    @AfterEach
+    void tearDown() {
+        if (reconciliationService != null) {
+            reconciliationService.shutdown();
+        }
+    }
+
+    @Test
+    void checkPartition_ConsistentTotals_ReportsNoDrift() {
+        reconciliationService = service(false);
+        // 3 orders, 2 logged, the last one taking stock from 8 to 7 is still on its way
+        stubTotals(new ProductInventoryTotals(1L, 7, 3L, 1L, 0L),
+                new ProductSyncLogTotals(1L, 2L, 8),
+                new FlashSaleSoldTotals(10L, 1L, 3, 3L));
+
+        InventoryReconciliationServiceImpl.PartitionResult result =
+                reconciliationService.checkPartition(List.of(1L), LocalDateTime.now());
+
+        assertTrue(result.drifts().isEmpty());
+        // Pending logs are checked again on the next run
+        assertEquals(Set.of(1L), result.recheckProductIds());
+    }
+
+    @Test
+    void checkPartition_DriftedTotals_ReportsEachDrift() {
+        reconciliationService = service(false);
+        stubTotals(new ProductInventoryTotals(1L, 5, 3L, 0L, 0L),
+                new ProductSyncLogTotals(1L, 4L, 7),
+                new FlashSaleSoldTotals(10L, 1L, 2, 3L));
+
+        Map<String, InventoryDrift> drifts = byType(reconciliationService.checkPartition(List.of(1L), LocalDateTime.now()));
+
+        assertEquals(3, drifts.size());
+        assertEquals(7L, drifts.get(InventoryReconciliationServiceImpl.DRIFT_STOCK).getExpected());
+        assertEquals(5L, drifts.get(InventoryReconciliationServiceImpl.DRIFT_STOCK).getActual());
+        assertEquals(4L, drifts.get(InventoryReconciliationServiceImpl.DRIFT_ORPHAN_SYNC_LOG).getActual());
+        assertEquals(3L, drifts.get(InventoryReconciliationServiceImpl.DRIFT_SOLD_QUANTITY).getExpected());
+        verifyNoInteractions(inventorySyncService);
+        verify(flashSaleConfigRepository, never()).repairSoldQuantity(any(), any(), any());
+    }
+
+    @Test
+    void checkPartition_AutoRepair_FixesSoldQuantityAndMissingLogs() {
+        reconciliationService = service(true);
+        LocalDateTime settledBefore = LocalDateTime.now();
+        stubTotals(new ProductInventoryTotals(1L, 7, 3L, 1L, 1L),
+                new ProductSyncLogTotals(1L, 2L, 8),
+                new FlashSaleSoldTotals(10L, 1L, 2, 3L));
+        when(flashSaleOrderRepository.findUnsyncedIdsByProductId(1L, settledBefore)).thenReturn(List.of(42L));
+        when(flashSaleConfigRepository.repairSoldQuantity(10L, 2, 3)).thenReturn(1);
+
+        Map<String, InventoryDrift> drifts = byType(reconciliationService.checkPartition(List.of(1L), settledBefore));
+
+        assertTrue(drifts.get(InventoryReconciliationServiceImpl.DRIFT_MISSING_SYNC_LOG).getRepaired());
+        assertTrue(drifts.get(InventoryReconciliationServiceImpl.DRIFT_SOLD_QUANTITY).getRepaired());
+        // Stock is not compared while settled orders have no log
+        assertFalse(drifts.containsKey(InventoryReconciliationServiceImpl.DRIFT_STOCK));
+        verify(inventorySyncService).syncInventoryForBatch(1L, List.of(42L));
+    }
+
+    @Test
+    void reconcileChanges_AfterFullScan_ChecksOnlyProductsTouchedSinceLastRun() {
+        reconciliationService = service(false);
+        when(productRepository.findIdsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(productRepository.findIdsAfter(eq(2L), any(Pageable.class))).thenReturn(List.of());
+        when(flashSaleOrderRepository.findInventoryTotals(anyCollection(), any())).thenAnswer(invocation -> {
+            List<Long> productIds = invocation.getArgument(0);
+            return productIds.stream().map(id -> new ProductInventoryTotals(id, 10, 0L, 0L, 0L)).toList();
+        });
+
+        LocalDateTime beforeFullScan = LocalDateTime.now();
+        InventoryReconciliationReport full = reconciliationService.reconcileChanges();
+        assertEquals("FULL", full.getScope());
+        assertEquals(2, full.getProductsChecked());
+
+        when(flashSaleOrderRepository.findProductIdsWithOrdersSince(any())).thenReturn(List.of(2L));
+        when(syncLogRepository.findProductIdsWithLogsSince(any())).thenReturn(List.of());
+        InventoryReconciliationReport incremental = reconciliationService.reconcileChanges();
+
+        assertEquals("INCREMENTAL", incremental.getScope());
+        assertEquals(1, incremental.getProductsChecked());
+        verify(flashSaleOrderRepository).findInventoryTotals(eq(List.of(2L)), any());
+        assertSame(incremental, reconciliationService.getLastReport());
+        // The window reaches settle-seconds before the full scan started, orders stamped earlier may commit late
+        ArgumentCaptor<LocalDateTime> since = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(flashSaleOrderRepository).findProductIdsWithOrdersSince(since.capture());
+        verify(syncLogRepository).findProductIdsWithLogsSince(since.getValue());
+        assertFalse(since.getValue().isBefore(beforeFullScan.minusSeconds(60)));
+        assertFalse(since.getValue().isAfter(full.getStartedAt().minusSeconds(60)));
+    }
+
+    private InventoryReconciliationServiceImpl service(boolean autoRepair) {
+        return new InventoryReconciliationServiceImpl(productRepository, flashSaleConfigRepository,
+                flashSaleOrderRepository, syncLogRepository, inventorySyncService, transactionManager,
+                new SimpleMeterRegistry(), 500, 2, 60, autoRepair);
+    }
+
+    private void stubTotals(ProductInventoryTotals product, ProductSyncLogTotals syncLogs, FlashSaleSoldTotals flashSale) {
+        when(flashSaleOrderRepository.findInventoryTotals(anyCollection(), any())).thenReturn(List.of(product));
+        when(syncLogRepository.findSyncLogTotals(anyCollection())).thenReturn(List.of(syncLogs));
+        when(flashSaleConfigRepository.findSoldTotals(anyCollection())).thenReturn(List.of(flashSale));
+    }
+
+    private static Map<String, InventoryDrift> byType(InventoryReconciliationServiceImpl.PartitionResult result) {
+        return result.drifts().stream().collect(Collectors.toMap(InventoryDrift::getType, drift -> drift));
+    }
+}
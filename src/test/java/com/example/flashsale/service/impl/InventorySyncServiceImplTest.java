@@ -2,21 +2,21 @@ package com.example.flashsale.service.impl;
 
 import com.example.flashsale.entity.FlashSaleOrder;
 import com.example.flashsale.entity.InventorySyncLog;
-import com.example.flashsale.entity.Product;
 import com.example.flashsale.repository.FlashSaleOrderRepository;
-import com.example.flashsale.repository.InventorySyncLogRepository;
-import com.example.flashsale.repository.ProductRepository;
+import com.example.flashsale.service.InventorySyncLogWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -26,64 +26,118 @@ import static org.mockito.Mockito.*;
 class InventorySyncServiceImplTest {
 
     @Mock
-    private InventorySyncLogRepository syncLogRepository;
-    @Mock
-    private ProductRepository productRepository;
+    private InventorySyncLogWriter syncLogWriter;
     @Mock
     private FlashSaleOrderRepository flashSaleOrderRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
-    @InjectMocks
+    private SimpleMeterRegistry meterRegistry;
     private InventorySyncServiceImpl inventorySyncService;
 
-    private Product testProduct;
-    private FlashSaleOrder testOrder;
-
     @BeforeEach
     void setUp() {
-        testProduct = Product.builder()
-                .id(1L).name("iPhone 15 Pro")
-                .regularPrice(new BigDecimal("30000000"))
-                .stockQuantity(99).build();
-
-        testOrder = FlashSaleOrder.builder()
-                .id(1L).userId(1L).productId(1L)
-                .status(FlashSaleOrder.OrderStatus.COMPLETED)
-                .orderedAt(LocalDateTime.now()).build();
+        meterRegistry = new SimpleMeterRegistry();
+        inventorySyncService = new InventorySyncServiceImpl(syncLogWriter,
+                flashSaleOrderRepository, transactionManager, meterRegistry, 2, 500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
     }
 
     @Test
-    void syncInventoryForOrder_Success() {
-        when(syncLogRepository.existsBySyncTypeAndReferenceId(any(), any())).thenReturn(false);
-        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
-        when(flashSaleOrderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
+    void syncInventoryForOrder_InsideTransaction_QueuesOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
 
         inventorySyncService.syncInventoryForOrder(1L, 1L);
+        assertEquals(0, inventorySyncService.drainPending());
+        verifyNoInteractions(syncLogWriter, flashSaleOrderRepository);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        when(flashSaleOrderRepository.findCompletedByIdIn(anyCollection())).thenReturn(List.of(order(1L, 99)));
 
-        ArgumentCaptor<InventorySyncLog> captor = ArgumentCaptor.forClass(InventorySyncLog.class);
-        verify(syncLogRepository).save(captor.capture());
+        assertEquals(1, inventorySyncService.drainPending());
 
-        InventorySyncLog log = captor.getValue();
+        InventorySyncLog log = captureWritten().get(0);
         assertEquals(1L, log.getProductId());
         assertEquals(-1, log.getQuantityChange());
         assertEquals(100, log.getStockBefore());
         assertEquals(99, log.getStockAfter());
+        assertEquals("ORDER_1", log.getReferenceId());
     }
 
     @Test
-    void syncInventoryForOrder_AlreadySynced_SkipsSync() {
-        when(syncLogRepository.existsBySyncTypeAndReferenceId(any(), any())).thenReturn(true);
+    void flush_UsesStockRecordedOnEachOrderWhateverTheIdOrder() {
+        // Order 9 came from an instance whose ids run ahead, it committed before order 5
+        when(flashSaleOrderRepository.findCompletedByIdIn(anyCollection())).thenReturn(List.of(order(5L, 7), order(9L, 8)));
+
+        inventorySyncService.syncInventoryForBatch(1L, List.of(5L, 9L, 5L));
+        inventorySyncService.flush();
+
+        List<InventorySyncLog> logs = captureWritten();
+        assertEquals(2, logs.size());
+        assertEquals("ORDER_5", logs.get(0).getReferenceId());
+        assertEquals(8, logs.get(0).getStockBefore());
+        assertEquals(7, logs.get(0).getStockAfter());
+        assertEquals("ORDER_9", logs.get(1).getReferenceId());
+        assertEquals(9, logs.get(1).getStockBefore());
+        assertEquals(8, logs.get(1).getStockAfter());
+    }
+
+    @Test
+    void flush_OrderNotCompleted_SkipsSync() {
+        when(flashSaleOrderRepository.findCompletedByIdIn(anyCollection())).thenReturn(List.of());
 
         inventorySyncService.syncInventoryForOrder(1L, 1L);
+        inventorySyncService.flush();
 
-        verify(syncLogRepository, never()).save(any());
-        verify(productRepository, never()).findById(any());
+        verify(syncLogWriter, never()).write(anyList());
     }
 
     @Test
-    void syncInventoryForOrder_ProductNotFound_ThrowsException() {
-        when(syncLogRepository.existsBySyncTypeAndReferenceId(any(), any())).thenReturn(false);
-        when(productRepository.findById(999L)).thenReturn(Optional.empty());
+    void syncInventoryForBatch_QueueFull_DropsAndRecoversFromOrders() {
+        when(flashSaleOrderRepository.findUnsyncedAfter(0L, 500)).thenReturn(List.of());
+        inventorySyncService.recover();
+
+        inventorySyncService.syncInventoryForBatch(1L, List.of(1L, 2L, 3L));
+        assertEquals(1.0, meterRegistry.get("flashsale.inventory.sync.dropped").counter().count());
+
+        FlashSaleOrder dropped = order(3L, 97);
+        when(flashSaleOrderRepository.findUnsyncedAfter(0L, 500)).thenReturn(List.of(dropped));
+        when(flashSaleOrderRepository.findCompletedByIdIn(anyCollection())).thenReturn(List.of(dropped));
+
+        assertEquals(1, inventorySyncService.recoverUnsynced());
+        assertEquals("ORDER_3", captureWritten().get(0).getReferenceId());
+        // Nothing else was dropped, the next run does not scan again
+        assertEquals(0, inventorySyncService.recoverUnsynced());
+    }
+
+    @Test
+    void flush_WriteFails_LeavesEventsToRecovery() {
+        when(flashSaleOrderRepository.findUnsyncedAfter(0L, 500)).thenReturn(List.of());
+        inventorySyncService.recover();
+        when(flashSaleOrderRepository.findCompletedByIdIn(anyCollection())).thenThrow(new RuntimeException("Database down"));
+
+        inventorySyncService.syncInventoryForOrder(1L, 1L);
+        inventorySyncService.flush();
+
+        inventorySyncService.recover();
+        verify(flashSaleOrderRepository, times(2)).findUnsyncedAfter(0L, 500);
+    }
+
+    private static FlashSaleOrder order(Long id, int stockAfter) {
+        return FlashSaleOrder.builder().id(id).productId(1L).stockAfter(stockAfter)
+                .status(FlashSaleOrder.OrderStatus.COMPLETED).build();
+    }
 
-        assertThrows(RuntimeException.class, () -> inventorySyncService.syncInventoryForOrder(1L, 999L));
+    @SuppressWarnings("unchecked")
+    private List<InventorySyncLog> captureWritten() {
+        ArgumentCaptor<List<InventorySyncLog>> captor = ArgumentCaptor.forClass(List.class);
+        verify(syncLogWriter).write(captor.capture());
+        return captor.getValue();
     }
-}
\ No newline at end of file
+}
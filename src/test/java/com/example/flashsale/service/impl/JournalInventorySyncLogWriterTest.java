@@ -0,0 +1,80 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.InventorySyncLog;
+import com.example.flashsale.repository.InventorySyncLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JournalInventorySyncLogWriterTest {
+
+    @Mock
+    private InventorySyncLogRepository syncLogRepository;
+
+    @TempDir
+    Path directory;
+
+    private InventoryJournal journal;
+    private JournalInventorySyncLogWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = new InventoryJournal(directory, 16);
+        writer = new JournalInventorySyncLogWriter(syncLogRepository, journal, 2);
+    }
+
+    @Test
+    void replayPending_InsertsInBatchesAndAdvancesCheckpoint() {
+        writer.write(List.of(syncLog(1L), syncLog(2L), syncLog(3L)));
+        verifyNoInteractions(syncLogRepository);
+
+        assertEquals(3, writer.replayPending());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<InventorySyncLog>> captor = ArgumentCaptor.forClass(List.class);
+        verify(syncLogRepository, times(2)).insertIgnoringDuplicates(captor.capture());
+        assertEquals(2, captor.getAllValues().get(0).size());
+        assertEquals("ORDER_3", captor.getAllValues().get(1).get(0).getReferenceId());
+        assertEquals(3, journal.getCheckpoint());
+        assertEquals(0, writer.replayPending());
+    }
+
+    @Test
+    void replay_InsertFails_ResumesFromCheckpoint() {
+        writer.write(List.of(syncLog(1L), syncLog(2L), syncLog(3L)));
+        doNothing()
+                .doThrow(new RuntimeException("Database down"))
+                .doNothing()
+                .when(syncLogRepository).insertIgnoringDuplicates(anyList());
+
+        writer.replay();
+        assertEquals(2, journal.getCheckpoint());
+
+        writer.replay();
+        assertEquals(3, journal.getCheckpoint());
+    }
+
+    private static InventorySyncLog syncLog(Long orderId) {
+        return InventorySyncLog.builder()
+                .productId(1L)
+                .quantityChange(-1)
+                .stockBefore(10)
+                .stockAfter(9)
+                .syncType("FLASH_SALE_ORDER")
+                .referenceId("ORDER_" + orderId)
+                .build();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.entity.FlashSaleOrder;
+import com.example.flashsale.entity.Product;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.repository.FlashSaleOrderRepository;
+import com.example.flashsale.repository.ProductRepository;
+import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.service.InventorySyncService;
+import com.example.flashsale.service.PurchaseIdempotencyService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OptimisticPurchaseStrategyTest {
+    @Mock
+    private FlashSaleConfigRepository flashSaleConfigRepository;
+
+    @Mock
+    private FlashSaleOrderRepository flashSaleOrderRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private InventorySyncService inventorySyncService;
+
+    @Mock
+    private PurchaseIdempotencyService purchaseIdempotencyService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private OptimisticPurchaseStrategy purchaseStrategy;
+
+    private FlashSaleConfig testFlashSaleConfig;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        purchaseStrategy = new OptimisticPurchaseStrategy(flashSaleConfigRepository, flashSaleOrderRepository,
+                productRepository, userRepository, inventorySyncService, purchaseIdempotencyService, transactionManager, meterRegistry, 2, 0);
+
+        Product testProduct = Product.builder()
+                .id(1L).name("iPhone 15 Pro")
+                .regularPrice(new BigDecimal("30000000"))
+                .stockQuantity(100).build();
+
+        testFlashSaleConfig = FlashSaleConfig.builder()
+                .id(1L).productId(1L).product(testProduct)
+                .flashPrice(new BigDecimal("25000000"))
+                .flashQuantity(50).soldQuantity(10).version(3L)
+                .saleDate(LocalDate.now())
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(12, 0)).build();
+    }
+
+    @Test
+    void purchase_RetriesAfterConflict() {
+        when(flashSaleConfigRepository.findById(1L)).thenAnswer(invocation -> Optional.of(copyOf(testFlashSaleConfig)));
+        when(flashSaleConfigRepository.saveAndFlush(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(FlashSaleConfig.class, 1L))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(productRepository.decrementStock(1L)).thenReturn(1);
+        when(userRepository.deductBalance(any(), any())).thenReturn(1);
+        when(flashSaleOrderRepository.saveAndFlush(any())).thenReturn(
+                FlashSaleOrder.builder().id(1L).status(FlashSaleOrder.OrderStatus.COMPLETED).build());
+
+        PurchaseResponse response = purchaseStrategy.purchase(1L, testFlashSaleConfig, null);
+
+        assertEquals("Purchase successful!", response.getMessage());
+        assertEquals(1.0, meterRegistry.counter("flashsale.purchase.optimistic.conflicts").count());
+        assertEquals(1.0, meterRegistry.counter("flashsale.purchase.optimistic.retries").count());
+        verify(inventorySyncService).syncInventoryForOrder(1L, 1L);
+    }
+
+    @Test
+    void purchase_RetryBudgetExhausted_ThrowsException() {
+        testFlashSaleConfig.setMaxPurchaseRetries(1);
+        when(flashSaleConfigRepository.findById(1L)).thenAnswer(invocation -> Optional.of(copyOf(testFlashSaleConfig)));
+        when(flashSaleConfigRepository.saveAndFlush(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(FlashSaleConfig.class, 1L));
+
+        assertThrows(BusinessException.class, () -> purchaseStrategy.purchase(1L, testFlashSaleConfig, null));
+        verify(flashSaleConfigRepository, times(2)).saveAndFlush(any());
+        assertEquals(2.0, meterRegistry.counter("flashsale.purchase.optimistic.conflicts").count());
+        assertEquals(1.0, meterRegistry.counter("flashsale.purchase.optimistic.retries").count());
+    }
+
+    @Test
+    void purchase_SoldOut() {
+        testFlashSaleConfig.setSoldQuantity(50);
+        when(flashSaleConfigRepository.findById(1L)).thenReturn(Optional.of(testFlashSaleConfig));
+
+        assertThrows(SoldOutException.class, () -> purchaseStrategy.purchase(1L, testFlashSaleConfig, null));
+        verify(flashSaleConfigRepository, never()).saveAndFlush(any());
+    }
+
+    private FlashSaleConfig copyOf(FlashSaleConfig config) {
+        return FlashSaleConfig.builder()
+                .id(config.getId()).productId(config.getProductId())
+                .flashPrice(config.getFlashPrice())
+                .flashQuantity(config.getFlashQuantity()).soldQuantity(config.getSoldQuantity())
+                .version(config.getVersion()).build();
+    }
+}
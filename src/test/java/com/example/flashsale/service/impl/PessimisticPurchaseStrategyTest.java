@@ -0,0 +1,145 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.entity.FlashSaleOrder;
+import com.example.flashsale.entity.Product;
+import com.example.flashsale.entity.User;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.repository.FlashSaleOrderRepository;
+import com.example.flashsale.repository.ProductRepository;
+import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.service.InventorySyncService;
+import com.example.flashsale.service.PurchaseIdempotencyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PessimisticPurchaseStrategyTest {
+    @Mock
+    private FlashSaleConfigRepository flashSaleConfigRepository;
+
+    @Mock
+    private FlashSaleOrderRepository flashSaleOrderRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private InventorySyncService inventorySyncService;
+
+    @Mock
+    private PurchaseIdempotencyService purchaseIdempotencyService;
+
+    @InjectMocks
+    private PessimisticPurchaseStrategy purchaseStrategy;
+
+    private User testUser;
+
+    private Product testProduct;
+
+    private FlashSaleConfig testFlashSaleConfig;
+
+    @BeforeEach
+    void setUp() {
+        testUser = User.builder()
+                .id(1L).email("test@example.com")
+                .balance(new BigDecimal("50000000")).build();
+
+        testProduct = Product.builder()
+                .id(1L).name("iPhone 15 Pro")
+                .regularPrice(new BigDecimal("30000000"))
+                .stockQuantity(100).build();
+
+        testFlashSaleConfig = FlashSaleConfig.builder()
+                .id(1L).productId(1L).product(testProduct)
+                .flashPrice(new BigDecimal("25000000"))
+                .flashQuantity(50).soldQuantity(10)
+                .saleDate(LocalDate.now())
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(12, 0)).build();
+    }
+
+    @Test
+    void purchase_Success() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(flashSaleConfigRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testFlashSaleConfig));
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+        when(flashSaleOrderRepository.saveAndFlush(any())).thenReturn(
+                FlashSaleOrder.builder().id(1L).status(FlashSaleOrder.OrderStatus.COMPLETED).build());
+
+        PurchaseResponse response = purchaseStrategy.purchase(1L, testFlashSaleConfig, null);
+
+        assertEquals("Purchase successful!", response.getMessage());
+        assertEquals(11, testFlashSaleConfig.getSoldQuantity());
+        assertEquals(99, testProduct.getStockQuantity());
+        verify(inventorySyncService).syncInventoryForOrder(1L, 1L);
+    }
+
+    @Test
+    void purchase_IdempotencyKey_RecordedWithOrder() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(flashSaleConfigRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testFlashSaleConfig));
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+        when(flashSaleOrderRepository.saveAndFlush(any())).thenReturn(
+                FlashSaleOrder.builder().id(1L).status(FlashSaleOrder.OrderStatus.COMPLETED).build());
+
+        PurchaseResponse response = purchaseStrategy.purchase(1L, testFlashSaleConfig, "key-1");
+
+        verify(purchaseIdempotencyService).record(1L, "key-1", response);
+    }
+
+    @Test
+    void purchase_AlreadyPurchased() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(flashSaleConfigRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testFlashSaleConfig));
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+        when(flashSaleOrderRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("uk_user_order_date"));
+
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> purchaseStrategy.purchase(1L, testFlashSaleConfig, null));
+        assertEquals("You can only purchase one flash sale product per day", exception.getMessage());
+        verifyNoInteractions(inventorySyncService);
+    }
+
+    @Test
+    void purchase_SoldOut() {
+        testFlashSaleConfig.setSoldQuantity(50);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(flashSaleConfigRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testFlashSaleConfig));
+
+        assertThrows(SoldOutException.class, () -> purchaseStrategy.purchase(1L, testFlashSaleConfig, null));
+    }
+
+    @Test
+    void purchase_InsufficientBalance() {
+        testUser.setBalance(new BigDecimal("100"));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(flashSaleConfigRepository.findByIdWithLock(any())).thenReturn(Optional.of(testFlashSaleConfig));
+        when(productRepository.findByIdWithLock(any())).thenReturn(Optional.of(testProduct));
+
+        assertThrows(BusinessException.class, () -> purchaseStrategy.purchase(1L, testFlashSaleConfig, null));
+    }
+}
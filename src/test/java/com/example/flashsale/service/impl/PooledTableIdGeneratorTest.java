@@ -0,0 +1,65 @@
+package com.example.flashsale.service.impl;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledTableIdGeneratorTest {
+
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:id_blocks;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE id_blocks (table_name VARCHAR(64) PRIMARY KEY, next_value BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY)");
+        jdbcTemplate.execute("INSERT INTO users (id) VALUES (1), (2), (7)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void nextId_FirstUse_StartsAfterExistingIds() {
+        PooledTableIdGenerator generator = new PooledTableIdGenerator(dataSource, 10);
+
+        assertEquals(8, generator.nextId("users"));
+        assertEquals(9, generator.nextId("users"));
+        assertEquals(18L, jdbcTemplate.queryForObject(
+                "SELECT next_value FROM id_blocks WHERE table_name = 'users'", Long.class));
+    }
+
+    @Test
+    void nextId_TwoNodes_HandOutDisjointBlocks() {
+        PooledTableIdGenerator first = new PooledTableIdGenerator(dataSource, 3);
+        PooledTableIdGenerator second = new PooledTableIdGenerator(dataSource, 3);
+        Set<Long> ids = new HashSet<>();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(ids.add(first.nextId("users")));
+            assertTrue(ids.add(second.nextId("users")));
+        }
+
+        assertEquals(20, ids.size());
+        assertTrue(ids.stream().allMatch(id -> id > 7));
+    }
+
+    @Test
+    void nextId_InvalidTableName_ThrowsException() {
+        PooledTableIdGenerator generator = new PooledTableIdGenerator(dataSource, 10);
+
+        assertThrows(IllegalArgumentException.class, () -> generator.nextId("users; DROP TABLE users"));
+    }
+}
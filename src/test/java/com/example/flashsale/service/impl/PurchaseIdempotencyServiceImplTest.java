@@ -0,0 +1,182 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.entity.PurchaseIdempotencyKey;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.IdempotencyKeyMismatchException;
+import com.example.flashsale.exception.PurchasePendingException;
+import com.example.flashsale.exception.ServiceUnavailableException;
+import com.example.flashsale.repository.PurchaseIdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PurchaseIdempotencyServiceImplTest {
+    @Mock
+    private PurchaseIdempotencyKeyRepository purchaseIdempotencyKeyRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private PurchaseIdempotencyServiceImpl purchaseIdempotencyService;
+
+    private PurchaseResponse testResponse;
+
+    @BeforeEach
+    void setUp() {
+        purchaseIdempotencyService = new PurchaseIdempotencyServiceImpl(purchaseIdempotencyKeyRepository, objectMapper, 100, 1000, 24);
+        testResponse = PurchaseResponse.builder()
+                .orderId(1L).productId(1L)
+                .amount(new BigDecimal("25000000"))
+                .status("COMPLETED")
+                .orderedAt(LocalDateTime.of(2026, 1, 1, 10, 30))
+                .message("Purchase successful!").build();
+    }
+
+    @Test
+    void execute_ReplayReturnsOriginalFromMemory() {
+        AtomicInteger executions = new AtomicInteger();
+
+        purchaseIdempotencyService.execute(1L, "key-1", 1L, () -> {
+            executions.incrementAndGet();
+            return testResponse;
+        });
+        PurchaseResponse replay = purchaseIdempotencyService.execute(1L, "key-1", 1L, () -> {
+            executions.incrementAndGet();
+            return testResponse;
+        });
+
+        assertEquals(testResponse, replay);
+        assertEquals(1, executions.get());
+        verify(purchaseIdempotencyKeyRepository, times(1)).findByUserIdAndIdempotencyKey(1L, "key-1");
+    }
+
+    @Test
+    void execute_ReplayFromDurableTable() throws Exception {
+        when(purchaseIdempotencyKeyRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.of(
+                PurchaseIdempotencyKey.builder().id(1L).productId(1L).responseBody(objectMapper.writeValueAsString(testResponse)).build()));
+
+        PurchaseResponse replay = purchaseIdempotencyService.execute(1L, "key-1", 1L, () -> {
+            throw new AssertionError("purchase must not run again");
+        });
+
+        assertEquals(testResponse, replay);
+    }
+
+    @Test
+    void execute_ConcurrentDuplicateWaitsForInFlightResult() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<PurchaseResponse> first = CompletableFuture.supplyAsync(() ->
+                purchaseIdempotencyService.execute(1L, "key-1", 1L, () -> {
+                    started.countDown();
+                    awaitQuietly(release);
+                    return testResponse;
+                }));
+        started.await(1, TimeUnit.SECONDS);
+
+        CompletableFuture<PurchaseResponse> duplicate = CompletableFuture.supplyAsync(() ->
+                purchaseIdempotencyService.execute(1L, "key-1", 1L, () -> {
+                    throw new AssertionError("duplicate must not run");
+                }));
+        release.countDown();
+
+        assertEquals(testResponse, first.get(1, TimeUnit.SECONDS));
+        assertEquals(testResponse, duplicate.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void execute_FailureNotRecorded() {
+        assertThrows(BusinessException.class, () -> purchaseIdempotencyService.execute(1L, "key-1", 1L, () -> {
+            throw new BusinessException("Insufficient balance");
+        }));
+
+        assertEquals(testResponse, purchaseIdempotencyService.execute(1L, "key-1", 1L, () -> testResponse));
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void execute_PendingReplaysOutcomeOnceCommitted() {
+        CompletableFuture<PurchaseResponse> result = new CompletableFuture<>();
+        AtomicInteger executions = new AtomicInteger();
+
+        assertThrows(PurchasePendingException.class, () -> purchaseIdempotencyService.execute(1L, "key-pending", 1L, () -> {
+            executions.incrementAndGet();
+            throw new PurchasePendingException(1L, result);
+        }));
+        result.complete(testResponse);
+        PurchaseResponse replay = purchaseIdempotencyService.execute(1L, "key-pending", 1L, () -> {
+            executions.incrementAndGet();
+            return testResponse;
+        });
+
+        assertEquals(testResponse, replay);
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_PendingRetryWaitsInsteadOfBuyingAgain() {
+        assertThrows(PurchasePendingException.class, () -> purchaseIdempotencyService.execute(1L, "key-pending", 1L, () -> {
+            throw new PurchasePendingException(1L, new CompletableFuture<>());
+        }));
+
+        assertThrows(ServiceUnavailableException.class, () -> purchaseIdempotencyService.execute(1L, "key-pending", 1L, () -> {
+            throw new AssertionError("purchase must not run while the first is pending");
+        }));
+    }
+
+    @Test
+    void execute_KeyReusedForOtherProduct_Rejected() {
+        purchaseIdempotencyService.execute(1L, "key-1", 1L, () -> testResponse);
+
+        assertThrows(IdempotencyKeyMismatchException.class, () -> purchaseIdempotencyService.execute(1L, "key-1", 2L, () -> {
+            throw new AssertionError("purchase must not run for a reused key");
+        }));
+    }
+
+    @Test
+    void execute_KeyRecordedForOtherProduct_Rejected() throws Exception {
+        when(purchaseIdempotencyKeyRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.of(
+                PurchaseIdempotencyKey.builder().id(1L).productId(1L).responseBody(objectMapper.writeValueAsString(testResponse)).build()));
+
+        assertThrows(IdempotencyKeyMismatchException.class, () -> purchaseIdempotencyService.execute(1L, "key-1", 2L, () -> {
+            throw new AssertionError("purchase must not run for a reused key");
+        }));
+    }
+
+    @Test
+    void record_SavesProductAndResponse() throws Exception {
+        purchaseIdempotencyService.record(1L, "key-1", testResponse);
+
+        ArgumentCaptor<PurchaseIdempotencyKey> saved = ArgumentCaptor.forClass(PurchaseIdempotencyKey.class);
+        verify(purchaseIdempotencyKeyRepository).save(saved.capture());
+        assertEquals(1L, saved.getValue().getProductId());
+        assertEquals(testResponse, objectMapper.readValue(saved.getValue().getResponseBody(), PurchaseResponse.class));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.exception.TooManyRequestsException;
+import com.example.flashsale.service.FlashSaleScheduleService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PurchaseRateLimitServiceImplTest {
+    @Mock
+    private FlashSaleScheduleService flashSaleScheduleService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PurchaseRateLimitServiceImpl purchaseRateLimitService;
+
+    private FlashSaleConfig testFlashSaleConfig;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        purchaseRateLimitService = new PurchaseRateLimitServiceImpl(flashSaleScheduleService, meterRegistry, 1, 2, 100, 300, 60000);
+        testFlashSaleConfig = FlashSaleConfig.builder()
+                .id(1L).productId(1L)
+                .flashQuantity(10).soldQuantity(0)
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(12, 0)).build();
+    }
+
+    @Test
+    void acquire_UserBurstExhausted_ThrowsWithRetryAfter() {
+        when(flashSaleScheduleService.findActiveFlashSale(eq(1L), any(), any())).thenReturn(Optional.of(testFlashSaleConfig));
+
+        purchaseRateLimitService.acquire(1L, 1L);
+        purchaseRateLimitService.acquire(1L, 1L);
+        TooManyRequestsException exception = assertThrows(TooManyRequestsException.class,
+                () -> purchaseRateLimitService.acquire(1L, 1L));
+
+        assertTrue(exception.getRetryAfterSeconds() >= 1);
+        assertEquals(1.0, meterRegistry.get("flashsale.ratelimit.requests").tag("outcome", "user_limited").counter().count());
+        // Other users keep their own budget
+        purchaseRateLimitService.acquire(2L, 1L);
+    }
+
+    @Test
+    void acquire_PerSaleLimitOverridesDefault() {
+        testFlashSaleConfig.setPurchaseRateLimit(1);
+        when(flashSaleScheduleService.findActiveFlashSale(eq(1L), any(), any())).thenReturn(Optional.of(testFlashSaleConfig));
+
+        purchaseRateLimitService.acquire(1L, 1L);
+
+        assertThrows(TooManyRequestsException.class, () -> purchaseRateLimitService.acquire(2L, 1L));
+        assertEquals(1.0, meterRegistry.get("flashsale.ratelimit.requests").tag("outcome", "sale_limited").counter().count());
+    }
+
+    @Test
+    void acquire_NoActiveSale_OnlyUserLimited() {
+        when(flashSaleScheduleService.findActiveFlashSale(eq(9L), any(), any()))
+                .thenReturn(Optional.empty());
+
+        purchaseRateLimitService.acquire(1L, 9L);
+
+        assertEquals(1.0, meterRegistry.get("flashsale.ratelimit.requests").tag("outcome", "admitted").counter().count());
+    }
+
+    @Test
+    void acquire_SaleLimited_RefundsUserToken() {
+        testFlashSaleConfig.setPurchaseRateLimit(1);
+        when(flashSaleScheduleService.findActiveFlashSale(eq(1L), any(), any())).thenReturn(Optional.of(testFlashSaleConfig));
+        purchaseRateLimitService.acquire(2L, 1L);
+
+        assertThrows(TooManyRequestsException.class, () -> purchaseRateLimitService.acquire(1L, 1L));
+        assertThrows(TooManyRequestsException.class, () -> purchaseRateLimitService.acquire(1L, 1L));
+
+        // Both rejections came from the sale, the user's burst of 2 is untouched
+        purchaseRateLimitService.acquire(1L, 9L);
+        purchaseRateLimitService.acquire(1L, 9L);
+        assertEquals(2.0, meterRegistry.get("flashsale.ratelimit.requests").tag("outcome", "sale_limited").counter().count());
+        assertEquals(0.0, meterRegistry.get("flashsale.ratelimit.requests").tag("outcome", "user_limited").counter().count());
+    }
+
+    @Test
+    void acquire_SaleLimitChanged_RebuildsBucket() {
+        testFlashSaleConfig.setPurchaseRateLimit(1);
+        when(flashSaleScheduleService.findActiveFlashSale(eq(1L), any(), any())).thenReturn(Optional.of(testFlashSaleConfig));
+        purchaseRateLimitService.acquire(1L, 1L);
+        assertThrows(TooManyRequestsException.class, () -> purchaseRateLimitService.acquire(2L, 1L));
+
+        testFlashSaleConfig.setPurchaseRateLimit(100);
+
+        purchaseRateLimitService.acquire(2L, 1L);
+        purchaseRateLimitService.acquire(3L, 1L);
+    }
+
+    @Test
+    void acquire_SaleLimitNotPositive_SaleClosed() {
+        testFlashSaleConfig.setPurchaseRateLimit(0);
+        when(flashSaleScheduleService.findActiveFlashSale(eq(1L), any(), any())).thenReturn(Optional.of(testFlashSaleConfig));
+
+        TooManyRequestsException exception = assertThrows(TooManyRequestsException.class,
+                () -> purchaseRateLimitService.acquire(1L, 1L));
+
+        assertEquals(60, exception.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.get("flashsale.ratelimit.requests").tag("outcome", "sale_limited").counter().count());
+    }
+
+    @Test
+    void constructor_NonPositiveDefaultLimit_Rejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PurchaseRateLimitServiceImpl(flashSaleScheduleService, meterRegistry, 1, 2, 0, 300, 60000));
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.PurchaseRequest;
+import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.dto.PurchaseTicketResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.repository.FlashSaleOrderRepository;
+import com.example.flashsale.repository.ProductRepository;
+import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.security.AuthenticatedUser;
+import com.example.flashsale.service.CustomUserDetailsService;
+import com.example.flashsale.service.FlashSaleService;
+import com.example.flashsale.service.InventorySyncService;
+import com.example.flashsale.service.PurchaseIdempotencyService;
+import com.example.flashsale.service.PurchaserIndexService;
+import com.example.flashsale.service.SoldOutRegistryService;
+import com.example.flashsale.service.StockReservationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PurchaseTicketServiceImplTest {
+    @Mock
+    private FlashSaleService flashSaleService;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private PurchaserIndexService purchaserIndexService;
+
+    @Mock
+    private SoldOutRegistryService soldOutRegistryService;
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
+    private PurchaseTicketServiceImpl purchaseTicketService;
+
+    private PurchaseRequest request;
+
+    @BeforeEach
+    void setUp() {
+        purchaseTicketService = new PurchaseTicketServiceImpl(flashSaleService, stockReservationService,
+                purchaserIndexService, soldOutRegistryService, userDetailsService, 1, 10, 10);
+        request = new PurchaseRequest();
+        request.setProductId(1L);
+        setupSecurityContext(1L, "test@example.com");
+    }
+
+    @AfterEach
+    void tearDown() {
+        purchaseTicketService.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void submitPurchase_CompletesTicket() {
+        when(flashSaleService.purchaseFlashSaleProduct(request)).thenReturn(
+                PurchaseResponse.builder().orderId(1L).message("Purchase successful!").build());
+
+        PurchaseTicketResponse ticket = purchaseTicketService.submitPurchase(request);
+        assertEquals("PENDING", ticket.getStatus());
+
+        verify(flashSaleService, timeout(1000)).purchaseFlashSaleProduct(request);
+        PurchaseTicketResponse settled = awaitSettled(ticket.getTicketId());
+        assertEquals("COMPLETED", settled.getStatus());
+        assertEquals(1L, settled.getPurchase().getOrderId());
+    }
+
+    @Test
+    void submitPurchase_RejectedByService() {
+        when(flashSaleService.purchaseFlashSaleProduct(request)).thenThrow(new BusinessException("Insufficient balance"));
+
+        PurchaseTicketResponse ticket = purchaseTicketService.submitPurchase(request);
+
+        PurchaseTicketResponse settled = awaitSettled(ticket.getTicketId());
+        assertEquals("REJECTED", settled.getStatus());
+        assertEquals("Insufficient balance", settled.getError());
+    }
+
+    @Test
+    void submitPurchase_SoldOut_NotQueued() {
+        doThrow(new SoldOutException()).when(stockReservationService).ensureAvailable(eq(1L), any(), any());
+
+        assertThrows(SoldOutException.class, () -> purchaseTicketService.submitPurchase(request));
+        verifyNoInteractions(flashSaleService);
+    }
+
+    @Test
+    void submitPurchase_RepeatBuyer_NotQueued() {
+        when(purchaserIndexService.hasPurchased(1L, LocalDate.now())).thenReturn(true);
+
+        assertThrows(BusinessException.class, () -> purchaseTicketService.submitPurchase(request));
+        verifyNoInteractions(stockReservationService, flashSaleService);
+    }
+
+    @Test
+    void submitPurchase_FlaggedSoldOut_NotQueued() {
+        when(soldOutRegistryService.isSoldOut(eq(1L), any(), any())).thenReturn(true);
+
+        assertThrows(SoldOutException.class, () -> purchaseTicketService.submitPurchase(request));
+        verifyNoInteractions(stockReservationService, flashSaleService);
+    }
+
+    @Test
+    void submitPurchase_IdempotencyKeyReplay_SkipsRepeatBuyerCheck() {
+        request.setIdempotencyKey("retry-1");
+        when(flashSaleService.purchaseFlashSaleProduct(request)).thenReturn(
+                PurchaseResponse.builder().orderId(1L).message("Purchase successful!").build());
+
+        PurchaseTicketResponse ticket = purchaseTicketService.submitPurchase(request);
+
+        assertEquals("COMPLETED", awaitSettled(ticket.getTicketId()).getStatus());
+        verifyNoInteractions(purchaserIndexService);
+    }
+
+    @Test
+    void getTicket_OtherUser_ThrowsException() {
+        when(flashSaleService.purchaseFlashSaleProduct(request)).thenReturn(PurchaseResponse.builder().build());
+        PurchaseTicketResponse ticket = purchaseTicketService.submitPurchase(request);
+        awaitSettled(ticket.getTicketId());
+
+        setupSecurityContext(2L, "other@example.com");
+
+        assertThrows(BusinessException.class, () -> purchaseTicketService.getTicket(ticket.getTicketId()));
+    }
+
+    @Test
+    void submitPurchase_SequencedCommitTimesOut_StaysPendingUntilRolledBack() throws Exception {
+        FlashSaleConfigRepository flashSaleConfigRepository = mock(FlashSaleConfigRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        SequencedPurchaseStrategy sequencedStrategy = new SequencedPurchaseStrategy(flashSaleConfigRepository,
+                mock(FlashSaleOrderRepository.class), mock(ProductRepository.class), mock(UserRepository.class),
+                mock(InventorySyncService.class), mock(PurchaseIdempotencyService.class), transactionManager, 1, 16, 8, 100);
+        FlashSaleConfig flashSale = FlashSaleConfig.builder()
+                .id(1L).productId(1L)
+                .flashPrice(new BigDecimal("25000000"))
+                .flashQuantity(50).soldQuantity(10)
+                .saleDate(LocalDate.now())
+                .startTime(LocalTime.MIN)
+                .endTime(LocalTime.MAX).build();
+        // The writer holds the batch open past the caller's timeout, then the commit fails
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            writerBlocked.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        when(flashSaleConfigRepository.findByIdWithLock(1L)).thenReturn(Optional.empty());
+        CountDownLatch callerTimedOut = new CountDownLatch(1);
+        when(flashSaleService.purchaseFlashSaleProduct(request)).thenAnswer(invocation -> {
+            try {
+                return sequencedStrategy.purchase(1L, flashSale, null);
+            } finally {
+                callerTimedOut.countDown();
+            }
+        });
+
+        try {
+            PurchaseTicketResponse ticket = purchaseTicketService.submitPurchase(request);
+            assertTrue(callerTimedOut.await(5, TimeUnit.SECONDS));
+
+            assertEquals("PENDING", purchaseTicketService.getTicket(ticket.getTicketId()).getStatus());
+
+            writerBlocked.countDown();
+            PurchaseTicketResponse settled = awaitSettled(ticket.getTicketId());
+            assertEquals("REJECTED", settled.getStatus());
+            assertEquals("Flash sale not found", settled.getError());
+        } finally {
+            sequencedStrategy.shutdown();
+        }
+    }
+
+    private PurchaseTicketResponse awaitSettled(String ticketId) {
+        long deadline = System.currentTimeMillis() + 1000;
+        PurchaseTicketResponse ticket = purchaseTicketService.getTicket(ticketId);
+        while ("PENDING".equals(ticket.getStatus()) && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+            ticket = purchaseTicketService.getTicket(ticketId);
+        }
+        return ticket;
+    }
+
+    private void setupSecurityContext(Long userId, String username) {
+        AuthenticatedUser principal = new AuthenticatedUser(userId, username, "", List.of());
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(principal, null));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.repository.FlashSaleOrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PurchaserIndexServiceImplTest {
+    @Mock
+    private FlashSaleOrderRepository flashSaleOrderRepository;
+
+    @InjectMocks
+    private PurchaserIndexServiceImpl purchaserIndexService;
+
+    @Test
+    void rebuild_LoadsTodaysPurchasers() {
+        LocalDate today = LocalDate.now();
+        when(flashSaleOrderRepository.findUserIdsByOrderDate(today)).thenReturn(List.of(1L, 64L, 1_000_003L));
+
+        purchaserIndexService.rebuild();
+
+        assertTrue(purchaserIndexService.hasPurchased(1L, today));
+        assertTrue(purchaserIndexService.hasPurchased(64L, today));
+        assertTrue(purchaserIndexService.hasPurchased(1_000_003L, today));
+        assertFalse(purchaserIndexService.hasPurchased(2L, today));
+        assertFalse(purchaserIndexService.hasPurchased(65L, today));
+    }
+
+    @Test
+    void markPurchased_OnlyAffectsThatUser() {
+        LocalDate today = LocalDate.now();
+
+        purchaserIndexService.markPurchased(6L, today);
+
+        assertFalse(purchaserIndexService.hasPurchased(5L, today));
+        assertFalse(purchaserIndexService.hasPurchased(7L, today));
+        assertTrue(purchaserIndexService.hasPurchased(6L, today));
+    }
+
+    @Test
+    void hasPurchased_OtherDay_ReturnsFalse() {
+        LocalDate today = LocalDate.now();
+
+        purchaserIndexService.markPurchased(5L, today);
+
+        assertFalse(purchaserIndexService.hasPurchased(5L, today.minusDays(1)));
+    }
+
+    @Test
+    void markPurchased_NewDay_RollsOver() {
+        LocalDate today = LocalDate.now();
+        LocalDate tomorrow = today.plusDays(1);
+
+        purchaserIndexService.markPurchased(5L, today);
+        purchaserIndexService.markPurchased(6L, tomorrow);
+
+        assertTrue(purchaserIndexService.hasPurchased(6L, tomorrow));
+        assertFalse(purchaserIndexService.hasPurchased(5L, today));
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.PurchaseResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.entity.FlashSaleOrder;
+import com.example.flashsale.entity.Product;
+import com.example.flashsale.entity.User;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.PurchasePendingException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.repository.FlashSaleOrderRepository;
+import com.example.flashsale.repository.ProductRepository;
+import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.service.InventorySyncService;
+import com.example.flashsale.service.PurchaseIdempotencyService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SequencedPurchaseStrategyTest {
+    @Mock
+    private FlashSaleConfigRepository flashSaleConfigRepository;
+
+    @Mock
+    private FlashSaleOrderRepository flashSaleOrderRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private InventorySyncService inventorySyncService;
+
+    @Mock
+    private PurchaseIdempotencyService purchaseIdempotencyService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SequencedPurchaseStrategy purchaseStrategy;
+
+    private User testUser;
+
+    private Product testProduct;
+
+    private FlashSaleConfig testFlashSaleConfig;
+
+    @BeforeEach
+    void setUp() {
+        purchaseStrategy = new SequencedPurchaseStrategy(flashSaleConfigRepository, flashSaleOrderRepository,
+                productRepository, userRepository, inventorySyncService, purchaseIdempotencyService, transactionManager, 1, 16, 8, 5000);
+
+        testUser = User.builder()
+                .id(1L).email("test@example.com")
+                .balance(new BigDecimal("50000000")).build();
+
+        testProduct = Product.builder()
+                .id(1L).name("iPhone 15 Pro")
+                .regularPrice(new BigDecimal("30000000"))
+                .stockQuantity(100).build();
+
+        testFlashSaleConfig = FlashSaleConfig.builder()
+                .id(1L).productId(1L).product(testProduct)
+                .flashPrice(new BigDecimal("25000000"))
+                .flashQuantity(50).soldQuantity(10)
+                .saleDate(LocalDate.now())
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(12, 0)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        purchaseStrategy.shutdown();
+    }
+
+    @Test
+    void purchase_Success() {
+        when(flashSaleConfigRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testFlashSaleConfig));
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+        when(userRepository.findAllById(any())).thenReturn(List.of(testUser));
+        when(flashSaleOrderRepository.findUserIdsWithOrderOn(any(), any())).thenReturn(List.of());
+        when(flashSaleOrderRepository.saveAll(any())).thenReturn(List.of(
+                FlashSaleOrder.builder().id(7L).amount(new BigDecimal("25000000"))
+                        .status(FlashSaleOrder.OrderStatus.COMPLETED).build()));
+
+        PurchaseResponse response = purchaseStrategy.purchase(1L, testFlashSaleConfig, null);
+
+        assertEquals(7L, response.getOrderId());
+        assertEquals(new BigDecimal("25000000"), response.getRemainingBalance());
+        assertEquals(11, testFlashSaleConfig.getSoldQuantity());
+        assertEquals(99, testProduct.getStockQuantity());
+        verify(inventorySyncService).syncInventoryForBatch(eq(1L), eq(List.of(7L)));
+    }
+
+    @Test
+    void purchase_SoldOut() {
+        testFlashSaleConfig.setSoldQuantity(50);
+        when(flashSaleConfigRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testFlashSaleConfig));
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+        when(userRepository.findAllById(any())).thenReturn(List.of(testUser));
+        when(flashSaleOrderRepository.findUserIdsWithOrderOn(any(), any())).thenReturn(List.of());
+
+        assertThrows(SoldOutException.class, () -> purchaseStrategy.purchase(1L, testFlashSaleConfig, null));
+        verify(flashSaleOrderRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void purchase_AlreadyPurchased() {
+        when(flashSaleConfigRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testFlashSaleConfig));
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+        when(userRepository.findAllById(any())).thenReturn(List.of(testUser));
+        when(flashSaleOrderRepository.findUserIdsWithOrderOn(any(), any())).thenReturn(List.of(1L));
+
+        assertThrows(BusinessException.class, () -> purchaseStrategy.purchase(1L, testFlashSaleConfig, null));
+        verify(inventorySyncService, never()).syncInventoryForBatch(any(), anyList());
+    }
+
+    @Test
+    void purchase_TimedOutWhileQueued_CancelsIntent() throws Exception {
+        purchaseStrategy = new SequencedPurchaseStrategy(flashSaleConfigRepository, flashSaleOrderRepository,
+                productRepository, userRepository, inventorySyncService, purchaseIdempotencyService, transactionManager, 1, 16, 8, 100);
+        CountDownLatch writerBlocked = blockWriter();
+        User otherUser = User.builder().id(2L).balance(new BigDecimal("50000000")).build();
+        stubBatch(List.of(testUser, otherUser));
+
+        // The first intent occupies the writer, the second one is still queued when its caller gives up
+        CompletableFuture<PurchaseResponse> first = purchaseStrategy.submit(1L, testFlashSaleConfig);
+        verify(transactionManager, timeout(5000)).getTransaction(any());
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> purchaseStrategy.purchase(2L, testFlashSaleConfig, null));
+        writerBlocked.countDown();
+
+        assertEquals("Flash sale is busy, please try again", exception.getMessage());
+        assertEquals(7L, first.get(5, TimeUnit.SECONDS).getOrderId());
+        verify(userRepository).findAllById(Set.of(1L));
+        verify(userRepository, never()).findAllById(Set.of(2L));
+        assertEquals(99, testProduct.getStockQuantity());
+    }
+
+    @Test
+    void purchase_TimedOutWhileCommitting_ThrowsPendingWithResult() throws Exception {
+        purchaseStrategy = new SequencedPurchaseStrategy(flashSaleConfigRepository, flashSaleOrderRepository,
+                productRepository, userRepository, inventorySyncService, purchaseIdempotencyService, transactionManager, 1, 16, 8, 100);
+        CountDownLatch writerBlocked = blockWriter();
+        stubBatch(List.of(testUser));
+
+        PurchasePendingException exception = assertThrows(PurchasePendingException.class,
+                () -> purchaseStrategy.purchase(1L, testFlashSaleConfig, null));
+        writerBlocked.countDown();
+
+        assertEquals(7L, exception.getResult().get(5, TimeUnit.SECONDS).getOrderId());
+    }
+
+    @Test
+    void evictEndedBefore_EndedIdleSale_RemovesSequencer() {
+        stubBatch(List.of(testUser));
+        purchaseStrategy.purchase(1L, testFlashSaleConfig, null);
+        LocalDateTime saleEnd = LocalDateTime.of(testFlashSaleConfig.getSaleDate(), testFlashSaleConfig.getEndTime());
+
+        assertEquals(0, purchaseStrategy.evictEndedBefore(saleEnd.minusMinutes(1)));
+        // The writer clears its draining flag just after completing the purchase
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        int evicted;
+        do {
+            evicted = purchaseStrategy.evictEndedBefore(saleEnd.plusMinutes(1));
+        } while (evicted == 0 && System.nanoTime() < deadline);
+        assertEquals(1, evicted);
+        assertEquals(0, purchaseStrategy.evictEndedBefore(saleEnd.plusMinutes(1)));
+    }
+
+    private CountDownLatch blockWriter() {
+        CountDownLatch latch = new CountDownLatch(1);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            latch.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        return latch;
+    }
+
+    private void stubBatch(List<User> users) {
+        when(flashSaleConfigRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testFlashSaleConfig));
+        when(productRepository.findByIdWithLock(1L)).thenReturn(Optional.of(testProduct));
+        when(userRepository.findAllById(any())).thenAnswer(invocation -> {
+            Set<Long> ids = invocation.getArgument(0);
+            return users.stream().filter(user -> ids.contains(user.getId())).toList();
+        });
+        when(flashSaleOrderRepository.findUserIdsWithOrderOn(any(), any())).thenReturn(List.of());
+        when(flashSaleOrderRepository.saveAll(any())).thenReturn(List.of(
+                FlashSaleOrder.builder().id(7L).amount(new BigDecimal("25000000"))
+                        .status(FlashSaleOrder.OrderStatus.COMPLETED).build()));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.FlashSaleConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SoldOutRegistryServiceImplTest {
+    private static final LocalDate TODAY = LocalDate.of(2026, 1, 1);
+
+    private SoldOutRegistryServiceImpl soldOutRegistryService;
+
+    private FlashSaleConfig testFlashSaleConfig;
+
+    @BeforeEach
+    void setUp() {
+        soldOutRegistryService = new SoldOutRegistryServiceImpl();
+        testFlashSaleConfig = FlashSaleConfig.builder()
+                .id(1L).productId(1L)
+                .flashQuantity(10).soldQuantity(10)
+                .saleDate(TODAY)
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(12, 0)).build();
+    }
+
+    @Test
+    void markSoldOut_CoversOnlyTheSaleWindow() {
+        soldOutRegistryService.markSoldOut(testFlashSaleConfig);
+
+        assertTrue(soldOutRegistryService.isSoldOut(1L, TODAY, LocalTime.of(11, 0)));
+        assertTrue(soldOutRegistryService.isSoldOut(1L, 1L));
+        assertFalse(soldOutRegistryService.isSoldOut(1L, TODAY, LocalTime.of(14, 0)));
+        assertFalse(soldOutRegistryService.isSoldOut(2L, TODAY, LocalTime.of(11, 0)));
+    }
+
+    @Test
+    void clearSoldOut_IgnoresOtherSaleOfSameProduct() {
+        FlashSaleConfig afternoonSale = FlashSaleConfig.builder()
+                .id(2L).productId(1L)
+                .saleDate(TODAY)
+                .startTime(LocalTime.of(14, 0))
+                .endTime(LocalTime.of(16, 0)).build();
+        soldOutRegistryService.markSoldOut(testFlashSaleConfig);
+
+        soldOutRegistryService.clearSoldOut(afternoonSale);
+        assertTrue(soldOutRegistryService.isSoldOut(1L, 1L));
+
+        soldOutRegistryService.clearSoldOut(testFlashSaleConfig);
+        assertFalse(soldOutRegistryService.isSoldOut(1L, 1L));
+    }
+
+    @Test
+    void getVersion_ChangesOnlyWhenFlagsChange() {
+        soldOutRegistryService.markSoldOut(testFlashSaleConfig);
+        soldOutRegistryService.markSoldOut(testFlashSaleConfig);
+        assertEquals(1L, soldOutRegistryService.getVersion());
+
+        soldOutRegistryService.clearSoldOut(testFlashSaleConfig);
+        assertEquals(2L, soldOutRegistryService.getVersion());
+    }
+}
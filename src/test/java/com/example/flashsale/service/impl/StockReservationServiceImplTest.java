@@ -0,0 +1,170 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.repository.FlashSaleConfigRepository;
+import com.example.flashsale.service.FlashSaleScheduleService;
+import com.example.flashsale.service.SoldOutRegistryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceImplTest {
+    private static final LocalDate TODAY = LocalDate.of(2026, 1, 1);
+    private static final LocalTime NOW = LocalTime.of(10, 30);
+
+    @Mock
+    private FlashSaleConfigRepository flashSaleConfigRepository;
+
+    @Mock
+    private FlashSaleScheduleService flashSaleScheduleService;
+
+    @Mock
+    private SoldOutRegistryService soldOutRegistryService;
+
+    @InjectMocks
+    private StockReservationServiceImpl stockReservationService;
+
+    private FlashSaleConfig testFlashSaleConfig;
+
+    @BeforeEach
+    void setUp() {
+        testFlashSaleConfig = FlashSaleConfig.builder()
+                .id(1L).productId(1L)
+                .flashPrice(new BigDecimal("25000000"))
+                .flashQuantity(10).soldQuantity(8)
+                .saleDate(TODAY)
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(12, 0)).build();
+    }
+
+    @Test
+    void reserve_SeedsOnceFromDatabase() {
+        givenActiveFlashSale();
+
+        assertSame(testFlashSaleConfig, stockReservationService.reserve(1L, TODAY, NOW));
+        assertSame(testFlashSaleConfig, stockReservationService.reserve(1L, TODAY, NOW));
+        assertThrows(SoldOutException.class, () -> stockReservationService.reserve(1L, TODAY, NOW));
+
+        verify(flashSaleConfigRepository, times(1)).findSoldQuantityById(1L);
+    }
+
+    @Test
+    void reserve_SaleDeactivatedMidWindow_Rejected() {
+        givenActiveFlashSale();
+        stockReservationService.reserve(1L, TODAY, NOW);
+
+        // The schedule reload no longer lists the sale
+        when(flashSaleScheduleService.findActiveFlashSale(1L, TODAY, NOW)).thenReturn(Optional.empty());
+
+        assertThrows(BusinessException.class, () -> stockReservationService.reserve(1L, TODAY, NOW));
+    }
+
+    @Test
+    void reserve_ReloadedConfig_SwappedIntoCounter() {
+        givenActiveFlashSale();
+        stockReservationService.reserve(1L, TODAY, NOW);
+        FlashSaleConfig reloaded = FlashSaleConfig.builder()
+                .id(1L).productId(1L)
+                .flashPrice(new BigDecimal("20000000"))
+                .flashQuantity(11).soldQuantity(8)
+                .saleDate(TODAY)
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(12, 0)).build();
+        when(flashSaleScheduleService.findActiveFlashSale(1L, TODAY, NOW)).thenReturn(Optional.of(reloaded));
+
+        // The raised quantity adds one unit to the single one left, without reseeding
+        assertSame(reloaded, stockReservationService.reserve(1L, TODAY, NOW));
+        assertSame(reloaded, stockReservationService.reserve(1L, TODAY, NOW));
+        assertThrows(SoldOutException.class, () -> stockReservationService.reserve(1L, TODAY, NOW));
+        verify(flashSaleConfigRepository, times(1)).findSoldQuantityById(1L);
+    }
+
+    @Test
+    void reserve_SeedsFromCurrentSoldQuantity() {
+        // The indexed config was loaded before the last two units were sold elsewhere
+        when(flashSaleScheduleService.findActiveFlashSale(1L, TODAY, NOW)).thenReturn(Optional.of(testFlashSaleConfig));
+        when(flashSaleConfigRepository.findSoldQuantityById(1L)).thenReturn(Optional.of(10));
+
+        assertThrows(SoldOutException.class, () -> stockReservationService.reserve(1L, TODAY, NOW));
+    }
+
+    @Test
+    void reserve_NoActiveFlashSale_ThrowsException() {
+        when(flashSaleScheduleService.findActiveFlashSale(any(), any(), any())).thenReturn(Optional.empty());
+
+        assertThrows(BusinessException.class, () -> stockReservationService.reserve(1L, TODAY, NOW));
+    }
+
+    @Test
+    void release_ReturnsUnit() {
+        testFlashSaleConfig.setSoldQuantity(9);
+        givenActiveFlashSale();
+
+        stockReservationService.reserve(1L, TODAY, NOW);
+        stockReservationService.release(testFlashSaleConfig);
+
+        assertSame(testFlashSaleConfig, stockReservationService.reserve(1L, TODAY, NOW));
+        verify(soldOutRegistryService).clearSoldOut(testFlashSaleConfig);
+    }
+
+    @Test
+    void markSoldOut_RejectsRemainingRequests() {
+        givenActiveFlashSale();
+
+        stockReservationService.reserve(1L, TODAY, NOW);
+        stockReservationService.markSoldOut(testFlashSaleConfig);
+
+        assertThrows(SoldOutException.class, () -> stockReservationService.reserve(1L, TODAY, NOW));
+    }
+
+    @Test
+    void reserve_ConcurrentRequests_NeverOversell() throws InterruptedException {
+        testFlashSaleConfig.setSoldQuantity(0);
+        givenActiveFlashSale();
+        AtomicInteger winners = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(() -> {
+                try {
+                    stockReservationService.reserve(1L, TODAY, NOW);
+                    winners.incrementAndGet();
+                } catch (SoldOutException ignored) {
+                    // expected for every request after the tenth
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(10, winners.get());
+    }
+
+    private void givenActiveFlashSale() {
+        when(flashSaleScheduleService.findActiveFlashSale(1L, TODAY, NOW)).thenReturn(Optional.of(testFlashSaleConfig));
+        when(flashSaleConfigRepository.findSoldQuantityById(1L)).thenAnswer(invocation -> Optional.of(testFlashSaleConfig.getSoldQuantity()));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.flashsale.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdGeneratorTest {
+    private static final long NOW = TimeOrderedIdGenerator.EPOCH_MILLIS + 1_000_000L;
+    private static final int TIMESTAMP_SHIFT = TimeOrderedIdGenerator.NODE_BITS + TimeOrderedIdGenerator.SEQUENCE_BITS;
+
+    @Test
+    void nextId_SameMillisecond_IncrementsSequenceAfterNodeBits() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(3, () -> NOW);
+
+        long first = generator.nextId("flash_sale_orders");
+        long second = generator.nextId("flash_sale_orders");
+
+        assertEquals(1_000_000L, first >>> TIMESTAMP_SHIFT);
+        assertEquals(3, (first >>> TimeOrderedIdGenerator.SEQUENCE_BITS) & TimeOrderedIdGenerator.MAX_NODE_ID);
+        assertEquals(first + 1, second);
+    }
+
+    @Test
+    void nextId_SequenceExhausted_BorrowsNextMillisecond() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(0, () -> NOW);
+        long previous = 0;
+        for (int i = 0; i < 1 << TimeOrderedIdGenerator.SEQUENCE_BITS; i++) {
+            previous = generator.nextId("users");
+        }
+
+        long borrowed = generator.nextId("users");
+
+        assertTrue(borrowed > previous);
+        assertEquals(1_000_001L, borrowed >>> TIMESTAMP_SHIFT);
+    }
+
+    @Test
+    void nextId_ClockMovesBack_KeepsIncreasing() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(0, clock::get);
+        long before = generator.nextId("users");
+
+        clock.set(NOW - 5_000);
+
+        assertTrue(generator.nextId("users") > before);
+    }
+
+    @Test
+    void nextId_DifferentNodes_NeverCollide() {
+        long first = new TimeOrderedIdGenerator(1, () -> NOW).nextId("users");
+        long second = new TimeOrderedIdGenerator(2, () -> NOW).nextId("users");
+
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void nextId_EndOfRange_StaysExactAsJsonNumber() {
+        long lastMillis = TimeOrderedIdGenerator.EPOCH_MILLIS + (1L << 41) - 1;
+        long id = new TimeOrderedIdGenerator(TimeOrderedIdGenerator.MAX_NODE_ID, () -> lastMillis).nextId("users");
+
+        // Number.MAX_SAFE_INTEGER in JavaScript
+        assertTrue(id <= (1L << 53) - 1);
+    }
+
+    @Test
+    void constructor_NodeIdOutOfRange_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIdGenerator(32, () -> NOW));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.entity.RevokedToken;
+import com.example.flashsale.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TokenDenylistServiceImplTest {
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private TokenDenylistServiceImpl tokenDenylistService;
+
+    @BeforeEach
+    void setUp() {
+        tokenDenylistService = new TokenDenylistServiceImpl(revokedTokenRepository, 1000, 0.01);
+    }
+
+    @Test
+    void revoke_PersistsAndRejectsToken() {
+        tokenDenylistService.revoke("token-1", 1L, LocalDateTime.now().plusHours(1));
+        tokenDenylistService.revoke("token-1", 1L, LocalDateTime.now().plusHours(1));
+
+        assertTrue(tokenDenylistService.isRevoked("token-1"));
+        assertFalse(tokenDenylistService.isRevoked("token-2"));
+        assertFalse(tokenDenylistService.isRevoked(null));
+        verify(revokedTokenRepository, times(1)).save(any(RevokedToken.class));
+    }
+
+    @Test
+    void revoke_Expired_Ignored() {
+        tokenDenylistService.revoke("token-1", 1L, LocalDateTime.now().minusSeconds(1));
+
+        assertFalse(tokenDenylistService.isRevoked("token-1"));
+        verify(revokedTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void revoke_WithoutId_Rejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> tokenDenylistService.revoke(null, 1L, LocalDateTime.now().plusHours(1)));
+        verify(revokedTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void reload_RestoresPersistedRevocations() {
+        List<RevokedToken> persisted = IntStream.range(0, 500)
+                .mapToObj(i -> RevokedToken.builder().jti("token-" + i).userId(1L).expiresAt(LocalDateTime.now().plusHours(1)).build())
+                .toList();
+        when(revokedTokenRepository.findByExpiresAtAfter(any())).thenReturn(persisted);
+
+        tokenDenylistService.reload();
+
+        persisted.forEach(token -> assertTrue(tokenDenylistService.isRevoked(token.getJti())));
+        // Bloom filter hits are confirmed against the exact set, so unknown tokens are never reported
+        assertEquals(0, IntStream.range(0, 10000)
+                .filter(i -> tokenDenylistService.isRevoked(UUID.randomUUID().toString()))
+                .count());
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.dto.QueueTokenResponse;
+import com.example.flashsale.entity.FlashSaleConfig;
+import com.example.flashsale.exception.BusinessException;
+import com.example.flashsale.exception.SoldOutException;
+import com.example.flashsale.service.StockReservationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WaitingRoomServiceImplTest {
+    @Mock
+    private StockReservationService stockReservationService;
+
+    private WaitingRoomServiceImpl waitingRoomService;
+
+    private FlashSaleConfig testFlashSaleConfig;
+
+    @BeforeEach
+    void setUp() {
+        waitingRoomService = new WaitingRoomServiceImpl(stockReservationService, "test-secret", 50, 2, 1.5, 120, 1000);
+        testFlashSaleConfig = FlashSaleConfig.builder()
+                .id(1L).productId(1L)
+                .flashQuantity(10).soldQuantity(0)
+                .saleDate(LocalDate.now())
+                .startTime(LocalTime.MIN)
+                .endTime(LocalTime.MAX)
+                .waitingRoomEnabled(true).build();
+        lenient().when(stockReservationService.getActiveFlashSale(eq(1L), any(), any())).thenReturn(testFlashSaleConfig);
+    }
+
+    @Test
+    void join_AssignsPositionsInOrder() {
+        QueueTokenResponse first = waitingRoomService.join(1L, 1L);
+        QueueTokenResponse second = waitingRoomService.join(2L, 1L);
+
+        assertEquals(1L, first.getPosition());
+        assertEquals(2L, second.getPosition());
+        assertEquals(1L, second.getPositionsAhead());
+        assertEquals("WAITING", second.getStatus());
+        // Joining again keeps the position
+        assertEquals(1L, waitingRoomService.join(1L, 1L).getPosition());
+    }
+
+    @Test
+    void admitNext_AdmitsAtMinimumRate() {
+        when(stockReservationService.getRemaining(testFlashSaleConfig)).thenReturn(10);
+        String first = waitingRoomService.join(1L, 1L).getQueueToken();
+        waitingRoomService.join(2L, 1L);
+        String third = waitingRoomService.join(3L, 1L).getQueueToken();
+
+        waitingRoomService.admitNext();
+
+        assertEquals("ADMITTED", waitingRoomService.getStatus(1L, first).getStatus());
+        assertEquals("WAITING", waitingRoomService.getStatus(3L, third).getStatus());
+        assertDoesNotThrow(() -> waitingRoomService.checkAdmitted(1L, testFlashSaleConfig, first));
+        assertThrows(BusinessException.class, () -> waitingRoomService.checkAdmitted(3L, testFlashSaleConfig, third));
+    }
+
+    @Test
+    void admitNext_ShortInterval_AdmitsPerSecondRateAcrossTicks() {
+        // 2 per second at 250ms ticks is half a position per tick
+        waitingRoomService = new WaitingRoomServiceImpl(stockReservationService, "test-secret", 50, 2, 1.5, 120, 250);
+        when(stockReservationService.getRemaining(testFlashSaleConfig)).thenReturn(10);
+        String first = waitingRoomService.join(1L, 1L).getQueueToken();
+        String second = waitingRoomService.join(2L, 1L).getQueueToken();
+        String third = waitingRoomService.join(3L, 1L).getQueueToken();
+
+        waitingRoomService.admitNext();
+        assertEquals("WAITING", waitingRoomService.getStatus(1L, first).getStatus());
+
+        waitingRoomService.admitNext();
+        waitingRoomService.admitNext();
+        waitingRoomService.admitNext();
+
+        // One second of ticks admits two positions, not eight
+        assertEquals("ADMITTED", waitingRoomService.getStatus(1L, first).getStatus());
+        assertEquals("ADMITTED", waitingRoomService.getStatus(2L, second).getStatus());
+        assertEquals("WAITING", waitingRoomService.getStatus(3L, third).getStatus());
+    }
+
+    @Test
+    void admitNext_StockSpokenFor_QueuedUsersSoldOut() {
+        when(stockReservationService.getRemaining(testFlashSaleConfig)).thenReturn(1);
+        waitingRoomService.join(1L, 1L);
+        String second = waitingRoomService.join(2L, 1L).getQueueToken();
+
+        waitingRoomService.admitNext();
+        waitingRoomService.admitNext();
+
+        assertEquals("SOLD_OUT", waitingRoomService.getStatus(2L, second).getStatus());
+        assertThrows(SoldOutException.class, () -> waitingRoomService.checkAdmitted(2L, testFlashSaleConfig, second));
+    }
+
+    @Test
+    void admitNext_ReservedAdmissionsNotCountedTwice() {
+        when(stockReservationService.getRemaining(testFlashSaleConfig)).thenReturn(3, 2);
+        waitingRoomService.join(1L, 1L);
+        waitingRoomService.join(2L, 1L);
+        String third = waitingRoomService.join(3L, 1L).getQueueToken();
+        waitingRoomService.admitNext();
+
+        // The first user's purchase is running, its unit is already out of the remaining stock
+        waitingRoomService.recordReservation(1L, testFlashSaleConfig);
+        waitingRoomService.admitNext();
+
+        assertEquals("ADMITTED", waitingRoomService.getStatus(3L, third).getStatus());
+    }
+
+    @Test
+    void checkAdmitted_RejectsTokenOfAnotherUser() {
+        String token = waitingRoomService.join(1L, 1L).getQueueToken();
+
+        assertThrows(BusinessException.class, () -> waitingRoomService.checkAdmitted(2L, testFlashSaleConfig, token));
+        assertThrows(BusinessException.class, () -> waitingRoomService.checkAdmitted(1L, testFlashSaleConfig, token + "x"));
+        assertThrows(BusinessException.class, () -> waitingRoomService.checkAdmitted(1L, testFlashSaleConfig, null));
+    }
+}